@@ -34,7 +34,7 @@ import org.springframework.web.reactive.function.client.WebClient;
  * Access Control Configuration.
  */
 @Configuration
-@EnableConfigurationProperties(BackbaseStreamConfigurationProperties.class)
+@EnableConfigurationProperties({BackbaseStreamConfigurationProperties.class, LookupCacheProperties.class})
 @Import(ProductConfiguration.class)
 public class AccessControlConfiguration {
 
@@ -55,17 +55,19 @@ public class AccessControlConfiguration {
 
     @Bean
     public LegalEntityService legalEntityService(
-        com.backbase.dbs.accesscontrol.api.service.ApiClient legalEntityApiClient) {
+        com.backbase.dbs.accesscontrol.api.service.ApiClient legalEntityApiClient,
+        LookupCacheProperties lookupCacheProperties) {
         LegalEntitiesApi legalEntitiesApi = new LegalEntitiesApi(legalEntityApiClient);
         LegalEntityApi legalEntityApi = new LegalEntityApi(legalEntityApiClient);
-        return new LegalEntityService(legalEntitiesApi, legalEntityApi);
+        return new LegalEntityService(legalEntitiesApi, legalEntityApi, lookupCacheProperties);
     }
 
     @Bean
-    public UserService userService(com.backbase.dbs.user.api.service.ApiClient usersApiClient) {
+    public UserService userService(com.backbase.dbs.user.api.service.ApiClient usersApiClient,
+        LookupCacheProperties lookupCacheProperties) {
         UserManagementApi usersApi = new UserManagementApi(usersApiClient);
         IdentityManagementApi identityManagementApi = new IdentityManagementApi(usersApiClient);
-        return new UserService(usersApi, identityManagementApi);
+        return new UserService(usersApi, identityManagementApi, lookupCacheProperties);
     }
 
     @Bean
@@ -0,0 +1,31 @@
+package com.backbase.stream.configuration;
+
+import java.time.Duration;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Caching of Legal Entity, Service Agreement and User lookups by id.
+ */
+@ConfigurationProperties("backbase.stream.access-control.cache")
+@Data
+@NoArgsConstructor
+public class LookupCacheProperties {
+
+    /**
+     * Cache lookups. Changes made outside of this service show up once the cached value expires.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Time a looked up value is cached for
+     */
+    private Duration ttl = Duration.ofMinutes(1);
+
+    /**
+     * Maximum number of values cached per lookup
+     */
+    private int maximumSize = 10_000;
+
+}
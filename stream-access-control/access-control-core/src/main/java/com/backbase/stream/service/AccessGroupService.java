@@ -56,6 +56,7 @@ import com.backbase.stream.product.task.BatchProductGroupTask;
 import com.backbase.stream.product.task.ProductGroupTask;
 import com.backbase.stream.product.utils.BatchResponseUtils;
 import com.backbase.stream.product.utils.StreamUtils;
+import com.backbase.stream.worker.cache.SingleFlight;
 import com.backbase.stream.worker.exception.StreamTaskException;
 import com.backbase.stream.worker.model.StreamTask;
 import java.math.BigDecimal;
@@ -119,6 +120,8 @@ public class AccessGroupService {
     private final ServiceAgreementsApi serviceAgreementsApi;
 
     private final AccessGroupMapper accessGroupMapper = Mappers.getMapper(AccessGroupMapper.class);
+    private final SingleFlight<String, List<FunctionGroupItem>> functionGroupLookups =
+        new SingleFlight<>("function-groups");
 
     /**
      * Create Service Agreement.
@@ -538,7 +541,7 @@ public class AccessGroupService {
     public Mono<List<BusinessFunctionGroup>> setupFunctionGroups(StreamTask streamTask, ServiceAgreement serviceAgreement, List<BusinessFunctionGroup> businessFunctionGroups) {
         streamTask.info(FUNCTION_GROUP, SETUP_FUNCTION_GROUP, "", serviceAgreement.getExternalId(), serviceAgreement.getInternalId(), "Setting up %s Business Functions for Service Agreement: %s", businessFunctionGroups.size(), serviceAgreement.getName());
         log.info("Setup {} Business Function for Service Agreement: {}", businessFunctionGroups.size(), serviceAgreement.getExternalId());
-        return functionGroupApi.getFunctionGroups(serviceAgreement.getInternalId())
+        return getFunctionGroups(serviceAgreement.getInternalId())
             .onErrorResume(WebClientResponseException.class, e -> {
                 log.error("Failed to get Function Groups for Service Agreement: {} Response: {}", serviceAgreement.getExternalId(), e.getResponseBodyAsString());
                 streamTask.error(FUNCTION_GROUP, SETUP_FUNCTION_GROUP, "failed", serviceAgreement.getExternalId(), serviceAgreement.getInternalId(), "Failed to get function groups for Service Agreement: " + serviceAgreement.getInternalId());
@@ -692,10 +695,19 @@ public class AccessGroupService {
      */
     public Mono<List<FunctionGroupItem>> getFunctionGroupsForServiceAgreement(String serviceAgreementInternalId) {
         log.debug("Retrieving Function Groups for Service Agreement {}", serviceAgreementInternalId);
-        return functionGroupApi.getFunctionGroups(serviceAgreementInternalId)
+        return getFunctionGroups(serviceAgreementInternalId)
             .collectList();
     }
 
+    /**
+     * Function Groups of a Service Agreement. Concurrent lookups for the same Service Agreement share one call.
+     */
+    private Flux<FunctionGroupItem> getFunctionGroups(String serviceAgreementInternalId) {
+        return functionGroupLookups.execute(serviceAgreementInternalId,
+            () -> functionGroupApi.getFunctionGroups(serviceAgreementInternalId).collectList())
+            .flatMapIterable(functionGroups -> functionGroups);
+    }
+
 
     /**
      * Delete all administrators for specified Service Agreement.
@@ -940,7 +952,7 @@ public class AccessGroupService {
         log.info("Setup {} job role for Service Agreement: {}", jobRole.getName(),
             masterServiceAgreement.getExternalId());
 
-        return functionGroupApi.getFunctionGroups(masterServiceAgreement.getInternalId())
+        return getFunctionGroups(masterServiceAgreement.getInternalId())
             .onErrorResume(WebClientResponseException.class, e -> {
                 log.error("Failed to get Function Groups for Service Agreement: {} Response: {}",
                     masterServiceAgreement.getExternalId(), e.getResponseBodyAsString());
@@ -4,13 +4,17 @@ import com.backbase.dbs.accesscontrol.api.service.v2.LegalEntitiesApi;
 import com.backbase.dbs.accesscontrol.api.service.v2.LegalEntityApi;
 import com.backbase.dbs.accesscontrol.api.service.v2.model.LegalEntitiesBatchDelete;
 import com.backbase.dbs.accesscontrol.api.service.v2.model.LegalEntityCreateItem;
+import com.backbase.dbs.accesscontrol.api.service.v2.model.LegalEntityItem;
 import com.backbase.dbs.accesscontrol.api.service.v2.model.LegalEntityItemId;
+import com.backbase.dbs.accesscontrol.api.service.v2.model.ServiceAgreementItemQuery;
+import com.backbase.stream.configuration.LookupCacheProperties;
 import com.backbase.stream.exceptions.LegalEntityException;
 import com.backbase.stream.legalentity.model.LegalEntity;
 import com.backbase.stream.legalentity.model.ServiceAgreement;
 import com.backbase.stream.mapper.AccessGroupMapper;
 import com.backbase.stream.mapper.LegalEntityMapper;
 import com.backbase.stream.product.utils.BatchResponseUtils;
+import com.backbase.stream.worker.cache.ReactiveCache;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -19,11 +23,11 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.factory.Mappers;
 import org.springframework.beans.factory.annotation.Value;
@@ -40,13 +44,12 @@ import reactor.core.publisher.Mono;
  */
 @SuppressWarnings("WeakerAccess")
 @Slf4j
-@RequiredArgsConstructor
 public class LegalEntityService {
 
-    @NonNull
     private final LegalEntitiesApi legalEntitiesApi;
-    @NonNull
     private final LegalEntityApi legalEntityApi;
+    private final ReactiveCache<String, LegalEntityItem> legalEntityCache;
+    private final ReactiveCache<String, ServiceAgreementItemQuery> masterServiceAgreementCache;
 
     private final LegalEntityMapper mapper = Mappers.getMapper(LegalEntityMapper.class);
     private final AccessGroupMapper serviceAgreementMapper = Mappers.getMapper(AccessGroupMapper.class);
@@ -58,6 +61,33 @@ public class LegalEntityService {
     @Value("${backbase.accesscontrol.token.initPhrase:16b_secret_value}")
     private String legalEntityApiTokenInitPhrase = "16b_secret_value";
 
+    public LegalEntityService(@NonNull LegalEntitiesApi legalEntitiesApi, @NonNull LegalEntityApi legalEntityApi) {
+        this(legalEntitiesApi, legalEntityApi, null);
+    }
+
+    /**
+     * Create a service that caches Legal Entities by external ID and Master Service Agreements by internal Legal
+     * Entity ID.
+     *
+     * @param legalEntitiesApi Legal Entities API
+     * @param legalEntityApi   Legal Entity API
+     * @param cacheProperties  Cache settings, or {@code null} to look up every time
+     */
+    public LegalEntityService(@NonNull LegalEntitiesApi legalEntitiesApi, @NonNull LegalEntityApi legalEntityApi,
+        LookupCacheProperties cacheProperties) {
+        this.legalEntitiesApi = legalEntitiesApi;
+        this.legalEntityApi = legalEntityApi;
+        if (cacheProperties != null && cacheProperties.isEnabled()) {
+            this.legalEntityCache = new ReactiveCache<>("legal-entity-by-external-id", cacheProperties.getTtl(),
+                cacheProperties.getMaximumSize());
+            this.masterServiceAgreementCache = new ReactiveCache<>("master-service-agreement-by-legal-entity-id",
+                cacheProperties.getTtl(), cacheProperties.getMaximumSize());
+        } else {
+            this.legalEntityCache = null;
+            this.masterServiceAgreementCache = null;
+        }
+    }
+
     /**
      * Create Legal Entity in Access Control.
      *
@@ -67,6 +97,7 @@ public class LegalEntityService {
     public Mono<LegalEntity> createLegalEntity(LegalEntity legalEntity) {
         LegalEntityCreateItem legalEntityCreateItem = mapper.toPresentation(legalEntity);
         return createLegalEntity(legalEntityCreateItem)
+            .doOnSuccess(createdLegalEntityId -> invalidate(legalEntityCache, legalEntity.getExternalId()))
             .map(createdLegalEntityId -> {
                 log.info("Created Legal Entity: {} with ID: {}", legalEntity.getName(), createdLegalEntityId.getId());
                 legalEntity.setInternalId(createdLegalEntityId.getId());
@@ -123,23 +154,23 @@ public class LegalEntityService {
      */
     public Mono<ServiceAgreement> getMasterServiceAgreementForInternalLegalEntityId(String legalEntityInternalId) {
         log.info("Getting Service Agreement for: {}", legalEntityInternalId);
-        return legalEntityApi.getMasterServiceAgreement(legalEntityInternalId)
-            .doOnNext(serviceAgreementItem -> log.info("Service Agreement: {} found for legal entity: {}", serviceAgreementItem.getExternalId(), legalEntityInternalId))
+        return cached(masterServiceAgreementCache, legalEntityInternalId, id -> legalEntityApi.getMasterServiceAgreement(id)
+            .doOnNext(serviceAgreementItem -> log.info("Service Agreement: {} found for legal entity: {}", serviceAgreementItem.getExternalId(), id))
             .onErrorResume(WebClientResponseException.NotFound.class, throwable -> {
-                log.info("Master Service Agreement not found for: {}. Request:[{}] {}  Response: {}", legalEntityInternalId,  throwable.getRequest().getMethod(), throwable.getRequest().getURI() , throwable.getResponseBodyAsString());
+                log.info("Master Service Agreement not found for: {}. Request:[{}] {}  Response: {}", id,  throwable.getRequest().getMethod(), throwable.getRequest().getURI() , throwable.getResponseBodyAsString());
                 return Mono.empty();
-            })
+            }))
             .map(serviceAgreementMapper::toStream);
     }
 
     @ContinueSpan(log = "getLegalEntityByExternalId")
     public Mono<LegalEntity> getLegalEntityByExternalId(@SpanTag("externalId") String externalId) {
         try {
-            return legalEntitiesApi.getLegalEntityByExternalId(externalId)
+            return cached(legalEntityCache, externalId, id -> legalEntitiesApi.getLegalEntityByExternalId(id)
                     .onErrorResume(WebClientResponseException.NotFound.class, notFound -> {
-                        log.info("Legal Entity with externalId: {} does not exist: {}", externalId, notFound.getResponseBodyAsString());
+                        log.info("Legal Entity with externalId: {} does not exist: {}", id, notFound.getResponseBodyAsString());
                         return Mono.empty();
-                    })
+                    }))
                     .map(mapper::toStream);
         } catch (RestClientException e) {
             return Mono.error(e);
@@ -170,12 +201,30 @@ public class LegalEntityService {
                         .externalIds(Collections.singletonList(legalEntityExternalId)))
                 .map(r -> BatchResponseUtils.checkBatchResponseItem(r, "Remove Legal Entity", r.getStatus().getValue(), r.getResourceId(), r.getErrors()))
                 .collectList()
+                .doFinally(signalType -> {
+                    // The internal ID of the removed Legal Entity is not known here
+                    invalidate(legalEntityCache, legalEntityExternalId);
+                    if (masterServiceAgreementCache != null) {
+                        masterServiceAgreementCache.invalidateAll();
+                    }
+                })
                 .onErrorResume(WebClientResponseException.class, e -> {
                     log.error("Failed to remove legal  entity: {}", e.getResponseBodyAsString(), e);
                     return Mono.error(e);
                 }).then();
     }
 
+    private static <V> Mono<V> cached(ReactiveCache<String, V> cache, String key,
+        Function<String, Mono<V>> lookup) {
+        return cache != null ? cache.get(key, lookup) : lookup.apply(key);
+    }
+
+    private static void invalidate(ReactiveCache<String, ?> cache, String key) {
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
     private void handleWebClientResponseException(WebClientResponseException webclientResponseException) {
         log.error("Bad Request: \n[{}]: {}\nResponse: {}",
             Objects.requireNonNull(webclientResponseException.getRequest()).getMethod(),
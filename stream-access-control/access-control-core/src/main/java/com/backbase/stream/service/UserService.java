@@ -15,21 +15,30 @@ import com.backbase.dbs.user.api.service.v2.model.Realm;
 import com.backbase.dbs.user.api.service.v2.model.UpdateIdentityRequest;
 import com.backbase.dbs.user.api.service.v2.model.UserCreated;
 import com.backbase.dbs.user.api.service.v2.model.UserExternal;
+import com.backbase.stream.configuration.LookupCacheProperties;
 import com.backbase.stream.legalentity.model.IdentityUserLinkStrategy;
 import com.backbase.stream.legalentity.model.LegalEntity;
 import com.backbase.stream.legalentity.model.User;
 import com.backbase.stream.mapper.RealmMapper;
 import com.backbase.stream.mapper.UserMapper;
+import com.backbase.stream.worker.cache.ReactiveCache;
+import com.backbase.stream.worker.cache.SingleFlight;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import lombok.AllArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.factory.Mappers;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -37,14 +46,51 @@ import reactor.core.publisher.Mono;
  */
 @SuppressWarnings("WeakerAccess")
 @Slf4j
-@AllArgsConstructor
 public class UserService {
 
+    /**
+     * Maximum number of users updated in one batch call.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * Number of existing users retrieved per page when upserting the users of a legal entity.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of user create calls in flight for one legal entity.
+     */
+    private static final int CREATE_CONCURRENCY = 10;
+
     private final UserMapper mapper = Mappers.getMapper(UserMapper.class);
     private final RealmMapper realmMapper = Mappers.getMapper(RealmMapper.class);
 
     private final UserManagementApi usersApi;
     private final IdentityManagementApi identityManagementApi;
+    private final ReactiveCache<String, GetUser> userCache;
+    private final SingleFlight<String, Realm> realmSetups = new SingleFlight<>("realm-setup");
+
+    public UserService(UserManagementApi usersApi, IdentityManagementApi identityManagementApi) {
+        this(usersApi, identityManagementApi, null);
+    }
+
+    /**
+     * Create a service that caches Users by external ID. Users created, updated or archived through this service are
+     * dropped from the cache.
+     *
+     * @param usersApi              User Management API
+     * @param identityManagementApi Identity Management API
+     * @param cacheProperties       Cache settings, or {@code null} to look up every time
+     */
+    public UserService(UserManagementApi usersApi, IdentityManagementApi identityManagementApi,
+        LookupCacheProperties cacheProperties) {
+        this.usersApi = usersApi;
+        this.identityManagementApi = identityManagementApi;
+        this.userCache = cacheProperties != null && cacheProperties.isEnabled()
+            ? new ReactiveCache<>("user-by-external-id", cacheProperties.getTtl(), cacheProperties.getMaximumSize())
+            : null;
+    }
 
     /**
      * Get User by external ID.
@@ -53,10 +99,11 @@ public class UserService {
      * @return User if exists. Empty if not.
      */
     public Mono<User> getUserByExternalId(String externalId) {
-        return usersApi.getUserByExternalId(externalId, true)
+        Function<String, Mono<GetUser>> lookup = id -> usersApi.getUserByExternalId(id, true)
             .doOnNext(userItem -> log.info("Found user: {} for externalId: {}", userItem.getFullName(), userItem.getExternalId()))
             .onErrorResume(WebClientResponseException.NotFound.class, notFound ->
-                handleUserNotFound(externalId, notFound.getResponseBodyAsString()))
+                handleUserNotFound(id, notFound.getResponseBodyAsString()));
+        return (userCache != null ? userCache.get(externalId, lookup) : lookup.apply(externalId))
             .map(mapper::toStream);
     }
 
@@ -70,10 +117,150 @@ public class UserService {
         createUser.setLegalEntityExternalId(legalEntityExternalId);
 
         return usersApi.createUser(createUser)
+            .doOnSuccess(userCreated -> invalidate(user.getExternalId()))
             .doOnError(WebClientResponseException.class, e -> handleCreateUserError(user, e))
             .map(userCreated -> handleCreateUserResult(user, userCreated));
     }
 
+    /**
+     * Upsert the users of a legal entity with as few calls to DBS as possible. The existing users of the legal entity
+     * are retrieved page by page and compared locally: users whose full name changed are updated in batches, and
+     * users that do not exist yet are created, with at most {@link #CREATE_CONCURRENCY} calls in flight. Items failing
+     * in a batch update are retried one by one, and users still failing are returned as
+     * {@link UpsertedUser.Outcome#UPDATE_FAILED}. Users that cannot be created because they already exist outside of
+     * the legal entity are looked up by external ID.
+     *
+     * @param users       Users to upsert
+     * @param legalEntity Legal entity the users belong to, with its internal ID set
+     * @return Every upserted user, with its internal ID, once
+     */
+    public Flux<UpsertedUser> upsertUsers(List<User> users, LegalEntity legalEntity) {
+        if (users.isEmpty()) {
+            return Flux.empty();
+        }
+        return getExistingUsers(legalEntity.getInternalId())
+            .flatMapMany(existingUsers -> {
+                List<UpsertedUser> unchanged = new ArrayList<>();
+                List<User> changed = new ArrayList<>();
+                List<User> created = new ArrayList<>();
+                for (User user : users) {
+                    User existingUser = existingUsers.get(user.getExternalId().toLowerCase());
+                    if (existingUser == null) {
+                        created.add(user);
+                    } else if (user.getFullName() != null && !user.getFullName().equals(existingUser.getFullName())) {
+                        existingUser.setFullName(user.getFullName());
+                        changed.add(existingUser);
+                    } else {
+                        unchanged.add(new UpsertedUser(existingUser, UpsertedUser.Outcome.EXISTS));
+                    }
+                }
+                log.info("Upserting users of Legal Entity {}: {} unchanged, {} to update and {} to create",
+                    legalEntity.getExternalId(), unchanged.size(), changed.size(), created.size());
+                return Flux.concat(
+                    Flux.fromIterable(unchanged),
+                    Flux.fromIterable(partition(changed, BATCH_SIZE))
+                        .concatMap(batch -> updateUsers(batch, legalEntity.getInternalId()))
+                        .doOnNext(upserted -> invalidate(upserted.getUser().getExternalId())),
+                    Flux.fromIterable(created)
+                        .flatMap(user -> createUserOrGetExisting(user, legalEntity.getExternalId()),
+                            CREATE_CONCURRENCY));
+            });
+    }
+
+    private Mono<Map<String, User>> getExistingUsers(String legalEntityInternalId) {
+        if (legalEntityInternalId == null) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return Flux.range(0, Integer.MAX_VALUE)
+            .concatMap(page -> getUsersByLegalEntity(legalEntityInternalId, page, PAGE_SIZE)
+                .map(usersList -> usersList.getUsers() != null
+                    ? usersList.getUsers()
+                    : Collections.<GetUser>emptyList())
+                .defaultIfEmpty(Collections.emptyList()), 1)
+            .takeUntil(page -> page.size() < PAGE_SIZE)
+            .<Map<String, User>>reduceWith(HashMap::new, (users, page) -> {
+                page.forEach(user -> users.put(user.getExternalId().toLowerCase(), mapper.toStream(user)));
+                return users;
+            })
+            .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.just(Collections.emptyMap()));
+    }
+
+    private Mono<GetUsersList> getUsersByLegalEntity(String legalEntityInternalId, int from, int size) {
+        log.debug("Retrieving page {} of users for Legal Entity '{}'", from, legalEntityInternalId);
+
+        GetUsersByLegalEntityIdsRequest request = new GetUsersByLegalEntityIdsRequest()
+            .from(from)
+            .size(size);
+        request.addLegalEntityIdsItem(legalEntityInternalId);
+        return usersApi.getUsersByLegalEntityIds(request, true);
+    }
+
+    private Flux<UpsertedUser> updateUsers(List<User> users, String legalEntityInternalId) {
+        List<BatchUser> batchUsers = users.stream()
+            .map(user -> toBatchUser(user, legalEntityInternalId))
+            .collect(Collectors.toList());
+        return usersApi.updateUserInBatch(batchUsers)
+            .filter(item -> !"200".equals(item.getStatus().getValue()))
+            .map(item -> {
+                log.warn("Failed to update user {} in batch: status {}, errors: {}", item.getResourceId(),
+                    item.getStatus(), item.getErrors());
+                return String.valueOf(item.getResourceId()).toLowerCase();
+            })
+            .collect(Collectors.toSet())
+            .onErrorResume(WebClientResponseException.class, e -> {
+                log.warn("Failed to update {} users in batch: {}", users.size(), e.getResponseBodyAsString());
+                return Mono.just(users.stream().map(user -> user.getExternalId().toLowerCase())
+                    .collect(Collectors.toSet()));
+            })
+            .flatMapMany(failed -> Flux.fromIterable(users)
+                .concatMap(user -> failed.contains(user.getExternalId().toLowerCase())
+                    ? updateUser(user, legalEntityInternalId)
+                    : Mono.just(new UpsertedUser(user, UpsertedUser.Outcome.UPDATED))));
+    }
+
+    private Mono<UpsertedUser> updateUser(User user, String legalEntityInternalId) {
+        return usersApi.updateUserInBatch(Collections.singletonList(toBatchUser(user, legalEntityInternalId)))
+            .next()
+            .map(item -> {
+                if ("200".equals(item.getStatus().getValue())) {
+                    return new UpsertedUser(user, UpsertedUser.Outcome.UPDATED);
+                }
+                log.error("Failed to update user {}: status {}, errors: {}", user.getExternalId(), item.getStatus(),
+                    item.getErrors());
+                return new UpsertedUser(user, UpsertedUser.Outcome.UPDATE_FAILED);
+            })
+            .onErrorResume(WebClientResponseException.class, e -> {
+                log.error("Failed to update user {}: {}", user.getExternalId(), e.getResponseBodyAsString());
+                return Mono.empty();
+            })
+            .defaultIfEmpty(new UpsertedUser(user, UpsertedUser.Outcome.UPDATE_FAILED));
+    }
+
+    private BatchUser toBatchUser(User user, String legalEntityInternalId) {
+        return new BatchUser()
+            .externalId(user.getExternalId())
+            .userUpdate(new com.backbase.dbs.user.api.service.v2.model.User()
+                .externalId(user.getExternalId())
+                .legalEntityId(legalEntityInternalId)
+                .fullName(user.getFullName()));
+    }
+
+    private Mono<UpsertedUser> createUserOrGetExisting(User user, String legalEntityExternalId) {
+        return createUser(user, legalEntityExternalId)
+            .map(created -> new UpsertedUser(created, UpsertedUser.Outcome.CREATED))
+            .onErrorResume(WebClientResponseException.class, e -> getUserByExternalId(user.getExternalId())
+                .map(existing -> new UpsertedUser(existing, UpsertedUser.Outcome.EXISTS))
+                .switchIfEmpty(Mono.error(e)));
+    }
+
+    private static <T> List<List<T>> partition(List<T> items, int size) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            partitions.add(items.subList(i, Math.min(i + size, items.size())));
+        }
+        return partitions;
+    }
+
     /**
      * Get users for specified legal entity.
      *
@@ -121,6 +308,7 @@ public class UserService {
                 return r;
             })
             .collectList()
+            .doFinally(signalType -> userExternalIds.forEach(this::invalidate))
             .onErrorResume(WebClientResponseException.class, e -> {
                 log.error("Failed to delete user: {}", e.getResponseBodyAsString(), e);
                 return Mono.error(e);
@@ -160,7 +348,7 @@ public class UserService {
     }
 
     /**
-     * Setup realm checks if realm exists otherwise creates
+     * Setup realm checks if realm exists otherwise creates. Concurrent setups of the same realm share one lookup.
      *
      * @param legalEntity
      * @return
@@ -169,10 +357,11 @@ public class UserService {
         if (StringUtils.isEmpty(legalEntity.getRealmName())) {
             return Mono.empty();
         }
-        Mono<Realm> existingRealm = existingRealm(legalEntity.getRealmName());
-        Mono<Realm> createNewRealm = createRealm(legalEntity.getRealmName());
-        return existingRealm.switchIfEmpty(createNewRealm)
-            .map(actual -> actual);
+        return realmSetups.execute(legalEntity.getRealmName(), () -> {
+            Mono<Realm> existingRealm = existingRealm(legalEntity.getRealmName());
+            Mono<Realm> createNewRealm = createRealm(legalEntity.getRealmName());
+            return existingRealm.switchIfEmpty(createNewRealm);
+        });
 
     }
 
@@ -219,6 +408,7 @@ public class UserService {
         }
 
         return identityManagementApi.createIdentity(createIdentityRequest)
+            .doOnSuccess(identityCreatedItem -> invalidate(createIdentityRequest.getExternalId()))
             .map(identityCreatedItem -> {
                 user.setInternalId(identityCreatedItem.getInternalId());
                 user.setExternalId(identityCreatedItem.getExternalId());
@@ -242,11 +432,18 @@ public class UserService {
         UpdateIdentityRequest replaceIdentity = new UpdateIdentityRequest();
         replaceIdentity.attributes(user.getAttributes());
         return identityManagementApi.updateIdentity(user.getInternalId(), replaceIdentity)
+            .doFinally(signalType -> invalidate(user.getExternalId()))
             .doOnError(WebClientResponseException.BadRequest.class, badRequest ->
                 log.error("Error adding user attributes: {}", badRequest.getResponseBodyAsString()))
             .then(Mono.just(user));
     }
 
+    private void invalidate(String externalId) {
+        if (userCache != null) {
+            userCache.invalidate(externalId);
+        }
+    }
+
     private User handleCreateUserResult(User user, UserCreated userCreated) {
         log.info("Created user: {} with internalId: {}", user.getFullName(), userCreated.getId());
         user.setInternalId(userCreated.getId());
@@ -256,4 +453,22 @@ public class UserService {
     private void handleCreateUserError(User user, WebClientResponseException response) {
         log.error("Created user: {} with internalId: {}", user, response.getResponseBodyAsString());
     }
+
+    /**
+     * User returned by {@link #upsertUsers(List, LegalEntity)}, with what was done to it.
+     */
+    @Value
+    public static class UpsertedUser {
+
+        public enum Outcome {
+            EXISTS, UPDATED, CREATED,
+            /**
+             * The user exists, but could not be updated, also when retried on its own.
+             */
+            UPDATE_FAILED
+        }
+
+        User user;
+        Outcome outcome;
+    }
 }
@@ -0,0 +1,279 @@
+package com.backbase.stream.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.backbase.dbs.user.api.service.v2.IdentityManagementApi;
+import com.backbase.dbs.user.api.service.v2.UserManagementApi;
+import com.backbase.dbs.user.api.service.v2.model.BatchResponseItem;
+import com.backbase.dbs.user.api.service.v2.model.BatchUser;
+import com.backbase.dbs.user.api.service.v2.model.GetUser;
+import com.backbase.dbs.user.api.service.v2.model.GetUsersByLegalEntityIdsRequest;
+import com.backbase.dbs.user.api.service.v2.model.GetUsersList;
+import com.backbase.dbs.user.api.service.v2.model.UserCreated;
+import com.backbase.dbs.user.api.service.v2.model.UserExternal;
+import com.backbase.stream.legalentity.model.LegalEntity;
+import com.backbase.stream.legalentity.model.User;
+import com.backbase.stream.service.UserService.UpsertedUser;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class UserServiceBatchUpsertTest {
+
+    private static final int USERS = 200;
+    private static final Duration LATENCY = Duration.ofMillis(5);
+
+    private final Map<String, GetUser> legalEntityUsers = new ConcurrentSkipListMap<>();
+    private final Map<String, GetUser> otherUsers = new ConcurrentHashMap<>();
+    private final Set<String> failingUpdates = ConcurrentHashMap.newKeySet();
+    private final Set<String> failingBatchUpdates = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private UserManagementApi usersApi;
+    private UserService userService;
+    private LegalEntity legalEntity;
+
+    @Before
+    public void setUp() {
+        usersApi = mock(UserManagementApi.class);
+        when(usersApi.getUserByExternalId(anyString(), anyBoolean())).thenAnswer(invocation -> dbs(() -> {
+            String externalId = invocation.getArgument(0);
+            GetUser user = legalEntityUsers.containsKey(externalId)
+                ? legalEntityUsers.get(externalId)
+                : otherUsers.get(externalId);
+            if (user == null) {
+                throw WebClientResponseException.create(404, "Not Found", null, null, null);
+            }
+            return user;
+        }));
+        when(usersApi.getUsersByLegalEntityIds(any(), anyBoolean())).thenAnswer(invocation -> dbs(() -> {
+            GetUsersByLegalEntityIdsRequest request = invocation.getArgument(0);
+            return new GetUsersList().users(legalEntityUsers.values().stream()
+                .skip((long) request.getFrom() * request.getSize())
+                .limit(request.getSize())
+                .collect(Collectors.toList()));
+        }));
+        when(usersApi.updateUserInBatch(any())).thenAnswer(invocation -> {
+            List<BatchUser> batch = invocation.getArgument(0);
+            return dbs(() -> batch.stream()
+                .map(batchUser -> new BatchResponseItem()
+                    .resourceId(batchUser.getExternalId())
+                    .status(BatchResponseItem.StatusEnum.fromValue(
+                        failingUpdates.contains(batchUser.getExternalId())
+                            || batch.size() > 1 && failingBatchUpdates.contains(batchUser.getExternalId())
+                            ? "400" : "200")))
+                .collect(Collectors.toList()))
+                .flatMapIterable(items -> items);
+        });
+        when(usersApi.createUser(any())).thenAnswer(invocation -> dbs(() -> {
+            UserExternal user = invocation.getArgument(0);
+            if (legalEntityUsers.containsKey(user.getExternalId()) || otherUsers.containsKey(user.getExternalId())) {
+                throw WebClientResponseException.create(409, "Conflict", null, null, null);
+            }
+            GetUser created = dbsUser(user.getExternalId());
+            legalEntityUsers.put(created.getExternalId(), created);
+            return new UserCreated().id(created.getId());
+        }));
+        userService = new UserService(usersApi, mock(IdentityManagementApi.class));
+
+        legalEntity = new LegalEntity();
+        legalEntity.setExternalId("le-1");
+        legalEntity.setInternalId("le-internal-1");
+    }
+
+    @Test
+    public void batchUpsertNeedsFewerCallsThanUpsertingOneByOne() {
+        List<User> users = users();
+
+        seedExistingUsers(users);
+        List<User> oneByOne = Flux.fromIterable(users)
+            .flatMap(user -> userService.getUserByExternalId(user.getExternalId())
+                .switchIfEmpty(userService.createUser(user, legalEntity.getExternalId())), 10)
+            .collectList()
+            .block();
+        int oneByOneCalls = calls.getAndSet(0);
+
+        seedExistingUsers(users);
+        List<UpsertedUser> batched = userService.upsertUsers(users, legalEntity).collectList().block();
+        int batchedCalls = calls.get();
+
+        assertEquals(USERS, oneByOne.size());
+        assertEquals(USERS, batched.size());
+        assertEquals(USERS + USERS / 2, oneByOneCalls);
+        // Two pages of existing users, the second one empty, and one create per new user
+        assertEquals(2 + USERS / 2, batchedCalls);
+
+        Map<UpsertedUser.Outcome, Long> outcomes = batched.stream()
+            .collect(Collectors.groupingBy(UpsertedUser::getOutcome, Collectors.counting()));
+        assertEquals(Long.valueOf(USERS / 2), outcomes.get(UpsertedUser.Outcome.EXISTS));
+        assertEquals(Long.valueOf(USERS / 2), outcomes.get(UpsertedUser.Outcome.CREATED));
+        assertTrue(batched.stream().allMatch(upserted -> upserted.getUser().getInternalId() != null));
+    }
+
+    @Test
+    public void looksUpUsersThatFailToCreate() {
+        GetUser elsewhere = dbsUser("user-elsewhere");
+        otherUsers.put(elsewhere.getExternalId(), elsewhere);
+
+        List<UpsertedUser> upserted = userService.upsertUsers(
+            Collections.singletonList(user("user-elsewhere")), legalEntity).collectList().block();
+
+        assertEquals(1, upserted.size());
+        assertEquals(UpsertedUser.Outcome.EXISTS, upserted.get(0).getOutcome());
+        assertEquals(elsewhere.getId(), upserted.get(0).getUser().getInternalId());
+        verify(usersApi, times(1)).getUserByExternalId("user-elsewhere", true);
+        verify(usersApi, never()).updateUserInBatch(any());
+    }
+
+    @Test
+    public void pagesThroughExistingUsers() {
+        List<User> users = users();
+        users.forEach(user -> legalEntityUsers.put(user.getExternalId(), dbsUser(user.getExternalId())));
+        ArgumentCaptor<GetUsersByLegalEntityIdsRequest> requests =
+            ArgumentCaptor.forClass(GetUsersByLegalEntityIdsRequest.class);
+        legalEntityUsers.remove("user-0");
+
+        List<UpsertedUser> upserted = userService.upsertUsers(users, legalEntity).collectList().block();
+
+        verify(usersApi, times(2)).getUsersByLegalEntityIds(requests.capture(), anyBoolean());
+        assertEquals(Arrays.asList(0, 1), requests.getAllValues().stream()
+            .map(GetUsersByLegalEntityIdsRequest::getFrom)
+            .collect(Collectors.toList()));
+        assertEquals(USERS, upserted.size());
+        assertEquals(USERS - 1, upserted.stream()
+            .filter(user -> user.getOutcome() == UpsertedUser.Outcome.EXISTS)
+            .count());
+        verify(usersApi, times(1)).createUser(any());
+    }
+
+    @Test
+    public void updatesChangedUsersInBatches() {
+        List<User> users = users();
+        users.forEach(user -> legalEntityUsers.put(user.getExternalId(), dbsUser(user.getExternalId())));
+        users.forEach(user -> user.setFullName("New Name " + user.getExternalId()));
+
+        List<UpsertedUser> upserted = userService.upsertUsers(users, legalEntity).collectList().block();
+
+        assertEquals(USERS, upserted.size());
+        assertTrue(upserted.stream().allMatch(user -> user.getOutcome() == UpsertedUser.Outcome.UPDATED
+            && user.getUser().getFullName().startsWith("New Name")));
+        verify(usersApi, times(USERS / 100)).updateUserInBatch(any());
+        verify(usersApi, never()).createUser(any());
+    }
+
+    @Test
+    public void retriesFailedBatchItemsOneByOne() {
+        List<User> users = users().subList(0, 3);
+        users.forEach(user -> legalEntityUsers.put(user.getExternalId(), dbsUser(user.getExternalId())));
+        users.forEach(user -> user.setFullName("New Name " + user.getExternalId()));
+        failingBatchUpdates.add("user-1");
+
+        List<UpsertedUser> upserted = userService.upsertUsers(users, legalEntity).collectList().block();
+
+        assertTrue(upserted.stream().allMatch(user -> user.getOutcome() == UpsertedUser.Outcome.UPDATED));
+        verify(usersApi, times(2)).updateUserInBatch(any());
+    }
+
+    @Test
+    public void reportsUsersFailingToUpdateOnTheirOwn() {
+        List<User> users = users().subList(0, 3);
+        users.forEach(user -> legalEntityUsers.put(user.getExternalId(), dbsUser(user.getExternalId())));
+        users.forEach(user -> user.setFullName("New Name " + user.getExternalId()));
+        failingUpdates.add("user-1");
+
+        Map<String, UpsertedUser.Outcome> outcomes = userService.upsertUsers(users, legalEntity)
+            .collectMap(user -> user.getUser().getExternalId(), UpsertedUser::getOutcome)
+            .block();
+
+        assertEquals(UpsertedUser.Outcome.UPDATED, outcomes.get("user-0"));
+        assertEquals(UpsertedUser.Outcome.UPDATE_FAILED, outcomes.get("user-1"));
+        assertEquals(UpsertedUser.Outcome.UPDATED, outcomes.get("user-2"));
+        verify(usersApi, times(2)).updateUserInBatch(any());
+    }
+
+    @Test
+    public void retriesEveryUserWhenTheBatchCallFails() {
+        List<User> users = users().subList(0, 3);
+        users.forEach(user -> legalEntityUsers.put(user.getExternalId(), dbsUser(user.getExternalId())));
+        users.forEach(user -> user.setFullName("New Name " + user.getExternalId()));
+        AtomicInteger batchCalls = new AtomicInteger();
+        when(usersApi.updateUserInBatch(any())).thenAnswer(invocation -> {
+            List<BatchUser> batch = invocation.getArgument(0);
+            if (batchCalls.incrementAndGet() == 1) {
+                return Flux.error(WebClientResponseException.create(500, "Internal Server Error", null, null, null));
+            }
+            return Flux.just(new BatchResponseItem()
+                .resourceId(batch.get(0).getExternalId())
+                .status(BatchResponseItem.StatusEnum.fromValue("200")));
+        });
+
+        List<UpsertedUser> upserted = userService.upsertUsers(users, legalEntity).collectList().block();
+
+        assertEquals(3, upserted.size());
+        assertTrue(upserted.stream().allMatch(user -> user.getOutcome() == UpsertedUser.Outcome.UPDATED));
+        verify(usersApi, times(1 + users.size())).updateUserInBatch(any());
+    }
+
+    private void seedExistingUsers(List<User> users) {
+        legalEntityUsers.clear();
+        for (int i = 0; i < users.size(); i += 2) {
+            GetUser existing = dbsUser(users.get(i).getExternalId());
+            legalEntityUsers.put(existing.getExternalId(), existing);
+        }
+        calls.set(0);
+    }
+
+    private <T> Mono<T> dbs(Callable<T> call) {
+        return Mono.delay(LATENCY)
+            .doOnSubscribe(subscription -> calls.incrementAndGet())
+            .then(Mono.fromCallable(call));
+    }
+
+    private static List<User> users() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(user("user-" + i));
+        }
+        return users;
+    }
+
+    private static User user(String externalId) {
+        User user = new User();
+        user.setExternalId(externalId);
+        user.setFullName("Full Name " + externalId);
+        return user;
+    }
+
+    private static GetUser dbsUser(String externalId) {
+        return new GetUser()
+            .id(UUID.randomUUID().toString())
+            .externalId(externalId)
+            .fullName("Full Name " + externalId);
+    }
+
+}
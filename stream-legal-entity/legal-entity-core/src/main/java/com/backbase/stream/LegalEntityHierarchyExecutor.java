@@ -0,0 +1,134 @@
+package com.backbase.stream;
+
+import com.backbase.stream.legalentity.model.LegalEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ingests a Legal Entity hierarchy breadth first: the root, then all its subsidiaries, then all their subsidiaries,
+ * and so on. A level starts when the previous level completed, so parents always exist before their subsidiaries.
+ * At most {@code concurrency} Legal Entities are ingested at the same time, whatever the size of a level.
+ *
+ * <p>The external ids of ingested Legal Entities are recorded in the root task. When the task is retried after a
+ * failure, those Legal Entities are skipped, so completed subtrees are walked without calling DBS again.</p>
+ *
+ * <p>Reported meters, tagged with the {@code level}: counter {@code stream.legal-entity.hierarchy.entities} tagged
+ * with the {@code outcome} ({@code completed}, {@code skipped} or {@code failed}) and timer
+ * {@code stream.legal-entity.hierarchy.level}.</p>
+ */
+@Slf4j
+public class LegalEntityHierarchyExecutor {
+
+    private final int concurrency;
+    private final Map<Integer, LevelMeters> levelMeters = new ConcurrentHashMap<>();
+
+    public LegalEntityHierarchyExecutor(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Ingest the hierarchy of the given task.
+     *
+     * @param root                Task of the root Legal Entity, collecting the history of all subsidiaries
+     * @param legalEntityExecutor Ingests a single Legal Entity, without its subsidiaries
+     * @return The root task once the whole hierarchy is ingested
+     */
+    public Mono<LegalEntityTask> execute(LegalEntityTask root,
+        Function<LegalEntityTask, Mono<LegalEntityTask>> legalEntityExecutor) {
+        return executeLevel(root, Collections.singletonList(root), 0, legalEntityExecutor).thenReturn(root);
+    }
+
+    private Mono<Void> executeLevel(LegalEntityTask root, List<LegalEntityTask> level, int depth,
+        Function<LegalEntityTask, Mono<LegalEntityTask>> legalEntityExecutor) {
+        if (level.isEmpty()) {
+            return Mono.empty();
+        }
+        LevelMeters meters = levelMeters.computeIfAbsent(depth, LevelMeters::new);
+        long start = System.nanoTime();
+        return Flux.fromIterable(level)
+            .flatMap(task -> executeLegalEntity(root, task, meters, legalEntityExecutor), concurrency)
+            .collectList()
+            .flatMap(completed -> {
+                long duration = System.nanoTime() - start;
+                meters.duration.record(duration, TimeUnit.NANOSECONDS);
+                log.info("Ingested level {} of Legal Entity hierarchy {}: {} Legal Entities in {} ms", depth,
+                    root.getData().getExternalId(), completed.size(), TimeUnit.NANOSECONDS.toMillis(duration));
+                return executeLevel(root, subsidiaries(completed), depth + 1, legalEntityExecutor);
+            });
+    }
+
+    private Mono<LegalEntityTask> executeLegalEntity(LegalEntityTask root, LegalEntityTask task, LevelMeters meters,
+        Function<LegalEntityTask, Mono<LegalEntityTask>> legalEntityExecutor) {
+        String externalId = task.getData().getExternalId();
+        if (root.getCompletedLegalEntities().contains(externalId)) {
+            meters.skipped.increment();
+            log.debug("Skipping Legal Entity {} ingested by a previous attempt", externalId);
+            return Mono.just(task);
+        }
+        return legalEntityExecutor.apply(task)
+            .doOnSuccess(completed -> {
+                root.getCompletedLegalEntities().add(externalId);
+                meters.completed.increment();
+                if (task != root) {
+                    root.addHistory(task.getHistory());
+                }
+            })
+            .doOnError(throwable -> {
+                meters.failed.increment();
+                if (task != root) {
+                    root.addHistory(task.getHistory());
+                }
+            })
+            .thenReturn(task);
+    }
+
+    private static List<LegalEntityTask> subsidiaries(List<LegalEntityTask> parents) {
+        List<LegalEntityTask> subsidiaries = new ArrayList<>();
+        for (LegalEntityTask parent : parents) {
+            LegalEntity parentLegalEntity = parent.getData();
+            if (parentLegalEntity.getSubsidiaries() != null) {
+                for (LegalEntity subsidiary : parentLegalEntity.getSubsidiaries()) {
+                    subsidiary.setParentExternalId(parentLegalEntity.getExternalId());
+                    subsidiaries.add(new LegalEntityTask(subsidiary));
+                }
+            }
+        }
+        return subsidiaries;
+    }
+
+    /**
+     * Meters of a level, registered once and shared by all hierarchies ingested by this executor.
+     */
+    private static class LevelMeters {
+
+        private final Timer duration;
+        private final Counter completed;
+        private final Counter skipped;
+        private final Counter failed;
+
+        private LevelMeters(int depth) {
+            String level = String.valueOf(depth);
+            this.duration = Timer.builder("stream.legal-entity.hierarchy.level").tag("level", level)
+                .register(Metrics.globalRegistry);
+            this.completed = counter(level, "completed");
+            this.skipped = counter(level, "skipped");
+            this.failed = counter(level, "failed");
+        }
+
+        private static Counter counter(String level, String outcome) {
+            return Counter.builder("stream.legal-entity.hierarchy.entities").tag("level", level)
+                .tag("outcome", outcome).register(Metrics.globalRegistry);
+        }
+    }
+}
@@ -35,6 +35,7 @@ import com.backbase.stream.service.UserService;
 import com.backbase.stream.worker.StreamTaskExecutor;
 import com.backbase.stream.worker.exception.StreamTaskException;
 import com.backbase.stream.worker.model.StreamTask;
+import com.backbase.stream.worker.stage.StageGraph;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -75,11 +76,16 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
     public static final String FAILED = "failed";
     public static final String EXISTS = "exists";
     public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
     public static final String PROCESS_PRODUCTS = "process-products";
     public static final String PROCESS_JOB_PROFILES = "process-job-profiles";
     public static final String REJECTED = "rejected";
     public static final String UPSERT = "upsert";
     public static final String SETUP_SERVICE_AGREEMENT = "setup-service-agreement";
+    public static final String SETUP_ADMINISTRATORS = "setup-administrators";
+    public static final String SETUP_USERS = "setup-users";
+    public static final String CREATE_JOB_ROLES = "create-job-roles";
+    public static final String SETUP_ADMINISTRATOR_PERMISSIONS = "setup-administrator-permissions";
     private static final String BATCH_PRODUCT_GROUP_ID = "batch_product_group_task-";
 
     private final BusinessFunctionGroupMapper businessFunctionGroupMapper = Mappers.getMapper(BusinessFunctionGroupMapper.class);
@@ -93,6 +99,19 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
 
     private final LegalEntitySagaConfigurationProperties legalEntitySagaConfigurationProperties;
 
+    private final StageGraph<LegalEntityTask> stages = StageGraph.<LegalEntityTask>builder("legal-entity-saga")
+        .stage(UPSERT_LEGAL_ENTITY, this::upsertLegalEntity)
+        .stage(SETUP_ADMINISTRATORS, this::setupAdministrators, UPSERT_LEGAL_ENTITY)
+        .stage(SETUP_USERS, this::setupUsers, SETUP_ADMINISTRATORS)
+        .stage(SETUP_SERVICE_AGREEMENT, this::setupServiceAgreement, SETUP_ADMINISTRATORS)
+        .stage(CREATE_JOB_ROLES, this::createJobRoles, SETUP_SERVICE_AGREEMENT)
+        .stage(PROCESS_JOB_PROFILES, this::processJobProfiles, CREATE_JOB_ROLES, SETUP_USERS)
+        .stage(SETUP_ADMINISTRATOR_PERMISSIONS, this::setupAdministratorPermissions, PROCESS_JOB_PROFILES)
+        .stage(PROCESS_PRODUCTS, this::processProducts, SETUP_ADMINISTRATOR_PERMISSIONS)
+        .build();
+
+    private final LegalEntityHierarchyExecutor hierarchyExecutor;
+
     public LegalEntitySaga(LegalEntityService legalEntityService,
                            UserService userService,
                            UserProfileService userProfileService,
@@ -105,19 +124,24 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
         this.accessGroupService = accessGroupService;
         this.batchProductIngestionSaga = batchProductIngestionSaga;
         this.legalEntitySagaConfigurationProperties = legalEntitySagaConfigurationProperties;
+        this.hierarchyExecutor = new LegalEntityHierarchyExecutor(
+            legalEntitySagaConfigurationProperties.getSubsidiaryConcurrency());
     }
 
+    /**
+     * Ingests the Legal Entity and its subsidiaries level by level, see {@link LegalEntityHierarchyExecutor}. For each
+     * Legal Entity the saga stages run as soon as the stages they depend on completed: once the Legal Entity exists,
+     * its administrators are set up, then its users, so a person who is both is upserted once. The users are upserted
+     * while the service agreement and job roles are created. Permissions and products follow the job profiles, as they
+     * assign permissions to the same users.
+     */
     @Override
     public Mono<LegalEntityTask> executeTask(@SpanTag(value = "streamTask") LegalEntityTask streamTask) {
-        return upsertLegalEntity(streamTask)
-            .flatMap(this::setupAdministrators)
-            .flatMap(this::setupUsers)
-            .flatMap(this::setupServiceAgreement)
-            .flatMap(this::createJobRoles)
-            .flatMap(this::processJobProfiles)
-            .flatMap(this::setupAdministratorPermissions)
-            .flatMap(this::processProducts)
-            .flatMap(this::processSubsidiaries);
+        return hierarchyExecutor.execute(streamTask, stages::execute);
+    }
+
+    StageGraph<LegalEntityTask> getStages() {
+        return stages;
     }
 
     @Override
@@ -358,11 +382,11 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
 
     private Mono<LegalEntityTask> setupAdministrators(LegalEntityTask streamTask) {
         LegalEntity legalEntity = streamTask.getData();
-        Flux<User> administrators = legalEntity.getAdministrators() == null
-            ? Flux.empty()
-            : Flux.fromIterable(legalEntity.getAdministrators());
+        List<User> administrators = legalEntity.getAdministrators() == null
+            ? Collections.emptyList()
+            : legalEntity.getAdministrators();
 
-        return administrators.flatMap(user -> upsertUser(streamTask, user))
+        return upsertUsers(streamTask, administrators)
             .collectList()
             .map(legalEntity::administrators)
             .map(streamTask::data);
@@ -370,23 +394,25 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
 
     private Mono<LegalEntityTask> setupUsers(LegalEntityTask streamTask) {
         LegalEntity legalEntity = streamTask.getData();
-        Flux<JobProfileUser> jobProfileUsers = legalEntity.getUsers() == null
-            ? Flux.empty()
-            : Flux.fromIterable(legalEntity.getUsers());
-
-        return jobProfileUsers
-            .flatMap(jobProfileUser -> upsertUser(streamTask, jobProfileUser.getUser())
-                .map(upsertedUser -> {
-                    User inputUser = legalEntity.getUsers().stream()
-                        .filter(jpu -> jpu.getUser().getExternalId().equalsIgnoreCase(
-                            upsertedUser.getExternalId()))
-                        .findFirst().get().getUser();
-                    inputUser.setInternalId(upsertedUser.getInternalId());
-                    upsertUserProfile(inputUser).subscribe(upsertedUser::setUserProfile);
-                    jobProfileUser.setUser(upsertedUser);
-                    log.trace("upsert user {}", jobProfileUser);
-                    return jobProfileUser;
-                }))
+        List<JobProfileUser> jobProfileUsers = legalEntity.getUsers() == null
+            ? Collections.emptyList()
+            : legalEntity.getUsers();
+        List<User> users = jobProfileUsers.stream()
+            .map(JobProfileUser::getUser)
+            .collect(Collectors.toList());
+
+        return upsertUsers(streamTask, users)
+            .map(upsertedUser -> {
+                JobProfileUser jobProfileUser = jobProfileUsers.stream()
+                    .filter(jpu -> jpu.getUser().getExternalId().equalsIgnoreCase(upsertedUser.getExternalId()))
+                    .findFirst().get();
+                User inputUser = jobProfileUser.getUser();
+                inputUser.setInternalId(upsertedUser.getInternalId());
+                upsertUserProfile(inputUser).subscribe(upsertedUser::setUserProfile);
+                jobProfileUser.setUser(upsertedUser);
+                log.trace("upsert user {}", jobProfileUser);
+                return jobProfileUser;
+            })
             .collectList()
             .map(legalEntity::users)
             .map(streamTask::data);
@@ -470,9 +496,52 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
         return user;
     }
 
+    /**
+     * Upsert the users of the legal entity in bulk. Users linked to Identity are still upserted one by one.
+     */
+    private Flux<User> upsertUsers(LegalEntityTask streamTask, List<User> users) {
+        LegalEntity legalEntity = streamTask.getData();
+        Map<Boolean, List<User>> usersByIdentity = users.stream()
+            .collect(Collectors.partitioningBy(this::isIdentityUser));
+        List<User> identityAgnosticUsers = usersByIdentity.get(false);
+        if (!identityAgnosticUsers.isEmpty()) {
+            streamTask.info(USER, UPSERT, "", legalEntity.getExternalId(), legalEntity.getInternalId(),
+                "Upsert %s Users of Legal Entity: %s", identityAgnosticUsers.size(), legalEntity.getExternalId());
+        }
+        Flux<User> identityAgnostic = userService.upsertUsers(identityAgnosticUsers, legalEntity)
+            .map(upsertedUser -> {
+                User user = upsertedUser.getUser();
+                switch (upsertedUser.getOutcome()) {
+                    case CREATED:
+                        streamTask.info(USER, UPSERT, CREATED, user.getExternalId(), user.getInternalId(),
+                            "User %s created", user.getExternalId());
+                        break;
+                    case UPDATED:
+                        streamTask.info(USER, UPSERT, UPDATED, user.getExternalId(), user.getInternalId(),
+                            "User %s updated", user.getExternalId());
+                        break;
+                    case UPDATE_FAILED:
+                        streamTask.error(USER, UPSERT, FAILED, user.getExternalId(), user.getInternalId(),
+                            "User %s exists but could not be updated", user.getExternalId());
+                        break;
+                    default:
+                        streamTask.info(USER, UPSERT, EXISTS, user.getExternalId(), user.getInternalId(),
+                            "User %s already exists", user.getExternalId());
+                }
+                return user;
+            });
+        Flux<User> identity = Flux.fromIterable(usersByIdentity.get(true))
+            .flatMap(user -> upsertIdentityUser(streamTask, user));
+        return Flux.merge(identityAgnostic, identity);
+    }
+
+    private boolean isIdentityUser(User user) {
+        return legalEntitySagaConfigurationProperties.isUseIdentityIntegration()
+            && !IdentityUserLinkStrategy.IDENTITY_AGNOSTIC.equals(user.getIdentityLinkStrategy());
+    }
+
     public Mono<User> upsertUser(LegalEntityTask streamTask, User user) {
-        if (legalEntitySagaConfigurationProperties.isUseIdentityIntegration()
-            && !IdentityUserLinkStrategy.IDENTITY_AGNOSTIC.equals(user.getIdentityLinkStrategy())) {
+        if (isIdentityUser(user)) {
             return upsertIdentityUser(streamTask, user);
         } else {
             log.debug("Fallback to Identity Agnostic identityLinkStrategy. Either identity integration is disabled or User identityLinkStrategy is not set to identity.");
@@ -565,33 +634,4 @@ public class LegalEntitySaga implements StreamTaskExecutor<LegalEntityTask> {
 
         return serviceAgreement;
     }
-
-
-    private Mono<LegalEntityTask> processSubsidiaries(LegalEntityTask streamTask) {
-
-        LegalEntity parentLegalEntity = streamTask.getData();
-
-        Flux<LegalEntity> subsidiaries = parentLegalEntity.getSubsidiaries() == null
-            ? Flux.empty()
-            : Flux.fromIterable(parentLegalEntity.getSubsidiaries());
-
-        Flux<LegalEntityTask> subsidiariesWithParentId = setSubsidiaryParentLegalEntityId(parentLegalEntity,
-            subsidiaries).map(LegalEntityTask::new);
-        return subsidiariesWithParentId
-            .flatMap(this::executeTask)
-            .map(childTask -> streamTask.addHistory(childTask.getHistory()))
-            .collectList()
-            .zipWith(Mono.just(streamTask), (legalEntityResults, childStreamTask) -> {
-                // Do Something With The Children
-                return streamTask;
-            });
-    }
-
-    private Flux<LegalEntity> setSubsidiaryParentLegalEntityId(LegalEntity parentLegalEntity,
-                                                               Flux<LegalEntity> subsidiaries) {
-        return subsidiaries.map(subsidiary -> {
-            subsidiary.setParentExternalId(parentLegalEntity.getExternalId());
-            return subsidiary;
-        });
-    }
 }
@@ -2,6 +2,9 @@ package com.backbase.stream;
 
 import com.backbase.stream.legalentity.model.LegalEntity;
 import com.backbase.stream.worker.model.StreamTask;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
@@ -13,12 +16,18 @@ public class LegalEntityTask extends StreamTask {
 
     private LegalEntity legalEntity;
 
+    /**
+     * External ids of the Legal Entities in this hierarchy that were ingested, skipped when the task is retried.
+     */
+    private Set<String> completedLegalEntities = ConcurrentHashMap.newKeySet();
+
     public LegalEntityTask(LegalEntity data) {
         super(data.getExternalId());
         this.legalEntity = data;
 
     }
 
+    @JsonIgnore
     public LegalEntity getData() {
         return legalEntity;
     }
@@ -28,6 +37,13 @@ public class LegalEntityTask extends StreamTask {
         return this;
     }
 
+    public void setCompletedLegalEntities(Set<String> completedLegalEntities) {
+        this.completedLegalEntities = ConcurrentHashMap.newKeySet();
+        if (completedLegalEntities != null) {
+            this.completedLegalEntities.addAll(completedLegalEntities);
+        }
+    }
+
     @Override
     public String getName() {
         return legalEntity.getExternalId();
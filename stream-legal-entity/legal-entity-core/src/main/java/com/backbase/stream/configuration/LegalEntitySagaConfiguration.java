@@ -13,12 +13,20 @@ import com.backbase.stream.service.LegalEntityService;
 import com.backbase.stream.service.UserProfileService;
 import com.backbase.stream.service.UserService;
 import com.backbase.stream.worker.repository.impl.InMemoryReactiveUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.IndexedInMemoryReactiveUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.R2dbcUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.R2dbcUnitOfWorkRepository.Dialect;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.core.DatabaseClient;
 
 @Configuration
 @Import({
@@ -56,6 +64,13 @@ public class LegalEntitySagaConfiguration {
         return new LegalEntityInMemoryUnitOfWorkRepository();
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "backbase.stream.persistence", havingValue = "indexed-memory")
+    public LegalEntityUnitOfWorkRepository legalEntityIndexedInMemoryUnitOfWorkRepository(
+        LegalEntitySagaConfigurationProperties configProperties) {
+        return new LegalEntityIndexedInMemoryUnitOfWorkRepository(configProperties.getTerminalUnitRetention());
+    }
+
     @Bean
     public LegalEntityUnitOfWorkExecutor legalEntityUnitOfWorkExecutor(
         LegalEntityUnitOfWorkRepository legalEntityUnitOfWorkRepository,
@@ -70,4 +85,41 @@ public class LegalEntitySagaConfiguration {
 
     }
 
+    public static class LegalEntityIndexedInMemoryUnitOfWorkRepository extends
+        IndexedInMemoryReactiveUnitOfWorkRepository<LegalEntityTask> implements LegalEntityUnitOfWorkRepository {
+
+        public LegalEntityIndexedInMemoryUnitOfWorkRepository(Duration terminalUnitRetention) {
+            super(terminalUnitRetention);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.data.r2dbc.core.DatabaseClient")
+    @ConditionalOnProperty(name = "backbase.stream.persistence", havingValue = "r2dbc")
+    public static class R2dbcPersistenceConfiguration {
+
+        @Bean
+        public LegalEntityR2dbcUnitOfWorkRepository legalEntityR2dbcUnitOfWorkRepository(
+            DatabaseClient databaseClient, ConnectionFactory connectionFactory, ObjectMapper objectMapper) {
+            return new LegalEntityR2dbcUnitOfWorkRepository(databaseClient, objectMapper,
+                Dialect.of(connectionFactory));
+        }
+
+        @Bean
+        public ApplicationRunner legalEntityUnitOfWorkSchemaInitializer(
+            LegalEntityR2dbcUnitOfWorkRepository repository) {
+            return args -> repository.initializeSchema().block();
+        }
+    }
+
+    public static class LegalEntityR2dbcUnitOfWorkRepository extends
+        R2dbcUnitOfWorkRepository<LegalEntityTask> implements LegalEntityUnitOfWorkRepository {
+
+        public LegalEntityR2dbcUnitOfWorkRepository(DatabaseClient databaseClient, ObjectMapper objectMapper,
+            Dialect dialect) {
+            super(databaseClient, objectMapper, LegalEntityTask.class, "legal_entity_unit_of_work",
+                DEFAULT_BATCH_SIZE, dialect);
+        }
+    }
+
 }
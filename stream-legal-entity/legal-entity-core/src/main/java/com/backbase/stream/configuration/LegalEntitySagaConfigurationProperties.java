@@ -20,4 +20,9 @@ public class LegalEntitySagaConfigurationProperties extends StreamWorkerConfigur
      */
     private boolean userProfileEnabled = false;
 
+    /**
+     * Maximum number of Legal Entities of one hierarchy ingested at the same time
+     */
+    private int subsidiaryConcurrency = 8;
+
 }
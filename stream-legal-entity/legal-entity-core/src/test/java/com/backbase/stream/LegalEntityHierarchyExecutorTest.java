@@ -0,0 +1,117 @@
+package com.backbase.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.legalentity.model.LegalEntity;
+import com.backbase.stream.worker.model.TaskHistory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class LegalEntityHierarchyExecutorTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void ingestsParentsBeforeSubsidiariesLevelByLevel() {
+        LegalEntity slow = legalEntity("slow", legalEntity("slow-child"));
+        LegalEntity fast = legalEntity("fast", legalEntity("fast-child"));
+        LegalEntityTask root = new LegalEntityTask(legalEntity("root", slow, fast));
+
+        StepVerifier.create(new LegalEntityHierarchyExecutor(8).execute(root, task -> ingest(task,
+            "slow".equals(task.getData().getExternalId()) ? 100 : 0)))
+            .expectNext(root)
+            .verifyComplete();
+
+        assertTrue(events.indexOf("end root") < events.indexOf("start slow"));
+        assertTrue(events.indexOf("end slow") < events.indexOf("start fast-child"));
+        assertEquals("slow", slow.getSubsidiaries().get(0).getParentExternalId());
+        assertEquals("fast", fast.getSubsidiaries().get(0).getParentExternalId());
+        assertEquals(5, root.getCompletedLegalEntities().size());
+    }
+
+    @Test
+    public void capsConcurrentSubsidiaries() {
+        LegalEntityTask root = new LegalEntityTask(legalEntity("root", IntStream.range(0, 6)
+            .mapToObj(i -> legalEntity("subsidiary-" + i))
+            .toArray(LegalEntity[]::new)));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        StepVerifier.create(new LegalEntityHierarchyExecutor(2).execute(root, task -> Mono.defer(() -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(20)).doOnNext(tick -> active.decrementAndGet()).thenReturn(task);
+        })))
+            .expectNext(root)
+            .verifyComplete();
+
+        assertEquals(2, maxActive.get());
+        assertEquals(7, root.getCompletedLegalEntities().size());
+    }
+
+    @Test
+    public void skipsLegalEntitiesCompletedByPreviousAttempt() {
+        LegalEntityTask root = new LegalEntityTask(legalEntity("root",
+            legalEntity("completed", legalEntity("completed-child")),
+            legalEntity("failing", legalEntity("failing-child"))));
+        LegalEntityHierarchyExecutor executor = new LegalEntityHierarchyExecutor(1);
+
+        StepVerifier.create(executor.execute(root, task -> "failing".equals(task.getData().getExternalId())
+            ? Mono.error(new IllegalStateException("unavailable"))
+            : ingest(task, 0)))
+            .verifyErrorMessage("unavailable");
+        assertEquals(Arrays.asList("completed", "root"),
+            root.getCompletedLegalEntities().stream().sorted().collect(Collectors.toList()));
+
+        events.clear();
+        StepVerifier.create(executor.execute(root, task -> ingest(task, 0)))
+            .expectNext(root)
+            .verifyComplete();
+
+        assertEquals(Arrays.asList("start failing", "end failing", "start completed-child", "end completed-child",
+            "start failing-child", "end failing-child"), events);
+    }
+
+    @Test
+    public void mergesSubsidiaryHistoryOnFailure() {
+        LegalEntityTask root = new LegalEntityTask(legalEntity("root", legalEntity("failing")));
+        Function<LegalEntityTask, Mono<LegalEntityTask>> legalEntityExecutor = task -> {
+            if (task == root) {
+                return Mono.just(task);
+            }
+            task.error("LEGAL_ENTITY", "upsert", "failed", task.getData().getExternalId(), null,
+                "Failed to upsert %s", task.getData().getExternalId());
+            return Mono.error(new IllegalStateException("unavailable"));
+        };
+
+        StepVerifier.create(new LegalEntityHierarchyExecutor(1).execute(root, legalEntityExecutor))
+            .verifyErrorMessage("unavailable");
+
+        List<TaskHistory> failed = root.getHistory().stream()
+            .filter(history -> "failing".equals(history.getExternalId()))
+            .collect(Collectors.toList());
+        assertEquals(1, failed.size());
+        assertEquals("failed", failed.get(0).getResult());
+    }
+
+    private Mono<LegalEntityTask> ingest(LegalEntityTask task, long delayMillis) {
+        String externalId = task.getData().getExternalId();
+        return Mono.fromRunnable(() -> events.add("start " + externalId))
+            .then(Mono.delay(Duration.ofMillis(delayMillis)))
+            .doOnNext(tick -> events.add("end " + externalId))
+            .thenReturn(task);
+    }
+
+    private static LegalEntity legalEntity(String externalId, LegalEntity... subsidiaries) {
+        return new LegalEntity().externalId(externalId).subsidiaries(Arrays.asList(subsidiaries));
+    }
+}
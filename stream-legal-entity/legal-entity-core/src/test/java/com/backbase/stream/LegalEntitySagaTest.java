@@ -0,0 +1,71 @@
+package com.backbase.stream;
+
+import static com.backbase.stream.LegalEntitySaga.CREATE_JOB_ROLES;
+import static com.backbase.stream.LegalEntitySaga.PROCESS_JOB_PROFILES;
+import static com.backbase.stream.LegalEntitySaga.SETUP_ADMINISTRATORS;
+import static com.backbase.stream.LegalEntitySaga.SETUP_SERVICE_AGREEMENT;
+import static com.backbase.stream.LegalEntitySaga.SETUP_USERS;
+import static com.backbase.stream.LegalEntitySaga.UPSERT_LEGAL_ENTITY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.backbase.stream.configuration.LegalEntitySagaConfigurationProperties;
+import com.backbase.stream.product.BatchProductIngestionSaga;
+import com.backbase.stream.product.ProductIngestionSaga;
+import com.backbase.stream.service.AccessGroupService;
+import com.backbase.stream.service.LegalEntityService;
+import com.backbase.stream.service.UserProfileService;
+import com.backbase.stream.service.UserService;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class LegalEntitySagaTest {
+
+    private final Map<String, List<String>> dependencies = new LegalEntitySaga(
+        mock(LegalEntityService.class),
+        mock(UserService.class),
+        mock(UserProfileService.class),
+        mock(AccessGroupService.class),
+        mock(ProductIngestionSaga.class),
+        mock(BatchProductIngestionSaga.class),
+        new LegalEntitySagaConfigurationProperties()).getStages().getDependencies();
+
+    @Test
+    public void startsFromTheLegalEntity() {
+        List<String> roots = dependencies.entrySet().stream()
+            .filter(stage -> stage.getValue().isEmpty())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+
+        assertEquals(Collections.singletonList(UPSERT_LEGAL_ENTITY), roots);
+    }
+
+    @Test
+    public void setsUpUsersAfterAdministrators() {
+        assertTrue(dependsOn(SETUP_USERS, SETUP_ADMINISTRATORS));
+        assertFalse(dependsOn(SETUP_ADMINISTRATORS, SETUP_USERS));
+    }
+
+    @Test
+    public void setsUpUsersWhileCreatingJobRoles() {
+        assertFalse(dependsOn(SETUP_USERS, SETUP_SERVICE_AGREEMENT));
+        assertFalse(dependsOn(CREATE_JOB_ROLES, SETUP_USERS));
+    }
+
+    @Test
+    public void processesJobProfilesOnceUsersAndJobRolesExist() {
+        assertTrue(dependsOn(PROCESS_JOB_PROFILES, SETUP_USERS));
+        assertTrue(dependsOn(PROCESS_JOB_PROFILES, SETUP_ADMINISTRATORS));
+        assertTrue(dependsOn(PROCESS_JOB_PROFILES, CREATE_JOB_ROLES));
+    }
+
+    private boolean dependsOn(String stage, String dependency) {
+        return dependencies.get(stage).stream()
+            .anyMatch(direct -> direct.equals(dependency) || dependsOn(direct, dependency));
+    }
+}
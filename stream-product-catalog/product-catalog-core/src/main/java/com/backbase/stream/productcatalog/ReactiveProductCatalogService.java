@@ -12,6 +12,7 @@ import com.backbase.stream.productcatalog.mapper.ProductCatalogMapper;
 import com.backbase.stream.productcatalog.model.ProductCatalog;
 import com.backbase.stream.productcatalog.model.ProductKind;
 import com.backbase.stream.productcatalog.model.ProductType;
+import com.backbase.stream.worker.cache.SingleFlight;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -32,6 +33,7 @@ public class ReactiveProductCatalogService {
     private final ProductsApi productsApi;
     private final ProductKindsApi productKindsApi;
     private final ProductCatalogMapper productCatalogMapper = Mappers.getMapper(ProductCatalogMapper.class);
+    private final SingleFlight<String, List<ProductKind>> productKindLookups = new SingleFlight<>("product-kinds");
 
     public ReactiveProductCatalogService(ApiClient accountPresentationClient) {
         this.productsApi = new ProductsApi(accountPresentationClient);
@@ -55,12 +57,14 @@ public class ReactiveProductCatalogService {
     }
 
     private Flux<ProductKind> getProductKindFlux() {
-        return productKindsApi.getProductKinds(null, null, null)
+        return productKindLookups.execute("all", () -> productKindsApi.getProductKinds(null, null, null)
             .flux()
             .flatMap(productKindsWrapper -> Flux.fromIterable(productKindsWrapper.getProductKinds() != null
                 ? productKindsWrapper.getProductKinds()
                 : new ArrayList<>()))
-            .map(productCatalogMapper::toStream);
+            .map(productCatalogMapper::toStream)
+            .collectList())
+            .flatMapIterable(productKinds -> productKinds);
     }
 
     /**
@@ -16,6 +16,7 @@ import com.backbase.dbs.arrangement.api.service.v2.model.BatchResponseStatusCode
 import com.backbase.stream.product.exception.ArrangementCreationException;
 import com.backbase.stream.product.exception.ArrangementUpdateException;
 import com.backbase.stream.product.mapping.ProductMapper;
+import com.backbase.stream.worker.cache.SingleFlight;
 import java.util.Collections;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +38,7 @@ public class ArrangementService {
 
     private final ArrangementsApi arrangementsApi;
     private final ProductMapper productMapper = Mappers.getMapper(ProductMapper.class);
+    private final SingleFlight<String, String> internalIdLookups = new SingleFlight<>("arrangement-internal-id");
 
     public ArrangementService(ArrangementsApi arrangementsApi) {
         this.arrangementsApi = arrangementsApi;
@@ -126,7 +128,7 @@ public class ArrangementService {
 
     public Mono<String> getArrangementInternalId(String externalId) {
         log.info("Checking if arrangement exists with externalId: {}", externalId);
-        return arrangementsApi.getInternalId(externalId)
+        return internalIdLookups.execute(externalId, () -> arrangementsApi.getInternalId(externalId)
             .doOnNext(response ->
                 log.info("Found Arrangement internalId: {} for externalId: {}", response.getInternalId(), externalId))
             .onErrorResume(WebClientResponseException.NotFound.class, notFound -> {
@@ -138,7 +140,7 @@ public class ArrangementService {
                 return Mono.empty();
             })
 
-            .map(AccountInternalIdGetResponseBody::getInternalId);
+            .map(AccountInternalIdGetResponseBody::getInternalId));
     }
 
     /**
@@ -1,12 +1,23 @@
 package com.backbase.stream.webclient;
 
+import com.backbase.stream.webclient.http.DbsClientHttpConnector;
+import com.backbase.stream.webclient.http.DbsCodecProperties;
+import com.backbase.stream.webclient.http.DbsHttpClientProperties;
 import com.backbase.stream.webclient.logging.CustomLogger;
 import com.backbase.stream.webclient.logging.LogFilters;
+import com.backbase.stream.webclient.logging.WireCaptureExchangeFilterFunction;
+import com.backbase.stream.webclient.logging.WireCaptureProperties;
+import com.backbase.stream.webclient.oauth2.DbsOAuth2Properties;
+import com.backbase.stream.webclient.oauth2.RefreshAheadOAuth2AuthorizedClientManager;
+import com.backbase.stream.webclient.resilience.DbsResilienceProperties;
+import com.backbase.stream.webclient.resilience.ServiceIsolationExchangeFilterFunction;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -15,16 +26,17 @@ import java.util.TimeZone;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
 import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientPropertiesRegistrationAdapter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
-import org.springframework.security.oauth2.client.AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.ClientCredentialsReactiveOAuth2AuthorizedClientProvider;
-import org.springframework.security.oauth2.client.InMemoryReactiveOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizationFailureHandler;
 import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
@@ -39,7 +51,6 @@ import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import reactor.netty.channel.BootstrapHandlers;
-import reactor.netty.http.client.HttpClient;
 
 
 /**
@@ -47,8 +58,12 @@ import reactor.netty.http.client.HttpClient;
  */
 @Configuration
 @Slf4j
+@EnableConfigurationProperties({DbsHttpClientProperties.class, DbsCodecProperties.class, DbsOAuth2Properties.class,
+    DbsResilienceProperties.class, WireCaptureProperties.class})
 public class DbsWebClientConfiguration {
 
+    private static final String BLACKBIRD_MODULE = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+
     /**
      * Default Jackson Object Mapper.
      *
@@ -86,39 +101,61 @@ public class DbsWebClientConfiguration {
      * @param reactiveOAuth2AuthorizedClientManager Client Manager managing OAuth2 tokens
      * @param builder                               THe Web Client Builder which is already preconfigured using MicroMeter
      *                                              instrumentation.
+     * @param dbsClientHttpConnector                Connector with a connection pool per DBS service
+     * @param dbsCodecProperties                    JSON codec settings
+     * @param dbsResilienceProperties               Bulkhead and circuit breaker settings per DBS service
+     * @param dbsHttpClientProperties               HTTP client settings, sizing the bulkheads of services with a pool
+     * @param dbsWireCapture                        Capture of sampled request and response bodies
      * @return Preconfigured Web Client
      */
     @Bean
     public WebClient dbsWebClient(ObjectMapper objectMapper,
                                   ReactiveOAuth2AuthorizedClientManager reactiveOAuth2AuthorizedClientManager,
-                                  WebClient.Builder builder) {
+                                  WebClient.Builder builder,
+                                  DbsClientHttpConnector dbsClientHttpConnector,
+                                  DbsCodecProperties dbsCodecProperties,
+                                  DbsResilienceProperties dbsResilienceProperties,
+                                  DbsHttpClientProperties dbsHttpClientProperties,
+                                  WireCaptureExchangeFilterFunction dbsWireCapture) {
 
         ServerOAuth2AuthorizedClientExchangeFilterFunction oauth2ClientFilter = new ServerOAuth2AuthorizedClientExchangeFilterFunction(reactiveOAuth2AuthorizedClientManager);
         oauth2ClientFilter.setDefaultClientRegistrationId("dbs");
+        if (reactiveOAuth2AuthorizedClientManager instanceof ReactiveOAuth2AuthorizationFailureHandler) {
+            oauth2ClientFilter.setAuthorizationFailureHandler(
+                (ReactiveOAuth2AuthorizationFailureHandler) reactiveOAuth2AuthorizedClientManager);
+        }
 
 
         builder
             .defaultHeader("Content-Type", MediaType.APPLICATION_JSON.toString())
             .defaultHeader("Accept", MediaType.APPLICATION_JSON.toString())
             .filter(new CsrfClientExchangeFilterFunction())
-            .filter(oauth2ClientFilter);
-
-        if(log.isDebugEnabled()) {
-            HttpClient httpClient = HttpClient
-                .create()
-                .tcpConfiguration(tcpClient -> tcpClient.bootstrap(b -> BootstrapHandlers.updateLogSupport(b, new CustomLogger(DbsWebClientConfiguration.class))));
-            builder.clientConnector(new ReactorClientHttpConnector(httpClient));
+            .filter(oauth2ClientFilter)
+            .clientConnector(dbsClientHttpConnector);
+        if (dbsResilienceProperties.isEnabled()) {
+            builder.filter(new ServiceIsolationExchangeFilterFunction(dbsResilienceProperties,
+                dbsHttpClientProperties));
+        }
+        if (dbsWireCapture.isEnabled()) {
+            builder.filter(dbsWireCapture);
         }
 
 
         // ensure correct exchange strategy is installed
+        ObjectMapper codecObjectMapper = dbsCodecProperties.isHighThroughput()
+            ? highThroughputObjectMapper(objectMapper, dbsCodecProperties.getBytecodeModule())
+            : objectMapper;
         ExchangeStrategies strategies = ExchangeStrategies.builder()
             .codecs(clientDefaultCodecsConfigurer -> {
-                Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON);
-                Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(objectMapper, MediaType.APPLICATION_JSON);
+                Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(codecObjectMapper, MediaType.APPLICATION_JSON);
+                Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(codecObjectMapper, MediaType.APPLICATION_JSON);
 
                 clientDefaultCodecsConfigurer.defaultCodecs().jackson2JsonEncoder(encoder);
                 clientDefaultCodecsConfigurer.defaultCodecs().jackson2JsonDecoder(decoder);
+                if (dbsCodecProperties.isHighThroughput()) {
+                    clientDefaultCodecsConfigurer.defaultCodecs()
+                        .maxInMemorySize((int) dbsCodecProperties.getMaxInMemorySize().toBytes());
+                }
             })
             .build();
 
@@ -127,25 +164,101 @@ public class DbsWebClientConfiguration {
         return builder.build();
     }
 
+    /**
+     * Copy of the Object Mapper that serializes through generated bytecode instead of reflection.
+     *
+     * @param objectMapper   Object Mapper to copy
+     * @param bytecodeModule Module generating the bytecode
+     * @return Tuned Object Mapper
+     */
+    public static ObjectMapper highThroughputObjectMapper(ObjectMapper objectMapper,
+                                                          DbsCodecProperties.BytecodeModule bytecodeModule) {
+        ObjectMapper copy = objectMapper.copy();
+        if (bytecodeModule == DbsCodecProperties.BytecodeModule.BLACKBIRD) {
+            try {
+                copy.registerModule((Module) Class.forName(BLACKBIRD_MODULE).getDeclaredConstructor().newInstance());
+                return copy;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Blackbird is not available, using Afterburner instead: {}", e.toString());
+            }
+        }
+        if (bytecodeModule != DbsCodecProperties.BytecodeModule.NONE) {
+            copy.registerModule(new AfterburnerModule());
+        }
+        return copy;
+    }
+
+    /**
+     * Connector used by the DBS Web Client, with connection pools and timeouts configured by
+     * {@code backbase.stream.dbs.http}. Dumps all traffic when trace logging is enabled; use the wire capture of
+     * {@code backbase.stream.dbs.capture} to look at selected bodies instead.
+     *
+     * @param dbsHttpClientProperties HTTP client settings
+     * @return Connector
+     */
+    @Bean
+    public DbsClientHttpConnector dbsClientHttpConnector(DbsHttpClientProperties dbsHttpClientProperties) {
+        if (log.isTraceEnabled()) {
+            return new DbsClientHttpConnector(dbsHttpClientProperties, httpClient -> httpClient
+                .tcpConfiguration(tcpClient -> tcpClient.bootstrap(b -> BootstrapHandlers.updateLogSupport(b,
+                    new CustomLogger(DbsWebClientConfiguration.class)))));
+        }
+        return new DbsClientHttpConnector(dbsHttpClientProperties);
+    }
+
+    /**
+     * Capture of the bodies of sampled DBS exchanges, configured by {@code backbase.stream.dbs.capture}. Only added to
+     * the DBS Web Client when enabled.
+     *
+     * @param wireCaptureProperties Capture settings
+     * @return Capture filter
+     */
+    @Bean
+    public WireCaptureExchangeFilterFunction dbsWireCapture(WireCaptureProperties wireCaptureProperties) {
+        return new WireCaptureExchangeFilterFunction(wireCaptureProperties);
+    }
+
     @Bean
     public ReactiveOAuth2AuthorizedClientProvider reactiveOAuth2AuthorizedClientProvider() {
         return new ClientCredentialsReactiveOAuth2AuthorizedClientProvider();
     }
 
+    /**
+     * Client Manager sharing one client credentials token per registration, refreshed ahead of its expiry.
+     *
+     * @param reactiveClientRegistrationRepository   Client registrations
+     * @param reactiveOAuth2AuthorizedClientProvider Provider fetching tokens
+     * @param dbsOAuth2Properties                    Token settings
+     * @return Client Manager
+     */
     @Bean
-    public ReactiveOAuth2AuthorizedClientManager reactiveOAuth2AuthorizedClientManager(
+    public RefreshAheadOAuth2AuthorizedClientManager reactiveOAuth2AuthorizedClientManager(
         ReactiveClientRegistrationRepository reactiveClientRegistrationRepository,
-        ReactiveOAuth2AuthorizedClientProvider reactiveOAuth2AuthorizedClientProvider
+        ReactiveOAuth2AuthorizedClientProvider reactiveOAuth2AuthorizedClientProvider,
+        DbsOAuth2Properties dbsOAuth2Properties
     ) {
+        return new RefreshAheadOAuth2AuthorizedClientManager(reactiveClientRegistrationRepository,
+            reactiveOAuth2AuthorizedClientProvider, dbsOAuth2Properties.getRefreshAhead());
+    }
 
-        InMemoryReactiveOAuth2AuthorizedClientService clientService = new
-            InMemoryReactiveOAuth2AuthorizedClientService(reactiveClientRegistrationRepository);
-
-        AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager clientServiceReactiveOAuth2AuthorizedClientManager = new AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager(
-            reactiveClientRegistrationRepository,
-            clientService);
-        clientServiceReactiveOAuth2AuthorizedClientManager.setAuthorizedClientProvider(reactiveOAuth2AuthorizedClientProvider);
-        return clientServiceReactiveOAuth2AuthorizedClientManager;
+    /**
+     * Fetch the DBS tokens once the application started, so that the first calls do not wait for them.
+     *
+     * @param reactiveOAuth2AuthorizedClientManager Client Manager
+     * @param dbsOAuth2Properties                   Token settings
+     * @return Listener
+     */
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> dbsAccessTokenPrewarm(
+        RefreshAheadOAuth2AuthorizedClientManager reactiveOAuth2AuthorizedClientManager,
+        DbsOAuth2Properties dbsOAuth2Properties) {
+        return event -> {
+            if (dbsOAuth2Properties.isPrewarm()) {
+                reactiveOAuth2AuthorizedClientManager.prewarm(dbsOAuth2Properties.getPrewarmRegistrationIds())
+                    .subscribe(null, throwable -> log.warn("Failed to prewarm DBS access tokens: {}",
+                        throwable.getMessage()));
+            }
+        };
     }
 
     @Bean
@@ -0,0 +1,108 @@
+package com.backbase.stream.webclient.http;
+
+import io.netty.channel.ChannelOption;
+import java.io.Closeable;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Connector that sends requests through the connection pool of the DBS service they are addressed to.
+ *
+ * <p>Every service in {@link DbsHttpClientProperties#getServices()} gets a dedicated {@link ConnectionProvider} and
+ * {@link HttpClient}, so that for instance a saturated transaction-manager pool does not delay calls to
+ * access-control. Requests to other hosts share a default pool.</p>
+ */
+@Slf4j
+public class DbsClientHttpConnector implements ClientHttpConnector, Closeable {
+
+    static final String DEFAULT_POOL = "dbs";
+
+    private final Map<String, ConnectionProvider> connectionProviders = new LinkedHashMap<>();
+    private final Map<String, ClientHttpConnector> connectorsByHost = new HashMap<>();
+    private final ClientHttpConnector defaultConnector;
+
+    public DbsClientHttpConnector(DbsHttpClientProperties properties) {
+        this(properties, UnaryOperator.identity());
+    }
+
+    /**
+     * Create connectors for the configured services.
+     *
+     * @param properties   HTTP client settings
+     * @param customizer   Applied to every created {@link HttpClient}, for instance to add logging
+     */
+    public DbsClientHttpConnector(DbsHttpClientProperties properties, Function<HttpClient, HttpClient> customizer) {
+        this.defaultConnector = createConnector(DEFAULT_POOL, properties, customizer);
+        properties.getServices().forEach((service, serviceSettings) -> {
+            ClientHttpConnector connector = createConnector(DEFAULT_POOL + "-" + service,
+                serviceSettings.withDefaults(properties), customizer);
+            if (serviceSettings.getHosts().isEmpty()) {
+                connectorsByHost.put(service.toLowerCase(Locale.ROOT), connector);
+            }
+            serviceSettings.getHosts().forEach(host -> connectorsByHost.put(host.toLowerCase(Locale.ROOT), connector));
+        });
+    }
+
+    @Override
+    public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+        Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+        return connectorFor(uri).connect(method, uri, requestCallback);
+    }
+
+    ClientHttpConnector connectorFor(URI uri) {
+        String host = uri.getHost();
+        ClientHttpConnector connector = host != null ? connectorsByHost.get(host.toLowerCase(Locale.ROOT)) : null;
+        return connector != null ? connector : defaultConnector;
+    }
+
+    Map<String, ConnectionProvider> getConnectionProviders() {
+        return connectionProviders;
+    }
+
+    private ClientHttpConnector createConnector(String name, HttpClientSettings settings,
+        Function<HttpClient, HttpClient> customizer) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+            .maxConnections(settings.getMaxConnections())
+            .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+            .maxIdleTime(settings.getMaxIdleTime())
+            .maxLifeTime(settings.getMaxLifeTime())
+            .metrics(Boolean.TRUE.equals(settings.getMetrics()))
+            .build();
+        connectionProviders.put(name, connectionProvider);
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .tcpConfiguration(tcpClient -> tcpClient
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, Boolean.TRUE.equals(settings.getTcpKeepAlive())))
+            .responseTimeout(settings.getResponseTimeout())
+            .compress(Boolean.TRUE.equals(settings.getCompression()))
+            .keepAlive(Boolean.TRUE.equals(settings.getKeepAlive()))
+            .protocol(settings.getProtocols().toArray(new HttpProtocol[0]));
+        log.debug("Created HTTP client pool {} with {}", name, settings);
+        return new ReactorClientHttpConnector(customizer.apply(httpClient));
+    }
+
+    /**
+     * Dispose all connection pools.
+     */
+    @Override
+    public void close() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,42 @@
+package com.backbase.stream.webclient.http;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * JSON codec settings of the DBS Web Client.
+ */
+@ConfigurationProperties(prefix = "backbase.stream.dbs.codec")
+@Data
+public class DbsCodecProperties {
+
+    public enum BytecodeModule {
+        NONE,
+        /**
+         * {@code jackson-module-afterburner}: generated accessors instead of reflection.
+         */
+        AFTERBURNER,
+        /**
+         * {@code jackson-module-blackbird}, the successor of Afterburner for Java 11+ and Jackson 2.12+. Must be added
+         * to the class path; falls back to Afterburner when missing.
+         */
+        BLACKBIRD
+    }
+
+    /**
+     * Decode and encode with a copy of the Object Mapper tuned for throughput, using {@code bytecodeModule}, and
+     * allow elements up to {@code maxInMemorySize}. JSON arrays read as a {@code Flux} are decoded element by element
+     * in any case; the limit applies per element then, and to the whole body otherwise.
+     */
+    private boolean highThroughput;
+
+    private BytecodeModule bytecodeModule = BytecodeModule.AFTERBURNER;
+
+    /**
+     * Maximum number of bytes buffered to decode a body, or an element of a streamed array. Only applied in
+     * {@code highThroughput} mode; Spring defaults to 256KB otherwise.
+     */
+    private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+
+}
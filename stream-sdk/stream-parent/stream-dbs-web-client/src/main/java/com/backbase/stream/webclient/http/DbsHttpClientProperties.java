@@ -0,0 +1,62 @@
+package com.backbase.stream.webclient.http;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * HTTP client settings for calls to DBS. The top level settings apply to every service, and can be overridden per
+ * service:
+ *
+ * <pre>
+ * backbase.stream.dbs.http:
+ *   max-connections: 100
+ *   services:
+ *     transaction-manager:
+ *       max-connections: 500
+ *       response-timeout: 2m
+ * </pre>
+ *
+ * <p>Each service gets its own connection pool, used for requests to any of its {@code hosts}. The hosts default to
+ * the service name, which is the host name of the service in the default DBS base URLs.</p>
+ */
+@ConfigurationProperties(prefix = "backbase.stream.dbs.http")
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class DbsHttpClientProperties extends HttpClientSettings {
+
+    private Map<String, ServiceSettings> services = new LinkedHashMap<>();
+
+    public DbsHttpClientProperties() {
+        setMaxConnections(100);
+        setPendingAcquireMaxCount(-1);
+        setPendingAcquireTimeout(Duration.ofSeconds(45));
+        setMaxIdleTime(Duration.ofSeconds(30));
+        setMaxLifeTime(Duration.ofMinutes(10));
+        setConnectTimeout(Duration.ofSeconds(5));
+        setResponseTimeout(Duration.ofSeconds(60));
+        setCompression(true);
+        setKeepAlive(true);
+        setTcpKeepAlive(true);
+        setProtocols(new ArrayList<>(Collections.singletonList(HttpProtocol.HTTP11)));
+        setMetrics(true);
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class ServiceSettings extends HttpClientSettings {
+
+        /**
+         * Host names served by this pool. Defaults to the service name.
+         */
+        private List<String> hosts = new ArrayList<>();
+
+    }
+}
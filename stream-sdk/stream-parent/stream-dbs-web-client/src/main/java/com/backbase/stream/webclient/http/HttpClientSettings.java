@@ -0,0 +1,98 @@
+package com.backbase.stream.webclient.http;
+
+import java.time.Duration;
+import java.util.List;
+import lombok.Data;
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * Connection pool and HTTP settings of the client used to call a DBS service. Settings left {@code null} are taken
+ * from the defaults in {@link DbsHttpClientProperties}.
+ */
+@Data
+public class HttpClientSettings {
+
+    /**
+     * Maximum number of open connections per remote host.
+     */
+    private Integer maxConnections;
+
+    /**
+     * Maximum number of requests waiting for a connection, {@code -1} for no limit. Requests beyond it fail with a
+     * {@code PoolAcquirePendingLimitException}.
+     */
+    private Integer pendingAcquireMaxCount;
+
+    /**
+     * Maximum time a request waits for a connection.
+     */
+    private Duration pendingAcquireTimeout;
+
+    /**
+     * Connections idle for longer are closed instead of reused. Keep it below the idle timeout of load balancers in
+     * between, so that requests are not sent on connections they already dropped.
+     */
+    private Duration maxIdleTime;
+
+    /**
+     * Connections older than this are closed instead of reused, so that new DBS instances get traffic too.
+     */
+    private Duration maxLifeTime;
+
+    private Duration connectTimeout;
+
+    /**
+     * Maximum time between sending a request and receiving the response, or between two reads of the response.
+     */
+    private Duration responseTimeout;
+
+    /**
+     * Request gzip compressed responses.
+     */
+    private Boolean compression;
+
+    /**
+     * Reuse connections for subsequent requests (HTTP keep-alive).
+     */
+    private Boolean keepAlive;
+
+    /**
+     * Enable TCP keep-alive probes on idle connections.
+     */
+    private Boolean tcpKeepAlive;
+
+    /**
+     * Protocols to use, for instance {@code H2C} or {@code H2} for HTTP/2 with a fall back to {@code HTTP11}.
+     */
+    private List<HttpProtocol> protocols;
+
+    /**
+     * Publish connection pool gauges ({@code reactor.netty.connection.provider.*}) to Micrometer.
+     */
+    private Boolean metrics;
+
+    /**
+     * Settings with each {@code null} value replaced by the one of the given defaults.
+     *
+     * @param defaults Default settings
+     * @return Merged settings
+     */
+    public HttpClientSettings withDefaults(HttpClientSettings defaults) {
+        HttpClientSettings merged = new HttpClientSettings();
+        merged.setMaxConnections(maxConnections != null ? maxConnections : defaults.getMaxConnections());
+        merged.setPendingAcquireMaxCount(pendingAcquireMaxCount != null
+            ? pendingAcquireMaxCount : defaults.getPendingAcquireMaxCount());
+        merged.setPendingAcquireTimeout(pendingAcquireTimeout != null
+            ? pendingAcquireTimeout : defaults.getPendingAcquireTimeout());
+        merged.setMaxIdleTime(maxIdleTime != null ? maxIdleTime : defaults.getMaxIdleTime());
+        merged.setMaxLifeTime(maxLifeTime != null ? maxLifeTime : defaults.getMaxLifeTime());
+        merged.setConnectTimeout(connectTimeout != null ? connectTimeout : defaults.getConnectTimeout());
+        merged.setResponseTimeout(responseTimeout != null ? responseTimeout : defaults.getResponseTimeout());
+        merged.setCompression(compression != null ? compression : defaults.getCompression());
+        merged.setKeepAlive(keepAlive != null ? keepAlive : defaults.getKeepAlive());
+        merged.setTcpKeepAlive(tcpKeepAlive != null ? tcpKeepAlive : defaults.getTcpKeepAlive());
+        merged.setProtocols(protocols != null ? protocols : defaults.getProtocols());
+        merged.setMetrics(metrics != null ? metrics : defaults.getMetrics());
+        return merged;
+    }
+}
@@ -23,6 +23,10 @@ import static io.netty.util.internal.StringUtil.NEWLINE;
 import static java.lang.Math.max;
 import static java.nio.charset.Charset.defaultCharset;
 
+/**
+ * Wiretap logging every byte sent and received. Costly, so only installed on the DBS connector with trace logging;
+ * see {@link WireCaptureExchangeFilterFunction} to capture selected bodies instead.
+ */
 public class CustomLogger  extends LoggingHandler {
     private static final LogLevel DEFAULT_LEVEL = LogLevel.DEBUG;
 
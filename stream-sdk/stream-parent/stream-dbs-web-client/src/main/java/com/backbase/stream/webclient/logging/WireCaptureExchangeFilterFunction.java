@@ -0,0 +1,204 @@
+package com.backbase.stream.webclient.logging;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Captures the leading bytes of the request and response bodies of sampled DBS exchanges to a rolling file.
+ *
+ * <p>Unlike the {@link CustomLogger} wiretap, which formats every byte of every exchange, only exchanges selected by
+ * the sample rate and URI pattern are looked at, and of those only the first {@code maxBodySize} bytes of each body
+ * are copied, straight from the buffers passing by. Exchanges whose response status does not match are discarded
+ * before the response body is read. Captured exchanges are written by a background thread.</p>
+ */
+public class WireCaptureExchangeFilterFunction implements ExchangeFilterFunction, Closeable {
+
+    private final WireCaptureProperties properties;
+    private final Pattern uriPattern;
+    private final boolean[] statuses;
+    private final int maxBodySize;
+
+    private volatile WireCaptureWriter writer;
+
+    public WireCaptureExchangeFilterFunction(WireCaptureProperties properties) {
+        this.properties = properties;
+        this.uriPattern = properties.getUriPattern() != null ? Pattern.compile(properties.getUriPattern()) : null;
+        this.statuses = parseStatuses(properties);
+        this.maxBodySize = (int) Math.min(Integer.MAX_VALUE, properties.getMaxBodySize().toBytes());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!isEnabled() || !isSampled(request.url())) {
+            return next.exchange(request);
+        }
+        Capture capture = new Capture(request.method(), request.url());
+        BodyInserter<?, ? super ClientHttpRequest> body = request.body();
+        ClientRequest capturing = ClientRequest.from(request)
+            .body((outputMessage, context) -> body.insert(new ClientHttpRequestDecorator(outputMessage) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> buffers) {
+                    return super.writeWith(Flux.from(buffers).doOnNext(capture.request::append));
+                }
+
+                @Override
+                public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> buffers) {
+                    return super.writeAndFlushWith(Flux.from(buffers)
+                        .map(chunk -> Flux.from(chunk).doOnNext(capture.request::append)));
+                }
+            }, context))
+            .build();
+        return next.exchange(capturing).map(response -> {
+            int status = response.rawStatusCode();
+            if (status < 0 || status >= statuses.length || !statuses[status]) {
+                return response;
+            }
+            capture.status = status;
+            return ClientResponse.from(response)
+                .body(response.bodyToFlux(DataBuffer.class)
+                    .doOnNext(capture.response::append)
+                    .doOnTerminate(capture::write)
+                    .doOnCancel(capture::write))
+                .build();
+        });
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private boolean isSampled(URI uri) {
+        double sampleRate = properties.getSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        return uriPattern == null || uriPattern.matcher(uri.toString()).find();
+    }
+
+    private WireCaptureWriter writer() {
+        if (writer == null) {
+            synchronized (this) {
+                if (writer == null) {
+                    writer = new WireCaptureWriter(Paths.get(properties.getFile()),
+                        properties.getMaxFileSize().toBytes(), properties.getMaxHistory(), properties.getQueueSize());
+                }
+            }
+        }
+        return writer;
+    }
+
+    private static boolean[] parseStatuses(WireCaptureProperties properties) {
+        boolean[] statuses = new boolean[600];
+        if (properties.getStatuses().isEmpty()) {
+            Arrays.fill(statuses, true);
+            return statuses;
+        }
+        for (String status : properties.getStatuses()) {
+            String value = status.trim().toLowerCase();
+            if (value.length() == 3 && value.endsWith("xx")) {
+                int from = Character.digit(value.charAt(0), 10) * 100;
+                Arrays.fill(statuses, from, from + 100, true);
+            } else {
+                statuses[Integer.parseInt(value)] = true;
+            }
+        }
+        return statuses;
+    }
+
+    private class Capture {
+
+        private final Instant timestamp = Instant.now();
+        private final long start = System.nanoTime();
+        private final HttpMethod method;
+        private final URI uri;
+        private final Body request = new Body();
+        private final Body response = new Body();
+        private final AtomicBoolean written = new AtomicBoolean();
+        private int status;
+
+        private Capture(HttpMethod method, URI uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        private void write() {
+            if (written.compareAndSet(false, true)) {
+                writer().write(format());
+            }
+        }
+
+        private String format() {
+            StringBuilder record = new StringBuilder(256 + request.length + response.length)
+                .append(timestamp).append(' ').append(method).append(' ').append(uri)
+                .append(" -> ").append(status)
+                .append(" in ").append((System.nanoTime() - start) / 1_000_000).append(" ms\n");
+            request.format(record, "> ");
+            response.format(record, "< ");
+            return record.append('\n').toString();
+        }
+    }
+
+    private class Body {
+
+        private byte[] bytes;
+        private int length;
+        private long total;
+
+        /**
+         * Copy the bytes of the buffer that still fit, without moving its read position.
+         */
+        private synchronized void append(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            total += readable;
+            int count = Math.min(readable, maxBodySize - length);
+            if (count <= 0) {
+                return;
+            }
+            if (bytes == null || bytes.length < length + count) {
+                bytes = Arrays.copyOf(bytes != null ? bytes : new byte[0],
+                    Math.min(maxBodySize, Math.max(length + count, 2 * length)));
+            }
+            ByteBuffer view = buffer.asByteBuffer(buffer.readPosition(), count);
+            view.get(bytes, length, count);
+            length += count;
+        }
+
+        private synchronized void format(StringBuilder record, String prefix) {
+            record.append(prefix).append(total).append(" bytes");
+            if (total > length) {
+                record.append(", first ").append(length).append(" shown");
+            }
+            record.append('\n');
+            if (length > 0) {
+                record.append(new String(bytes, 0, length, StandardCharsets.UTF_8)).append('\n');
+            }
+        }
+    }
+}
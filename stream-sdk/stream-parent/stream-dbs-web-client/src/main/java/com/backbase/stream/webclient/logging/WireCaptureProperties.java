@@ -0,0 +1,56 @@
+package com.backbase.stream.webclient.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for capturing the bodies of sampled DBS requests and responses to a rolling file.
+ */
+@ConfigurationProperties(prefix = "backbase.stream.dbs.capture")
+@Data
+public class WireCaptureProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Fraction of the exchanges to capture, between {@code 0} and {@code 1}.
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * Regular expression an exchange URI must contain to be captured. All URIs when not set.
+     */
+    private String uriPattern;
+
+    /**
+     * Response statuses to capture, either exact codes such as {@code 404} or classes such as {@code 5xx}. All
+     * statuses when empty.
+     */
+    private List<String> statuses = new ArrayList<>();
+
+    /**
+     * Number of leading bytes of each body to capture.
+     */
+    private DataSize maxBodySize = DataSize.ofKilobytes(4);
+
+    private String file = "dbs-wire-capture.log";
+
+    /**
+     * Size after which the file is rolled over to {@code <file>.1}.
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(10);
+
+    /**
+     * Number of rolled over files to keep.
+     */
+    private int maxHistory = 5;
+
+    /**
+     * Number of captured exchanges waiting to be written. Exchanges captured while it is full are dropped.
+     */
+    private int queueSize = 1024;
+
+}
@@ -0,0 +1,133 @@
+package com.backbase.stream.webclient.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appends records to a size based rolling file from a background thread, so that callers never wait for disk I/O.
+ * Records offered while the queue is full are dropped and counted by {@code stream.dbs.capture.dropped}.
+ */
+@Slf4j
+class WireCaptureWriter implements Closeable {
+
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxHistory;
+    private final BlockingQueue<String> queue;
+    private final Thread thread;
+    private final Counter written;
+    private final Counter dropped;
+
+    private volatile boolean running = true;
+    private OutputStream output;
+    private long fileSize;
+
+    WireCaptureWriter(Path file, long maxFileSize, int maxHistory, int queueSize) {
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxHistory = Math.max(0, maxHistory);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.written = Counter.builder("stream.dbs.capture.written").register(Metrics.globalRegistry);
+        this.dropped = Counter.builder("stream.dbs.capture.dropped").register(Metrics.globalRegistry);
+        this.thread = new Thread(this::run, "dbs-wire-capture");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void write(String record) {
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running || !queue.isEmpty()) {
+                String record = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    append(record);
+                    if (queue.isEmpty()) {
+                        output.flush();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Stopped capturing DBS exchanges to {}: {}", file, e.getMessage());
+        } finally {
+            closeOutput();
+        }
+    }
+
+    private void append(String record) throws IOException {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        if (output == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            output = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            fileSize = Files.size(file);
+        } else if (fileSize > 0 && fileSize + bytes.length > maxFileSize) {
+            rollOver();
+        }
+        output.write(bytes);
+        fileSize += bytes.length;
+        written.increment();
+    }
+
+    private void rollOver() throws IOException {
+        closeOutput();
+        if (maxHistory == 0) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.deleteIfExists(rolled(maxHistory));
+            for (int i = maxHistory - 1; i >= 1; i--) {
+                if (Files.exists(rolled(i))) {
+                    Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        output = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        fileSize = 0;
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeOutput() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.warn("Failed to close {}: {}", file, e.getMessage());
+            }
+            output = null;
+        }
+    }
+}
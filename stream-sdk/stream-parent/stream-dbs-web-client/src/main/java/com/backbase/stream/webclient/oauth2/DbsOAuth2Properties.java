@@ -0,0 +1,30 @@
+package com.backbase.stream.webclient.oauth2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Access token handling for the client credentials registrations used to call DBS.
+ */
+@ConfigurationProperties(prefix = "backbase.stream.dbs.oauth2")
+@Data
+public class DbsOAuth2Properties {
+
+    /**
+     * Fetch a new token in the background once the current one expires within this time. Requests keep using the
+     * current token meanwhile.
+     */
+    private Duration refreshAhead = Duration.ofMinutes(1);
+
+    /**
+     * Fetch tokens for the {@code prewarmRegistrationIds} on startup, instead of on the first DBS call.
+     */
+    private boolean prewarm = true;
+
+    private List<String> prewarmRegistrationIds = new ArrayList<>(Collections.singletonList("dbs"));
+
+}
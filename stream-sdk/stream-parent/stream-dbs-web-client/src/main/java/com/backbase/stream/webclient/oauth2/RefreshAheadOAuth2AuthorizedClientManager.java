@@ -0,0 +1,198 @@
+package com.backbase.stream.webclient.oauth2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizationFailureHandler;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Authorized client manager for client credentials registrations that keeps one token per registration, shared by
+ * all principals, and renews it before it expires.
+ *
+ * <ul>
+ *     <li>While the token is valid for longer than {@code refreshAhead} it is returned as is.</li>
+ *     <li>Within {@code refreshAhead} of its expiry it is still returned, and a new token is fetched in the
+ *     background.</li>
+ *     <li>Without a valid token, callers wait for a new one.</li>
+ * </ul>
+ *
+ * <p>Concurrent fetches for the same registration share a single request to the token endpoint. The manager also
+ * acts as failure handler of the exchange filter, dropping a token that DBS rejected as invalid (401). A token
+ * lacking the scope for a request (403) is kept, as a new token would not be granted more scopes. Reported meters, tagged with
+ * {@code registration}: {@code stream.oauth2.token.acquire} (token endpoint latency, by {@code outcome}) and
+ * {@code stream.oauth2.token.refresh} (fetches, by {@code mode}: {@code ahead} or {@code blocking}).</p>
+ */
+@Slf4j
+public class RefreshAheadOAuth2AuthorizedClientManager implements ReactiveOAuth2AuthorizedClientManager,
+    ReactiveOAuth2AuthorizationFailureHandler {
+
+    private static final Authentication ANONYMOUS = new AnonymousAuthenticationToken("key", "anonymousUser",
+        AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+    private final ReactiveClientRegistrationRepository clientRegistrationRepository;
+    private final ReactiveOAuth2AuthorizedClientProvider authorizedClientProvider;
+    private final Duration refreshAhead;
+    private final Clock clock;
+    private final ConcurrentMap<String, Token> tokens = new ConcurrentHashMap<>();
+
+    public RefreshAheadOAuth2AuthorizedClientManager(ReactiveClientRegistrationRepository clientRegistrationRepository,
+        ReactiveOAuth2AuthorizedClientProvider authorizedClientProvider, Duration refreshAhead) {
+        this(clientRegistrationRepository, authorizedClientProvider, refreshAhead, Clock.systemUTC());
+    }
+
+    RefreshAheadOAuth2AuthorizedClientManager(ReactiveClientRegistrationRepository clientRegistrationRepository,
+        ReactiveOAuth2AuthorizedClientProvider authorizedClientProvider, Duration refreshAhead, Clock clock) {
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.authorizedClientProvider = authorizedClientProvider;
+        this.refreshAhead = refreshAhead;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<OAuth2AuthorizedClient> authorize(OAuth2AuthorizeRequest authorizeRequest) {
+        return token(authorizeRequest.getClientRegistrationId()).get(authorizeRequest.getPrincipal());
+    }
+
+    /**
+     * Fetch tokens for the given registrations.
+     *
+     * @param registrationIds Client registration ids
+     * @return Completes when all tokens were fetched
+     */
+    public Mono<Void> prewarm(Collection<String> registrationIds) {
+        return Flux.fromIterable(registrationIds)
+            .flatMap(registrationId -> token(registrationId).get(ANONYMOUS))
+            .then();
+    }
+
+    /**
+     * Forget the token of a registration, so that the next request fetches a new one.
+     *
+     * @param registrationId Client registration id
+     */
+    public void invalidate(String registrationId) {
+        Token token = tokens.get(registrationId);
+        if (token != null) {
+            token.current = null;
+        }
+    }
+
+    @Override
+    public Mono<Void> onAuthorizationFailure(OAuth2AuthorizationException authorizationException,
+        Authentication principal, Map<String, Object> attributes) {
+        if (authorizationException instanceof ClientAuthorizationException
+            && OAuth2ErrorCodes.INVALID_TOKEN.equals(authorizationException.getError().getErrorCode())) {
+            String registrationId = ((ClientAuthorizationException) authorizationException).getClientRegistrationId();
+            log.info("Dropping rejected access token of {}: {}", registrationId, authorizationException.getError());
+            invalidate(registrationId);
+        }
+        return Mono.empty();
+    }
+
+    private Token token(String registrationId) {
+        return tokens.computeIfAbsent(registrationId, Token::new);
+    }
+
+    private class Token {
+
+        private final String registrationId;
+        private final Timer acquireSuccess;
+        private final Timer acquireFailure;
+        private final Counter refreshAhead;
+        private final Counter refreshBlocking;
+
+        private volatile OAuth2AuthorizedClient current;
+        private Mono<OAuth2AuthorizedClient> inFlight;
+
+        private Token(String registrationId) {
+            this.registrationId = registrationId;
+            this.acquireSuccess = Timer.builder("stream.oauth2.token.acquire")
+                .tag("registration", registrationId).tag("outcome", "success")
+                .register(Metrics.globalRegistry);
+            this.acquireFailure = Timer.builder("stream.oauth2.token.acquire")
+                .tag("registration", registrationId).tag("outcome", "failure")
+                .register(Metrics.globalRegistry);
+            this.refreshAhead = Counter.builder("stream.oauth2.token.refresh")
+                .tag("registration", registrationId).tag("mode", "ahead")
+                .register(Metrics.globalRegistry);
+            this.refreshBlocking = Counter.builder("stream.oauth2.token.refresh")
+                .tag("registration", registrationId).tag("mode", "blocking")
+                .register(Metrics.globalRegistry);
+        }
+
+        private Mono<OAuth2AuthorizedClient> get(Authentication principal) {
+            OAuth2AuthorizedClient authorizedClient = current;
+            Instant expiresAt = authorizedClient != null ? authorizedClient.getAccessToken().getExpiresAt() : null;
+            Instant now = clock.instant();
+            if (authorizedClient != null && (expiresAt == null || expiresAt.isAfter(now.plus(
+                RefreshAheadOAuth2AuthorizedClientManager.this.refreshAhead)))) {
+                return Mono.just(authorizedClient);
+            }
+            if (authorizedClient != null && expiresAt.isAfter(now)) {
+                fetch(principal, true).subscribe(refreshed -> { }, throwable -> log.warn(
+                    "Failed to refresh access token of {} ahead of expiry: {}", registrationId,
+                    throwable.getMessage()));
+                return Mono.just(authorizedClient);
+            }
+            return fetch(principal, false);
+        }
+
+        private synchronized Mono<OAuth2AuthorizedClient> fetch(Authentication principal, boolean ahead) {
+            if (inFlight != null) {
+                return inFlight;
+            }
+            (ahead ? refreshAhead : refreshBlocking).increment();
+            long start = System.nanoTime();
+            inFlight = clientRegistrationRepository.findByRegistrationId(registrationId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException(
+                    "Could not find ClientRegistration with id '" + registrationId + "'")))
+                .flatMap(clientRegistration -> authorizedClientProvider.authorize(
+                    OAuth2AuthorizationContext.withClientRegistration(clientRegistration)
+                        .principal(principal != null ? principal : ANONYMOUS)
+                        .build()))
+                .doOnSuccess(authorizedClient -> {
+                    acquireSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (authorizedClient != null) {
+                        current = authorizedClient;
+                        log.debug("Acquired access token of {} expiring at {}", registrationId,
+                            authorizedClient.getAccessToken().getExpiresAt());
+                    }
+                    clearInFlight();
+                })
+                .doOnError(throwable -> {
+                    acquireFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    clearInFlight();
+                })
+                .doOnCancel(this::clearInFlight)
+                .cache();
+            return inFlight;
+        }
+
+        private synchronized void clearInFlight() {
+            inFlight = null;
+        }
+    }
+}
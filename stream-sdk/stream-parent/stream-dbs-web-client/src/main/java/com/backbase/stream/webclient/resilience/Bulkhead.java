@@ -0,0 +1,104 @@
+package com.backbase.stream.webclient.resilience;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Non blocking semaphore limiting the calls in flight to one service, with a bounded queue of waiting calls.
+ */
+class Bulkhead {
+
+    private final String service;
+    private final int maxConcurrentCalls;
+    private final int maxWaitingCalls;
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+
+    private int inFlight;
+
+    Bulkhead(String service, int maxConcurrentCalls, int maxWaitingCalls) {
+        this.service = service;
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.maxWaitingCalls = Math.max(0, maxWaitingCalls);
+    }
+
+    /**
+     * Completes once a permit is granted. The permit must be {@link #release() released} afterwards, unless the
+     * subscription was cancelled before.
+     */
+    Mono<Void> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter = null;
+            synchronized (this) {
+                if (inFlight < maxConcurrentCalls) {
+                    inFlight++;
+                } else if (waiting.size() < maxWaitingCalls) {
+                    waiter = new Waiter(sink);
+                    waiting.add(waiter);
+                } else {
+                    sink.error(new BulkheadFullException(service));
+                    return;
+                }
+            }
+            if (waiter == null) {
+                sink.success();
+            } else {
+                Waiter cancellable = waiter;
+                sink.onCancel(() -> {
+                    if (cancellable.claimed.compareAndSet(false, true)) {
+                        synchronized (this) {
+                            waiting.remove(cancellable);
+                        }
+                    } else {
+                        // The permit was handed over, but the subscriber is gone before receiving it
+                        release();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Hand the permit to the next waiting call, or return it.
+     */
+    void release() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            if (next.claimed.compareAndSet(false, true)) {
+                next.sink.success();
+                return;
+            }
+        }
+    }
+
+    int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private static class Waiter {
+
+        private final MonoSink<Void> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Waiter(MonoSink<Void> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.backbase.stream.webclient.resilience;
+
+/**
+ * Thrown when a call to a DBS service is rejected because too many calls to it are in flight and waiting.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String service) {
+        super("Too many calls waiting for " + service);
+    }
+}
@@ -0,0 +1,128 @@
+package com.backbase.stream.webclient.resilience;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Count based circuit breaker.
+ *
+ * <p>{@code CLOSED}: calls are permitted and their outcomes recorded in a ring of {@code windowSize}. Once it holds at
+ * least {@code minimumCalls} outcomes of which {@code failureRateThreshold} percent failed, the circuit opens.
+ * {@code OPEN}: calls are rejected for {@code openDuration}. {@code HALF_OPEN}: up to {@code halfOpenCalls} trial
+ * calls are permitted; the circuit closes when they all succeed and opens again on the first failure.</p>
+ */
+@Slf4j
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String service;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Clock clock;
+    private final boolean[] outcomes;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int position;
+    private int failures;
+    private Instant openedAt;
+    private int trialsPermitted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(String service, DbsResilienceProperties properties, Clock clock) {
+        this.service = service;
+        this.failureRateThreshold = properties.getFailureRateThreshold();
+        this.minimumCalls = Math.max(1, properties.getMinimumCalls());
+        this.openDuration = properties.getOpenDuration();
+        this.halfOpenCalls = Math.max(1, properties.getHalfOpenCalls());
+        this.clock = clock;
+        this.outcomes = new boolean[Math.max(this.minimumCalls, properties.getWindowSize())];
+    }
+
+    /**
+     * Check whether a call may be made now. A permitted call must be followed by {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsPermitted >= halfOpenCalls) {
+                return false;
+            }
+            trialsPermitted++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * The permitted call was cancelled, and its outcome is unknown.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trialsPermitted > trialsSucceeded) {
+            trialsPermitted--;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % outcomes.length;
+    }
+
+    private void transition(State newState) {
+        log.info("Circuit breaker of {} changed from {} to {}", service, state, newState);
+        state = newState;
+        recorded = 0;
+        position = 0;
+        failures = 0;
+        trialsPermitted = 0;
+        trialsSucceeded = 0;
+        openedAt = newState == State.OPEN ? clock.instant() : null;
+    }
+}
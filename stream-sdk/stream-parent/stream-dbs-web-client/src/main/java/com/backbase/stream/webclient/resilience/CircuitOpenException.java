@@ -0,0 +1,11 @@
+package com.backbase.stream.webclient.resilience;
+
+/**
+ * Thrown when a call to a DBS service is rejected because its circuit breaker is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String service) {
+        super("Circuit breaker of " + service + " is open");
+    }
+}
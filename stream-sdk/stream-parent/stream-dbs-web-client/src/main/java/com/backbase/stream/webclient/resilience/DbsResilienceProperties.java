@@ -0,0 +1,105 @@
+package com.backbase.stream.webclient.resilience;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bulkhead and circuit breaker settings, applied separately to every DBS service the DBS Web Client calls. The bulkhead
+ * limits can be overridden per service, named as in {@code backbase.stream.dbs.http.services}:
+ *
+ * <pre>
+ * backbase.stream.dbs.resilience:
+ *   max-concurrent-calls: 100
+ *   services:
+ *     transaction-manager:
+ *       max-concurrent-calls: 500
+ * </pre>
+ *
+ * <p>Services without an override get as many concurrent calls as their connection pool has connections, when it is
+ * configured in {@code backbase.stream.dbs.http.services}, and {@code maxConcurrentCalls} otherwise.</p>
+ */
+@ConfigurationProperties(prefix = "backbase.stream.dbs.resilience")
+@Data
+public class DbsResilienceProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of calls to one service waiting for their response at the same time, for services without a
+     * connection pool or override of their own.
+     */
+    private int maxConcurrentCalls = 100;
+
+    /**
+     * Maximum number of calls queued for a service once {@code maxConcurrentCalls} is reached. Further calls fail with
+     * a {@link BulkheadFullException}.
+     */
+    private int maxWaitingCalls = 1000;
+
+    /**
+     * Percentage of failed calls, out of the last {@code windowSize}, that opens the circuit. Server errors, I/O
+     * errors and calls slower than {@code slowCallDuration} count as failures.
+     */
+    private int failureRateThreshold = 50;
+
+    private Duration slowCallDuration = Duration.ofSeconds(30);
+
+    private int windowSize = 100;
+
+    /**
+     * Minimum number of calls in the window before the failure rate is evaluated.
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * Time calls are rejected with a {@link CircuitOpenException} before trial calls are let through.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * Number of trial calls in the half open state. The circuit closes when all succeed, and opens again otherwise.
+     */
+    private int halfOpenCalls = 5;
+
+    private Map<String, ServiceSettings> services = new LinkedHashMap<>();
+
+    /**
+     * Find the overrides of the service with the given host.
+     *
+     * @param host Host name of the service
+     * @return Service overrides, or {@code null} when there are none
+     */
+    public ServiceSettings forHost(String host) {
+        if (host == null) {
+            return null;
+        }
+        for (Map.Entry<String, ServiceSettings> service : services.entrySet()) {
+            List<String> hosts = service.getValue().getHosts();
+            if (hosts.isEmpty() ? service.getKey().equalsIgnoreCase(host)
+                : hosts.stream().anyMatch(serviceHost -> serviceHost.equalsIgnoreCase(host))) {
+                return service.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Data
+    public static class ServiceSettings {
+
+        /**
+         * Host names of the service. Defaults to the service name.
+         */
+        private List<String> hosts = new ArrayList<>();
+
+        private Integer maxConcurrentCalls;
+
+        private Integer maxWaitingCalls;
+
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.backbase.stream.webclient.resilience;
+
+import com.backbase.stream.webclient.http.DbsHttpClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Isolates the DBS services called through one Web Client from each other, so a slow or failing service cannot use
+ * up the connections and threads the other services need.
+ *
+ * <p>Every base URL ({@code scheme://host:port}), for instance the transaction manager, access control or arrangement
+ * manager, gets its own {@link Bulkhead} limiting the calls in flight and its own {@link CircuitBreaker} failing calls
+ * fast while the service is unhealthy. A call is in flight until the response status is received. Responses with a
+ * 5xx status, I/O errors, timeouts and calls slower than the slow call duration count as failures.</p>
+ *
+ * <p>The bulkhead of a service allows the calls configured for it in {@link DbsResilienceProperties#getServices()}.
+ * Otherwise, when the service has a connection pool of its own in {@link DbsHttpClientProperties#getServices()}, it
+ * allows as many calls as the pool has connections, so the bulkhead does not cap a larger pool.</p>
+ *
+ * <p>Reported meters, tagged with {@code service}: gauges {@code stream.dbs.circuit.state} ({@code 0} closed,
+ * {@code 1} open, {@code 2} half open), {@code stream.dbs.bulkhead.in-flight} and {@code stream.dbs.bulkhead.waiting},
+ * and counter {@code stream.dbs.rejected} tagged with the {@code reason}.</p>
+ */
+@Slf4j
+public class ServiceIsolationExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final DbsResilienceProperties properties;
+    private final DbsHttpClientProperties httpClientProperties;
+    private final Clock clock;
+    private final Map<String, Isolation> isolations = new ConcurrentHashMap<>();
+
+    public ServiceIsolationExchangeFilterFunction(DbsResilienceProperties properties) {
+        this(properties, new DbsHttpClientProperties());
+    }
+
+    public ServiceIsolationExchangeFilterFunction(DbsResilienceProperties properties,
+        DbsHttpClientProperties httpClientProperties) {
+        this(properties, httpClientProperties, Clock.systemUTC());
+    }
+
+    ServiceIsolationExchangeFilterFunction(DbsResilienceProperties properties,
+        DbsHttpClientProperties httpClientProperties, Clock clock) {
+        this.properties = properties;
+        this.httpClientProperties = httpClientProperties;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        Isolation isolation = isolations.computeIfAbsent(service(request.url()),
+            service -> new Isolation(service, request.url().getHost()));
+        return Mono.defer(() -> {
+            if (!isolation.circuitBreaker.tryAcquire()) {
+                isolation.circuitRejected.increment();
+                return Mono.error(new CircuitOpenException(isolation.service));
+            }
+            return isolation.bulkhead.acquire()
+                .doOnError(BulkheadFullException.class, e -> {
+                    isolation.bulkheadRejected.increment();
+                    isolation.circuitBreaker.onIgnored();
+                })
+                .doOnCancel(isolation.circuitBreaker::onIgnored)
+                .then(Mono.defer(() -> exchange(isolation, request, next)));
+        });
+    }
+
+    private Mono<ClientResponse> exchange(Isolation isolation, ClientRequest request, ExchangeFunction next) {
+        long start = System.nanoTime();
+        return next.exchange(request)
+            .doOnSuccess(response -> {
+                if (response == null || response.rawStatusCode() >= 500 || isSlow(start)) {
+                    isolation.circuitBreaker.onFailure();
+                } else {
+                    isolation.circuitBreaker.onSuccess();
+                }
+            })
+            .doOnError(throwable -> {
+                if (isServiceFailure(throwable) || isSlow(start)) {
+                    isolation.circuitBreaker.onFailure();
+                } else {
+                    isolation.circuitBreaker.onIgnored();
+                }
+            })
+            .doOnCancel(isolation.circuitBreaker::onIgnored)
+            .doFinally(signalType -> isolation.bulkhead.release());
+    }
+
+    private boolean isSlow(long start) {
+        return System.nanoTime() - start > properties.getSlowCallDuration().toNanos();
+    }
+
+    private static boolean isServiceFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                || cause.getClass().getSimpleName().endsWith("TimeoutException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String service(URI uri) {
+        int port = uri.getPort();
+        if (port == -1) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    }
+
+    CircuitBreaker.State getState(String service) {
+        Isolation isolation = isolations.get(service);
+        return isolation != null ? isolation.circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    int getMaxConcurrentCalls(String service) {
+        Isolation isolation = isolations.get(service);
+        return isolation != null ? isolation.bulkhead.getMaxConcurrentCalls() : 0;
+    }
+
+    private int maxConcurrentCalls(String host) {
+        DbsResilienceProperties.ServiceSettings overrides = properties.forHost(host);
+        if (overrides != null && overrides.getMaxConcurrentCalls() != null) {
+            return overrides.getMaxConcurrentCalls();
+        }
+        Integer poolSize = poolSize(host);
+        return poolSize != null ? poolSize : properties.getMaxConcurrentCalls();
+    }
+
+    private int maxWaitingCalls(String host) {
+        DbsResilienceProperties.ServiceSettings overrides = properties.forHost(host);
+        return overrides != null && overrides.getMaxWaitingCalls() != null
+            ? overrides.getMaxWaitingCalls()
+            : properties.getMaxWaitingCalls();
+    }
+
+    private Integer poolSize(String host) {
+        for (Map.Entry<String, DbsHttpClientProperties.ServiceSettings> service
+            : httpClientProperties.getServices().entrySet()) {
+            List<String> hosts = service.getValue().getHosts();
+            boolean matches = hosts.isEmpty() ? service.getKey().equalsIgnoreCase(host)
+                : hosts.stream().anyMatch(serviceHost -> serviceHost.equalsIgnoreCase(host));
+            if (matches) {
+                return service.getValue().withDefaults(httpClientProperties).getMaxConnections();
+            }
+        }
+        return null;
+    }
+
+    private class Isolation {
+
+        private final String service;
+        private final Bulkhead bulkhead;
+        private final CircuitBreaker circuitBreaker;
+        private final Counter circuitRejected;
+        private final Counter bulkheadRejected;
+
+        private Isolation(String service, String host) {
+            this.service = service;
+            this.bulkhead = new Bulkhead(service, maxConcurrentCalls(host), maxWaitingCalls(host));
+            this.circuitBreaker = new CircuitBreaker(service, properties, clock);
+
+            Tags tags = Tags.of("service", service);
+            Gauge.builder("stream.dbs.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .tags(tags).register(Metrics.globalRegistry);
+            Gauge.builder("stream.dbs.bulkhead.in-flight", bulkhead, Bulkhead::getInFlight)
+                .tags(tags).register(Metrics.globalRegistry);
+            Gauge.builder("stream.dbs.bulkhead.waiting", bulkhead, Bulkhead::getWaiting)
+                .tags(tags).register(Metrics.globalRegistry);
+            this.circuitRejected = Counter.builder("stream.dbs.rejected").tags(tags.and("reason", "circuit-open"))
+                .register(Metrics.globalRegistry);
+            this.bulkheadRejected = Counter.builder("stream.dbs.rejected").tags(tags.and("reason", "bulkhead-full"))
+                .register(Metrics.globalRegistry);
+            log.info("Isolating calls to {} with at most {} in flight", service, bulkhead.getMaxConcurrentCalls());
+        }
+    }
+}
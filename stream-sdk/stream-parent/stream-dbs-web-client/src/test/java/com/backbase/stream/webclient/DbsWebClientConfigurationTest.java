@@ -1,5 +1,11 @@
 package com.backbase.stream.webclient;
 
+import com.backbase.stream.webclient.http.DbsClientHttpConnector;
+import com.backbase.stream.webclient.http.DbsCodecProperties;
+import com.backbase.stream.webclient.http.DbsHttpClientProperties;
+import com.backbase.stream.webclient.logging.WireCaptureExchangeFilterFunction;
+import com.backbase.stream.webclient.logging.WireCaptureProperties;
+import com.backbase.stream.webclient.resilience.DbsResilienceProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
@@ -109,7 +115,12 @@ public class DbsWebClientConfigurationTest {
         WebClient webClient = dbsWebClientConfiguration.dbsWebClient(
             objectMapper,
             oAuth2AuthorizedClientManager,
-            builder);
+            builder,
+            new DbsClientHttpConnector(new DbsHttpClientProperties()),
+            new DbsCodecProperties(),
+            new DbsResilienceProperties(),
+            new DbsHttpClientProperties(),
+            new WireCaptureExchangeFilterFunction(new WireCaptureProperties()));
 
         Assert.assertNotNull(webClient);
 
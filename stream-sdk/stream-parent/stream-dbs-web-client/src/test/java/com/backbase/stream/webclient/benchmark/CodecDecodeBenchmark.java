@@ -0,0 +1,274 @@
+package com.backbase.stream.webclient.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.backbase.stream.webclient.DbsWebClientConfiguration;
+import com.backbase.stream.webclient.http.DbsCodecProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+/**
+ * Decodes a JSON array of transactions or arrangements, split in network sized buffers, with the default and the
+ * high throughput codec of the DBS Web Client.
+ *
+ * <p>{@code flux} decodes element by element, the way {@code bodyToFlux} does; {@code list} decodes the whole array at
+ * once, the way {@code bodyToMono(List)} does; {@code direct} reads the whole array from a byte array with the Object
+ * Mapper, without the codec, as a reference. The payload classes mirror the fields of the DBS
+ * {@code TransactionItem} and {@code AccountArrangementItem} models, which this module does not depend on. Results are
+ * per decoded element.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecDecodeBenchmark {
+
+    private static final int ELEMENTS = 5_000;
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"transactions", "arrangements"})
+    private String payload;
+
+    @Param({"default", "high-throughput"})
+    private String codec;
+
+    @Param({"flux", "list", "direct"})
+    private String mode;
+
+    private ObjectReader reader;
+    private byte[] json;
+    private Jackson2JsonDecoder decoder;
+    private ResolvableType elementType;
+    private List<byte[]> chunks;
+    private DefaultDataBufferFactory bufferFactory;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        // The test logback configuration logs at debug, which makes the codecs format every decoded value
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        DbsWebClientConfiguration configuration = new DbsWebClientConfiguration();
+        ObjectMapper objectMapper = configuration.objectMapper(configuration.dateFormat());
+        ObjectMapper codecObjectMapper = "high-throughput".equals(codec)
+            ? DbsWebClientConfiguration.highThroughputObjectMapper(objectMapper,
+                DbsCodecProperties.BytecodeModule.AFTERBURNER)
+            : objectMapper;
+        decoder = new Jackson2JsonDecoder(codecObjectMapper, MediaType.APPLICATION_JSON);
+        decoder.setMaxInMemorySize(64 * 1024 * 1024);
+
+        List<Object> elements = new ArrayList<>(ELEMENTS);
+        for (int i = 0; i < ELEMENTS; i++) {
+            elements.add("transactions".equals(payload) ? transaction(i) : arrangement(i));
+        }
+        Class<?> elementClass = "transactions".equals(payload) ? TransactionItem.class : AccountArrangementItem.class;
+        elementType = "flux".equals(mode)
+            ? ResolvableType.forClass(elementClass)
+            : ResolvableType.forClassWithGenerics(List.class, elementClass);
+        reader = codecObjectMapper.readerFor(codecObjectMapper.constructType(
+            ResolvableType.forClassWithGenerics(List.class, elementClass).getType()));
+        json = objectMapper.writeValueAsBytes(elements);
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < json.length; offset += BUFFER_SIZE) {
+            byte[] chunk = new byte[Math.min(BUFFER_SIZE, json.length - offset)];
+            System.arraycopy(json, offset, chunk, 0, chunk.length);
+            chunks.add(chunk);
+        }
+        bufferFactory = new DefaultDataBufferFactory();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Object decode() throws IOException {
+        if ("direct".equals(mode)) {
+            return reader.readValue(json);
+        }
+        Flux<DataBuffer> body = Flux.fromIterable(chunks).map(bufferFactory::wrap);
+        if ("flux".equals(mode)) {
+            return decoder.decode(body, elementType, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                .count()
+                .block();
+        }
+        return decoder.decodeToMono(body, elementType, MediaType.APPLICATION_JSON, Collections.emptyMap())
+            .block();
+    }
+
+    private static TransactionItem transaction(int i) {
+        TransactionItem transaction = new TransactionItem();
+        transaction.setId("tx-" + i);
+        transaction.setArrangementId("arrangement-" + (i % 50));
+        transaction.setExternalId("external-tx-" + i);
+        transaction.setExternalArrangementId("external-arrangement-" + (i % 50));
+        transaction.setReference("REF" + i);
+        transaction.setDescription("Card payment at merchant " + i);
+        transaction.setTypeGroup("Payment");
+        transaction.setType("Credit/Debit Card");
+        transaction.setCategory("Groceries");
+        transaction.setBookingDate(LocalDate.of(2020, 1, 1).plusDays(i % 365));
+        transaction.setValueDate(transaction.getBookingDate());
+        transaction.setCreditDebitIndicator(i % 3 == 0 ? "CRDT" : "DBIT");
+        transaction.setTransactionAmountCurrency(new Currency(BigDecimal.valueOf(i, 2).toPlainString(), "EUR"));
+        transaction.setInstructedAmountCurrency(new Currency(BigDecimal.valueOf(i, 2).toPlainString(), "USD"));
+        transaction.setCurrencyExchangeRate(new BigDecimal("1.1234"));
+        transaction.setCounterPartyName("Counter Party " + i);
+        transaction.setCounterPartyAccountNumber("NL91ABNA0417164300");
+        transaction.setCounterPartyBIC("ABNANL2A");
+        transaction.setCounterPartyCountry("NL");
+        transaction.setCounterPartyBankName("ABN AMRO");
+        transaction.setBillingStatus("BILLED");
+        transaction.setCheckSerialNumber((long) i);
+        transaction.setRunningBalance(BigDecimal.valueOf(100_000 - i, 2));
+        transaction.setState("COMPLETED");
+        Map<String, String> additions = new HashMap<>();
+        additions.put("channel", "pos");
+        transaction.setAdditions(additions);
+        return transaction;
+    }
+
+    private static AccountArrangementItem arrangement(int i) {
+        AccountArrangementItem arrangement = new AccountArrangementItem();
+        arrangement.setId("arrangement-" + i);
+        arrangement.setExternalArrangementId("external-arrangement-" + i);
+        arrangement.setExternalLegalEntityId("legal-entity-" + (i % 20));
+        arrangement.setExternalProductId("current-account");
+        arrangement.setName("Current Account " + i);
+        arrangement.setBankAlias("My account " + i);
+        arrangement.setSourceId("core");
+        arrangement.setBookedBalance(BigDecimal.valueOf(i * 100L, 2));
+        arrangement.setAvailableBalance(BigDecimal.valueOf(i * 90L, 2));
+        arrangement.setCreditLimit(BigDecimal.valueOf(5000));
+        arrangement.setIBAN("NL91ABNA04171643" + (i % 100));
+        arrangement.setBBAN("04171643" + (i % 100));
+        arrangement.setCurrency("EUR");
+        arrangement.setExternalTransferAllowed(true);
+        arrangement.setUrgentTransferAllowed(false);
+        arrangement.setAccruedInterest(BigDecimal.valueOf(12, 2));
+        arrangement.setNumber(String.valueOf(1_000_000 + i));
+        arrangement.setProductId("product-1");
+        arrangement.setProductKindName("Current Account");
+        arrangement.setProductTypeName("Current Account");
+        arrangement.setBIC("ABNANL2A");
+        arrangement.setBankBranchCode("001");
+        arrangement.setVisible(true);
+        arrangement.setAccountOpeningDate(OffsetDateTime.of(2015, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+        arrangement.setAccountInterestRate(new BigDecimal("0.0125"));
+        return arrangement;
+    }
+
+    @Data
+    public static class Currency {
+
+        private String amount;
+        private String currencyCode;
+
+        public Currency() {
+        }
+
+        Currency(String amount, String currencyCode) {
+            this.amount = amount;
+            this.currencyCode = currencyCode;
+        }
+    }
+
+    @Data
+    public static class TransactionItem {
+
+        private String id;
+        private String arrangementId;
+        private String externalId;
+        private String externalArrangementId;
+        private String reference;
+        private String description;
+        private String typeGroup;
+        private String type;
+        private String category;
+        private LocalDate bookingDate;
+        private LocalDate valueDate;
+        private String creditDebitIndicator;
+        private Currency transactionAmountCurrency;
+        private Currency instructedAmountCurrency;
+        private BigDecimal currencyExchangeRate;
+        private String counterPartyName;
+        private String counterPartyAccountNumber;
+        private String counterPartyBIC;
+        private String counterPartyCountry;
+        private String counterPartyBankName;
+        private String billingStatus;
+        private Long checkSerialNumber;
+        private BigDecimal runningBalance;
+        private String state;
+        private Map<String, String> additions;
+    }
+
+    @Data
+    public static class AccountArrangementItem {
+
+        private String id;
+        private String externalArrangementId;
+        private String externalLegalEntityId;
+        private String externalProductId;
+        private String name;
+        private String bankAlias;
+        private String sourceId;
+        private BigDecimal bookedBalance;
+        private BigDecimal availableBalance;
+        private BigDecimal creditLimit;
+        private String IBAN;
+        private String BBAN;
+        private String currency;
+        private Boolean externalTransferAllowed;
+        private Boolean urgentTransferAllowed;
+        private BigDecimal accruedInterest;
+        private String number;
+        private String productId;
+        private String productKindName;
+        private String productTypeName;
+        private String BIC;
+        private String bankBranchCode;
+        private Boolean visible;
+        private OffsetDateTime accountOpeningDate;
+        private BigDecimal accountInterestRate;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(CodecDecodeBenchmark.class.getSimpleName())
+            .build())
+            .run();
+    }
+}
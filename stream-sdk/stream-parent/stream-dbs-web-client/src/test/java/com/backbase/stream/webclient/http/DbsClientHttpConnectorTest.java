@@ -0,0 +1,78 @@
+package com.backbase.stream.webclient.http;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+public class DbsClientHttpConnectorTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private DbsClientHttpConnector connector;
+
+    @After
+    public void tearDown() {
+        if (connector != null) {
+            connector.close();
+        }
+    }
+
+    @Test
+    public void usesPoolPerService() {
+        DbsHttpClientProperties properties = new DbsHttpClientProperties();
+        DbsHttpClientProperties.ServiceSettings transactionManager = new DbsHttpClientProperties.ServiceSettings();
+        transactionManager.setMaxConnections(500);
+        properties.getServices().put("transaction-manager", transactionManager);
+        DbsHttpClientProperties.ServiceSettings accessControl = new DbsHttpClientProperties.ServiceSettings();
+        accessControl.setHosts(Arrays.asList("access-control", "localhost"));
+        properties.getServices().put("access-control", accessControl);
+
+        connector = new DbsClientHttpConnector(properties);
+
+        assertEquals(Arrays.asList("dbs", "dbs-transaction-manager", "dbs-access-control"),
+            Arrays.asList(connector.getConnectionProviders().keySet().toArray()));
+        assertEquals(500, connector.getConnectionProviders().get("dbs-transaction-manager").maxConnections());
+        assertEquals(100, connector.getConnectionProviders().get("dbs-access-control").maxConnections());
+        assertSame(connector.connectorFor(URI.create("http://access-control:8080/x")),
+            connector.connectorFor(URI.create("http://LOCALHOST:8080/y")));
+        assertNotSame(connector.connectorFor(URI.create("http://transaction-manager:8080/x")),
+            connector.connectorFor(URI.create("http://access-control:8080/x")));
+        assertSame(connector.connectorFor(URI.create("http://user-manager:8080/x")),
+            connector.connectorFor(URI.create("http://arrangement-manager:8080/x")));
+    }
+
+    @Test
+    public void requestsCompressedResponses() {
+        wireMockRule.stubFor(get(urlEqualTo("/hello")).willReturn(aResponse().withStatus(200).withBody("world")));
+        DbsHttpClientProperties properties = new DbsHttpClientProperties();
+        properties.setResponseTimeout(Duration.ofSeconds(5));
+        connector = new DbsClientHttpConnector(properties);
+        WebClient webClient = WebClient.builder().clientConnector(connector).build();
+
+        StepVerifier.create(webClient.get().uri("http://localhost:" + wireMockRule.port() + "/hello")
+            .retrieve()
+            .bodyToMono(String.class))
+            .expectNext("world")
+            .verifyComplete();
+
+        wireMockRule.verify(getRequestedFor(urlEqualTo("/hello"))
+            .withHeader("Accept-Encoding", WireMock.containing("gzip")));
+    }
+}
@@ -0,0 +1,60 @@
+package com.backbase.stream.webclient.logging;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+public class WireCaptureExchangeFilterFunctionTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void capturesLeadingBytesOfMatchingExchanges() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/arrangements")).willReturn(aResponse().withStatus(200)
+            .withBody("{\"id\":\"arrangement-1\"}")));
+        wireMockRule.stubFor(post(urlEqualTo("/transactions")).willReturn(aResponse().withStatus(400)
+            .withBody("{\"message\":\"Bad Request\",\"errors\":[]}")));
+        File file = new File(temporaryFolder.getRoot(), "capture.log");
+        WireCaptureProperties properties = new WireCaptureProperties();
+        properties.setEnabled(true);
+        properties.setStatuses(Collections.singletonList("4xx"));
+        properties.setMaxBodySize(DataSize.ofBytes(20));
+        properties.setFile(file.getPath());
+        WireCaptureExchangeFilterFunction capture = new WireCaptureExchangeFilterFunction(properties);
+        WebClient webClient = WebClient.builder().baseUrl("http://localhost:" + wireMockRule.port())
+            .filter(capture).build();
+
+        String arrangement = webClient.get().uri("/arrangements").retrieve().bodyToMono(String.class).block();
+        String error = webClient.post().uri("/transactions").bodyValue("[{\"externalId\":\"transaction-1\"}]")
+            .exchange().flatMap(response -> response.bodyToMono(String.class)).block();
+        capture.close();
+
+        assertEquals("{\"id\":\"arrangement-1\"}", arrangement);
+        assertEquals("{\"message\":\"Bad Request\",\"errors\":[]}", error);
+        String captured = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertFalse(captured.contains("/arrangements"));
+        assertTrue(captured, captured.contains("POST http://localhost:" + wireMockRule.port() + "/transactions -> 400"));
+        assertTrue(captured, captured.contains("> 32 bytes, first 20 shown\n[{\"externalId\":\"tran\n"));
+        assertTrue(captured, captured.contains("< 37 bytes, first 20 shown\n{\"message\":\"Bad Requ\n"));
+    }
+}
@@ -0,0 +1,173 @@
+package com.backbase.stream.webclient.oauth2;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.client.ClientCredentialsReactiveOAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RefreshAheadOAuth2AuthorizedClientManagerTest {
+
+    private static final String TOKEN_PATH = "/oauth/token";
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private MutableClock clock;
+    private RefreshAheadOAuth2AuthorizedClientManager manager;
+
+    @Before
+    public void setUp() {
+        ClientRegistration clientRegistration = ClientRegistration.withRegistrationId("dbs")
+            .clientAuthenticationMethod(ClientAuthenticationMethod.POST)
+            .clientId("bb-client")
+            .clientSecret("bb-secret")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .tokenUri("http://localhost:" + wireMockRule.port() + TOKEN_PATH)
+            .build();
+        clock = new MutableClock(Instant.now());
+        manager = new RefreshAheadOAuth2AuthorizedClientManager(
+            new InMemoryReactiveClientRegistrationRepository(clientRegistration),
+            new ClientCredentialsReactiveOAuth2AuthorizedClientProvider(), Duration.ofSeconds(60), clock);
+    }
+
+    @Test
+    public void fetchesTokenOnceForConcurrentRequests() {
+        stubToken(Scenario.STARTED, "token-1", Scenario.STARTED, 300);
+
+        List<String> tokens = Flux.range(0, 20)
+            .flatMap(i -> tokenValue())
+            .collectList()
+            .block();
+
+        assertEquals(Collections.nCopies(20, "token-1"), tokens);
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo(TOKEN_PATH)));
+    }
+
+    @Test
+    public void refreshesAheadOfExpiry() {
+        stubToken(Scenario.STARTED, "token-1", "refreshed", 0);
+        stubToken("refreshed", "token-2", "refreshed", 200);
+
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+
+        clock.advance(Duration.ofSeconds(30));
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo(TOKEN_PATH)));
+
+        clock.advance(Duration.ofSeconds(40));
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+        StepVerifier.create(Mono.delay(Duration.ofMillis(100)).repeat()
+            .concatMap(tick -> tokenValue())
+            .filter("token-2"::equals)
+            .next())
+            .expectNext("token-2")
+            .verifyComplete();
+        wireMockRule.verify(2, postRequestedFor(urlEqualTo(TOKEN_PATH)));
+    }
+
+    @Test
+    public void prewarmsAndDropsRejectedTokens() {
+        stubToken(Scenario.STARTED, "token-1", "rejected", 0);
+        stubToken("rejected", "token-2", "rejected", 0);
+
+        StepVerifier.create(manager.prewarm(Collections.singletonList("dbs"))).verifyComplete();
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo(TOKEN_PATH)));
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+
+        StepVerifier.create(manager.onAuthorizationFailure(
+            new ClientAuthorizationException(new OAuth2Error("invalid_token"), "dbs"), null, Collections.emptyMap()))
+            .verifyComplete();
+        StepVerifier.create(tokenValue()).expectNext("token-2").verifyComplete();
+        wireMockRule.verify(2, postRequestedFor(urlEqualTo(TOKEN_PATH)));
+    }
+
+    @Test
+    public void keepsTokensLackingScope() {
+        stubToken(Scenario.STARTED, "token-1", "forbidden", 0);
+        stubToken("forbidden", "token-2", "forbidden", 0);
+
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+
+        StepVerifier.create(manager.onAuthorizationFailure(
+            new ClientAuthorizationException(new OAuth2Error(OAuth2ErrorCodes.INSUFFICIENT_SCOPE), "dbs"), null,
+            Collections.emptyMap()))
+            .verifyComplete();
+        StepVerifier.create(tokenValue()).expectNext("token-1").verifyComplete();
+        wireMockRule.verify(1, postRequestedFor(urlEqualTo(TOKEN_PATH)));
+    }
+
+    private Mono<String> tokenValue() {
+        return manager.authorize(OAuth2AuthorizeRequest.withClientRegistrationId("dbs").principal("test").build())
+            .map(OAuth2AuthorizedClient::getAccessToken)
+            .map(accessToken -> accessToken.getTokenValue());
+    }
+
+    private void stubToken(String state, String token, String nextState, int delayMillis) {
+        wireMockRule.stubFor(post(urlEqualTo(TOKEN_PATH))
+            .inScenario("token")
+            .whenScenarioStateIs(state)
+            .willSetStateTo(nextState)
+            .willReturn(aResponse()
+                .withStatus(200)
+                .withFixedDelay(delayMillis)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"access_token\":\"" + token + "\",\"token_type\":\"bearer\",\"expires_in\":120}")));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
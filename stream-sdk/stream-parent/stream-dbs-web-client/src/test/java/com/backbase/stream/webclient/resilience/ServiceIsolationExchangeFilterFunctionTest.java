@@ -0,0 +1,155 @@
+package com.backbase.stream.webclient.resilience;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+
+import com.backbase.stream.webclient.http.DbsHttpClientProperties;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class ServiceIsolationExchangeFilterFunctionTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private DbsResilienceProperties properties;
+    private DbsHttpClientProperties httpClientProperties;
+    private MutableClock clock;
+
+    @Before
+    public void setUp() {
+        properties = new DbsResilienceProperties();
+        httpClientProperties = new DbsHttpClientProperties();
+        clock = new MutableClock(Instant.now());
+        wireMockRule.stubFor(get(urlEqualTo("/slow")).willReturn(aResponse().withStatus(200).withFixedDelay(1000)));
+        wireMockRule.stubFor(get(urlEqualTo("/fast")).willReturn(aResponse().withStatus(200)));
+    }
+
+    @Test
+    public void slowServiceDoesNotBlockOtherServices() {
+        properties.setMaxConcurrentCalls(1);
+        properties.setMaxWaitingCalls(0);
+        WebClient webClient = webClient();
+
+        Mono<Integer> slow = status(webClient, "http://localhost:" + wireMockRule.port() + "/slow");
+        Mono<Integer> otherService = status(webClient, "http://127.0.0.1:" + wireMockRule.port() + "/fast");
+
+        StepVerifier.create(Mono.zip(slow, Mono.delay(Duration.ofMillis(200)).then(
+            status(webClient, "http://localhost:" + wireMockRule.port() + "/fast")
+                .onErrorResume(BulkheadFullException.class, e -> Mono.just(-1))),
+            Mono.delay(Duration.ofMillis(200)).then(otherService)))
+            .assertNext(statuses -> {
+                assertEquals(200, (int) statuses.getT1());
+                assertEquals(-1, (int) statuses.getT2());
+                assertEquals(200, (int) statuses.getT3());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    public void circuitOpensOnServerErrorsAndClosesAfterSuccessfulTrials() {
+        properties.setWindowSize(4);
+        properties.setMinimumCalls(4);
+        properties.setHalfOpenCalls(2);
+        ServiceIsolationExchangeFilterFunction filter =
+            new ServiceIsolationExchangeFilterFunction(properties, httpClientProperties, clock);
+        WebClient webClient = WebClient.builder().filter(filter).build();
+        String baseUrl = "http://localhost:" + wireMockRule.port();
+        String service = ServiceIsolationExchangeFilterFunction.service(URI.create(baseUrl));
+        wireMockRule.stubFor(get(urlEqualTo("/failing")).willReturn(aResponse().withStatus(503)));
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(status(webClient, baseUrl + (i % 2 == 0 ? "/fast" : "/failing")))
+                .expectNext(i % 2 == 0 ? 200 : 503).verifyComplete();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, filter.getState(service));
+
+        StepVerifier.create(status(webClient, baseUrl + "/fast")).verifyError(CircuitOpenException.class);
+        wireMockRule.verify(2, getRequestedFor(urlEqualTo("/fast")));
+
+        clock.advance(properties.getOpenDuration());
+        StepVerifier.create(status(webClient, baseUrl + "/fast")).expectNext(200).verifyComplete();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, filter.getState(service));
+        StepVerifier.create(status(webClient, baseUrl + "/fast")).expectNext(200).verifyComplete();
+        assertEquals(CircuitBreaker.State.CLOSED, filter.getState(service));
+    }
+
+    @Test
+    public void sizesBulkheadsPerService() {
+        DbsHttpClientProperties.ServiceSettings pool = new DbsHttpClientProperties.ServiceSettings();
+        pool.setMaxConnections(500);
+        httpClientProperties.getServices().put("localhost", pool);
+        DbsResilienceProperties.ServiceSettings overrides = new DbsResilienceProperties.ServiceSettings();
+        overrides.setHosts(Collections.singletonList("127.0.0.1"));
+        overrides.setMaxConcurrentCalls(20);
+        properties.getServices().put("other", overrides);
+        ServiceIsolationExchangeFilterFunction filter =
+            new ServiceIsolationExchangeFilterFunction(properties, httpClientProperties, clock);
+        WebClient webClient = WebClient.builder().filter(filter).build();
+
+        String pooled = "http://localhost:" + wireMockRule.port();
+        String overridden = "http://127.0.0.1:" + wireMockRule.port();
+        StepVerifier.create(status(webClient, pooled + "/fast")).expectNext(200).verifyComplete();
+        StepVerifier.create(status(webClient, overridden + "/fast")).expectNext(200).verifyComplete();
+
+        assertEquals(500, filter.getMaxConcurrentCalls(ServiceIsolationExchangeFilterFunction.service(
+            URI.create(pooled))));
+        assertEquals(20, filter.getMaxConcurrentCalls(ServiceIsolationExchangeFilterFunction.service(
+            URI.create(overridden))));
+    }
+
+    private WebClient webClient() {
+        return WebClient.builder()
+            .filter(new ServiceIsolationExchangeFilterFunction(properties, httpClientProperties, clock))
+            .build();
+    }
+
+    private static Mono<Integer> status(WebClient webClient, String url) {
+        return webClient.get().uri(url).exchange()
+            .flatMap(response -> response.releaseBody().thenReturn(response.rawStatusCode()));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.backbase.stream;
 
 import com.backbase.stream.webclient.DbsWebClientConfiguration;
+import com.backbase.stream.webclient.http.DbsClientHttpConnector;
+import com.backbase.stream.webclient.http.DbsCodecProperties;
+import com.backbase.stream.webclient.http.DbsHttpClientProperties;
+import com.backbase.stream.webclient.logging.WireCaptureExchangeFilterFunction;
+import com.backbase.stream.webclient.logging.WireCaptureProperties;
+import com.backbase.stream.webclient.resilience.DbsResilienceProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -11,7 +17,6 @@ import java.text.DateFormat;
 import java.util.Collections;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.security.oauth2.client.AuthorizedClientServiceReactiveOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.ClientCredentialsReactiveOAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.InMemoryReactiveOAuth2AuthorizedClientService;
@@ -53,12 +58,12 @@ public class AbstractServiceIntegrationTests {
 
         WebClient.Builder builder = WebClient.builder();
 
-        HttpClient httpClient = HttpClient.create()
-            .wiretap(true)
-            .tcpConfiguration(tcpClient ->
-                tcpClient.bootstrap(bootstrap ->
-                    BootstrapHandlers.updateLogSupport(bootstrap, new CustomLogger(HttpClient.class))));
-        builder.clientConnector(new ReactorClientHttpConnector(httpClient));
+        DbsClientHttpConnector connector = new DbsClientHttpConnector(new DbsHttpClientProperties(),
+            httpClient -> httpClient
+                .wiretap(true)
+                .tcpConfiguration(tcpClient ->
+                    tcpClient.bootstrap(bootstrap ->
+                        BootstrapHandlers.updateLogSupport(bootstrap, new CustomLogger(HttpClient.class)))));
 
         List<ClientRegistration> registrations = Collections.singletonList(clientRegistration);
         InMemoryReactiveClientRegistrationRepository registrationRepository = new InMemoryReactiveClientRegistrationRepository(registrations);
@@ -73,7 +78,9 @@ public class AbstractServiceIntegrationTests {
         oAuth2AuthorizedClientManager.setAuthorizedClientProvider(new ClientCredentialsReactiveOAuth2AuthorizedClientProvider());
 
 
-        return dbsWebClientConfiguration.dbsWebClient(objectMapper, oAuth2AuthorizedClientManager, builder);
+        return dbsWebClientConfiguration.dbsWebClient(objectMapper, oAuth2AuthorizedClientManager, builder,
+            connector, new DbsCodecProperties(), new DbsResilienceProperties(), new DbsHttpClientProperties(),
+            new WireCaptureExchangeFilterFunction(new WireCaptureProperties()));
     }
 
     protected ObjectMapper getObjectMapper() {
@@ -6,8 +6,21 @@ import com.backbase.stream.worker.exception.StreamTaskException;
 import com.backbase.stream.worker.model.StreamTask;
 import com.backbase.stream.worker.model.TaskHistory;
 import com.backbase.stream.worker.model.UnitOfWork;
+import com.backbase.stream.worker.ratelimit.TokenBucketRateLimiter;
 import com.backbase.stream.worker.repository.UnitOfWorkRepository;
+import com.backbase.stream.worker.retry.BackoffRetryPolicy;
+import com.backbase.stream.worker.tracing.TaskHistorySpanReporter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.sleuth.annotation.ContinueSpan;
@@ -15,6 +28,7 @@ import org.springframework.cloud.sleuth.annotation.NewSpan;
 import org.springframework.cloud.sleuth.annotation.SpanTag;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
@@ -30,6 +44,15 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
 
     private Flux<UnitOfWork<T>> scheduler;
 
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong backlogSampledAt = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final Tags meterTags;
+    private final String workerId;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final BackoffRetryPolicy retryPolicy;
+    private final TaskHistorySpanReporter historySpanReporter;
+
     public UnitOfWorkExecutor(UnitOfWorkRepository<T, String> repository, StreamTaskExecutor<T> streamTaskExecutor,
         StreamWorkerConfiguration streamWorkerConfiguration) {
         this.repository = repository;
@@ -37,6 +60,18 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
         this.workUnitExecutor = Schedulers.newParallel("unit-of-work", streamWorkerConfiguration.getWorkerUnitExecutors());
         this.taskExecutor = Schedulers.newParallel("TaskScheduler", streamWorkerConfiguration.getTaskExecutors());
         this.streamWorkerConfiguration = streamWorkerConfiguration;
+        this.meterTags = Tags.of("executor", getClass().getSimpleName());
+        this.workerId = streamWorkerConfiguration.getWorkerId() != null
+            ? streamWorkerConfiguration.getWorkerId()
+            : getClass().getSimpleName() + "-" + UUID.randomUUID();
+        this.rateLimiter = TokenBucketRateLimiter.forConfiguration(getClass().getSimpleName(),
+            streamWorkerConfiguration);
+        this.retryPolicy = BackoffRetryPolicy.from(streamWorkerConfiguration);
+        this.historySpanReporter = streamWorkerConfiguration.isHistoryTracing()
+            ? new TaskHistorySpanReporter(streamWorkerConfiguration.getHistoryTraceSampleRate())
+            : null;
+        Metrics.globalRegistry.gauge("stream.unit-of-work.backlog", meterTags, backlog);
+        Metrics.globalRegistry.gauge("stream.unit-of-work.in-flight", meterTags, inFlight);
     }
 
     public Mono<UnitOfWork<T>> register(UnitOfWork<T> unitOfWork) {
@@ -52,7 +87,16 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
     }
 
     public Flux<UnitOfWork<T>> getScheduler() {
-        if (this.scheduler == null) {
+        if (this.scheduler == null && streamWorkerConfiguration.getSchedulerBatchSize() > 1) {
+            this.scheduler = Flux.interval(streamWorkerConfiguration.getSchedulerIntervalDuration())
+                .name("unitofwork-executor")
+                .onBackpressureDrop()
+                .publishOn(workUnitExecutor)
+                .concatMap(aLong -> {
+                    log.debug("Starting to look for work for the {} time", aLong);
+                    return drainUnitsOfWork();
+                }, 1);
+        } else if (this.scheduler == null) {
             this.scheduler = Flux.interval(streamWorkerConfiguration.getSchedulerIntervalDuration())
                 .name("unitofwork-executor")
                 .publishOn(workUnitExecutor)
@@ -60,32 +104,167 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
                     log.info("Starting to look for work for the {} time", aLong);
                 })
                 .flatMap(i -> selectUnitOfWork())
-                .flatMap(this::executeUnitOfWork);
+                .flatMap(this::executeClaimedUnitOfWork);
         }
         return this.scheduler;
     }
 
-    @SuppressWarnings("ComparatorMethodParameterNotUsed")
+    /**
+     * Select and claim the first due Unit Of Work that no other worker holds.
+     *
+     * @return Locked Unit Of Work
+     */
     public Mono<UnitOfWork<T>> selectUnitOfWork() {
         return repository.findAllByNextAttemptAtBefore(OffsetDateTime.now())
             .filter(UnitOfWork::isUnLocked)
-//            .sort((o1, o2) -> new Random().nextInt(1))
+            .concatMap(this::claim)
             .next()
             .doOnNext(unitOfWork -> log.info("Selected Unit Of Work: {}", unitOfWork.getUnitOfOWorkId()));
     }
 
+    /**
+     * Claim and execute batches of due Units Of Work until a poll returns less than a full batch.
+     *
+     * @return Executed Units Of Work
+     */
+    public Flux<UnitOfWork<T>> drainUnitsOfWork() {
+        AtomicBoolean fullBatch = new AtomicBoolean();
+        int batchSize = streamWorkerConfiguration.getSchedulerBatchSize();
+        return claimUnitsOfWork(batchSize)
+            .collectList()
+            .doOnNext(batch -> fullBatch.set(batch.size() == batchSize))
+            .flatMapMany(batch -> Flux.fromIterable(batch)
+                .flatMap(this::executeClaimedUnitOfWork, streamWorkerConfiguration.getWorkerUnitExecutors()))
+            .repeat(fullBatch::get);
+    }
+
+    /**
+     * Select and lock up to {@code batchSize} due Units Of Work. Selection stops reading due units once the batch is
+     * full. The backlog gauge is refreshed with a count of the due units at most once per
+     * {@code backlogSampleInterval}.
+     *
+     * @param batchSize Maximum number of units to claim
+     * @return Locked Units Of Work
+     */
+    public Flux<UnitOfWork<T>> claimUnitsOfWork(int batchSize) {
+        return Flux.defer(() -> repository.findAllByNextAttemptAtBefore(OffsetDateTime.now())
+            .filter(UnitOfWork::isUnLocked)
+            .take(batchSize)
+            .collectList()
+            .flatMapMany(Flux::fromIterable))
+            .concatMap(this::claim)
+            .doOnNext(unitOfWork -> log.info("Selected Unit Of Work: {}", unitOfWork.getUnitOfOWorkId()))
+            .concatWith(sampleBacklog());
+    }
+
+    private Mono<UnitOfWork<T>> sampleBacklog() {
+        return Mono.defer(() -> {
+            long now = System.currentTimeMillis();
+            long sampledAt = backlogSampledAt.get();
+            if (now - sampledAt < streamWorkerConfiguration.getBacklogSampleInterval().toMillis()
+                || !backlogSampledAt.compareAndSet(sampledAt, now)) {
+                return Mono.empty();
+            }
+            return repository.countAllByNextAttemptAtBefore(OffsetDateTime.now())
+                .doOnNext(backlog::set)
+                .onErrorResume(throwable -> {
+                    log.warn("Failed to count due Units Of Work: {}", throwable.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.empty());
+        });
+    }
+
+    private Mono<UnitOfWork<T>> claim(UnitOfWork<T> unitOfWork) {
+        return repository.claim(unitOfWork.getUnitOfOWorkId(), unitOfWork.getVersion(), workerId,
+            streamWorkerConfiguration.getLockLeaseDuration())
+            .switchIfEmpty(Mono.fromRunnable(() ->
+                log.debug("Unit Of Work: {} was claimed by another worker", unitOfWork.getUnitOfOWorkId())));
+    }
+
+    private Mono<UnitOfWork<T>> executeClaimedUnitOfWork(UnitOfWork<T> unitOfWork) {
+        inFlight.incrementAndGet();
+        return holdingLease(unitOfWork, Mono.just(unitOfWork)
+            .flatMap(this::executeTasks)
+            .onErrorResume(throwable -> {
+                log.error("Unit Of Work: {} failed: {}", unitOfWork.getUnitOfOWorkId(), throwable.getMessage());
+                return Mono.just(unitOfWork);
+            }))
+            .flatMap(this::complete)
+            .doFinally(signalType -> inFlight.decrementAndGet());
+    }
+
+    /**
+     * Renew the lock lease of a Unit Of Work every third of {@code lockLeaseDuration} while it executes, so that
+     * other workers do not reclaim units that run longer than the lease. Renewal stops, and in flight renewals
+     * finish, before the execution result is emitted, so the version saved on completion is current. When a renewal
+     * finds that the unit was claimed or changed by another worker, the execution is cancelled and the unit is left
+     * to that worker, unsaved.
+     */
+    private Mono<UnitOfWork<T>> holdingLease(UnitOfWork<T> unitOfWork, Mono<UnitOfWork<T>> execution) {
+        Duration leaseDuration = streamWorkerConfiguration.getLockLeaseDuration();
+        MonoProcessor<Void> executed = MonoProcessor.create();
+        Mono<Boolean> leaseHeld = Flux.interval(leaseDuration.dividedBy(3))
+            .takeUntilOther(executed)
+            .concatMap(tick -> renewLease(unitOfWork, leaseDuration))
+            .takeUntil(renewed -> !renewed)
+            .last(true)
+            .filter(renewed -> {
+                if (!renewed) {
+                    log.warn("Lost lease of Unit Of Work: {}, abandoning it", unitOfWork.getUnitOfOWorkId());
+                }
+                return renewed;
+            });
+        return Mono.zip(execution.doFinally(signalType -> executed.onComplete()), leaseHeld,
+            (actual, renewed) -> actual);
+    }
+
+    private Mono<Boolean> renewLease(UnitOfWork<T> unitOfWork, Duration leaseDuration) {
+        long version = unitOfWork.getVersion();
+        return repository.renewLease(unitOfWork.getUnitOfOWorkId(), version, workerId, leaseDuration)
+            .doOnNext(renewed -> {
+                if (renewed) {
+                    log.debug("Renewed lease of Unit Of Work: {}", unitOfWork.getUnitOfOWorkId());
+                    unitOfWork.setVersion(version + 1);
+                    unitOfWork.setLockedUntil(OffsetDateTime.now().plus(leaseDuration));
+                }
+            })
+            .onErrorResume(throwable -> {
+                log.warn("Failed to renew lease of Unit Of Work: {}: {}", unitOfWork.getUnitOfOWorkId(),
+                    throwable.getMessage());
+                return Mono.just(true);
+            });
+    }
+
     private Mono<UnitOfWork<T>> complete(UnitOfWork<T> unitOfWork) {
         log.info("Completing Unit Of Work: {}", unitOfWork.getUnitOfOWorkId());
         unitOfWork.setLockedAt(null);
+        unitOfWork.setLockedBy(null);
+        unitOfWork.setLockedUntil(null);
         unitOfWork.setFinishedAt(OffsetDateTime.now());
 
-        boolean failed = unitOfWork.getStreamTasks().stream().anyMatch(StreamTask::isFailed);
+        List<String> failedTasks = unitOfWork.getStreamTasks().stream()
+            .filter(StreamTask::isFailed)
+            .map(StreamTask::getId)
+            .collect(Collectors.toList());
+        boolean failed = !failedTasks.isEmpty();
 
         if (failed) {
+            log.warn("Unit Of Work: {} has {} failed of {} Stream Tasks: {}", unitOfWork.getUnitOfOWorkId(),
+                failedTasks.size(), unitOfWork.getStreamTasks().size(), failedTasks);
+            Counter.builder("stream.unit-of-work.failed-tasks")
+                .tags(meterTags)
+                .register(Metrics.globalRegistry)
+                .increment(failedTasks.size());
             int retries = unitOfWork.getRetries();
-            if (retries < streamWorkerConfiguration.getMaxRetries()) {
-                unitOfWork.setNextAttemptAt(
-                    OffsetDateTime.now().plusSeconds(streamWorkerConfiguration.getRetryDuration().getSeconds()));
+            boolean retryable = unitOfWork.getStreamTasks().stream().anyMatch(this::isExecutable);
+            if (!retryable) {
+                log.warn("Unit Of Work: {} has no retryable Stream Tasks left", unitOfWork.getUnitOfOWorkId());
+            }
+            if (retryable && retries < streamWorkerConfiguration.getMaxRetries()) {
+                Duration delay = retryPolicy.nextAttemptDelay(retries);
+                log.info("Retrying Unit Of Work: {} in {}", unitOfWork.getUnitOfOWorkId(), delay);
+                unitOfWork.setNextAttemptAt(OffsetDateTime.now().plus(delay));
                 unitOfWork.setRetries(retries + 1);
                 unitOfWork.setState(UnitOfWork.State.FAILED);
                 unitOfWork.setLockedAt(null);
@@ -99,15 +278,57 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
             unitOfWork.setState(UnitOfWork.State.COMPLETED);
         }
 
+        countUnitOfWork(unitOfWork);
         return repository.save(unitOfWork);
     }
 
+    /**
+     * Execute a Unit Of Work without saving it, for callers that retry units themselves, such as a stream that must
+     * finish a unit before starting the next, or a broker redelivering the messages of a failed unit. The scheduler
+     * never sees the unit.
+     *
+     * @param unitOfWork Unit Of Work to execute
+     * @return The unit, in state {@code COMPLETED}, {@code FAILED} when a failed Stream Task may succeed on another
+     * attempt, or {@code FAILED_RETRIES_EXHAUSTED}
+     */
+    public Mono<UnitOfWork<T>> executeUnsavedUnitOfWork(UnitOfWork<T> unitOfWork) {
+        return Mono.defer(() -> {
+            unitOfWork.setState(UnitOfWork.State.IN_PROGRESS);
+            return executeTasks(unitOfWork);
+        })
+            .onErrorResume(throwable -> {
+                log.error("Unit Of Work: {} failed: {}", unitOfWork.getUnitOfOWorkId(), throwable.getMessage());
+                return Mono.just(unitOfWork);
+            })
+            .map(executed -> {
+                executed.setFinishedAt(OffsetDateTime.now());
+                executed.setNextAttemptAt(null);
+                if (executed.getStreamTasks().stream().noneMatch(StreamTask::isFailed)) {
+                    executed.setState(UnitOfWork.State.COMPLETED);
+                } else if (executed.getStreamTasks().stream().anyMatch(this::isExecutable)) {
+                    executed.setState(UnitOfWork.State.FAILED);
+                } else {
+                    executed.setState(UnitOfWork.State.FAILED_RETRIES_EXHAUSTED);
+                }
+                countUnitOfWork(executed);
+                return executed;
+            });
+    }
+
+    private void countUnitOfWork(UnitOfWork<T> unitOfWork) {
+        Counter.builder("stream.unit-of-work.executed")
+            .tags(meterTags)
+            .tag("state", unitOfWork.getState().name())
+            .register(Metrics.globalRegistry)
+            .increment();
+    }
+
 
     @NewSpan
     public Mono<UnitOfWork<T>> executeUnitOfWork(UnitOfWork<T> unitOfWork) {
         return Mono.just(unitOfWork)
             .flatMap(this::setLocked)
-            .flatMap(this::executeTasks)
+            .flatMap(locked -> holdingLease(locked, executeTasks(locked)))
             .flatMap(this::complete);
     }
 
@@ -116,18 +337,26 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
         @SpanTag(value = "unit-of-work", expression = "${unitOfWork.unitOfOWorkId}") UnitOfWork<T> unitOfWork) {
         log.info("Locking Unit Of Work: {}", unitOfWork.getUnitOfOWorkId());
         unitOfWork.setLockedAt(OffsetDateTime.now());
+        unitOfWork.setLockedBy(workerId);
+        unitOfWork.setLockedUntil(unitOfWork.getLockedAt().plus(streamWorkerConfiguration.getLockLeaseDuration()));
         unitOfWork.setState(UnitOfWork.State.IN_PROGRESS);
         return repository.save(unitOfWork);
     }
 
 
     public Mono<UnitOfWork<T>> executeTasks(UnitOfWork<T> unitOfWork) {
-        return Flux.fromIterable(unitOfWork.getStreamTasks())
+        int concurrency = Math.max(1, streamWorkerConfiguration.getTaskConcurrency());
+        Flux<T> streamTasks = Flux.fromIterable(unitOfWork.getStreamTasks())
             .publishOn(taskExecutor)
             .name("task-executor")
             .tag("stream-unit-of-work-id", unitOfWork.getUnitOfOWorkId())
-            .map(streamTask -> startTask(unitOfWork, streamTask))
-            .flatMap(streamTask -> executeTask(unitOfWork, streamTask, streamTask.getId()))
+            .filter(this::isExecutable)
+            .map(streamTask -> startTask(unitOfWork, streamTask));
+        Function<T, Mono<T>> execution = streamTask -> executeTask(unitOfWork, streamTask, streamTask.getId());
+        Flux<T> executedTasks = streamWorkerConfiguration.isOrderedTaskExecution()
+            ? streamTasks.flatMapSequential(execution, concurrency)
+            : streamTasks.flatMap(execution, concurrency);
+        return executedTasks
             .map(streamTask -> endTask(unitOfWork, streamTask))
             .collectList()
             .zipWith(Mono.just(unitOfWork), (tasks, actual) -> actual);
@@ -135,25 +364,59 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
 
 
     private Mono<T> executeTask(UnitOfWork<T> unitOfWork, T streamTask, @SpanTag("stream-task") String streamTaskId) {
-        return streamTaskExecutor.executeTask(streamTask)
+        Mono<T> execution = Mono.defer(() -> streamTaskExecutor.executeTask(streamTask));
+        if (rateLimiter != null) {
+            execution = rateLimiter.acquire(taskExecutor)
+                .then(execution)
+                .doOnError(rateLimiter::onError);
+        }
+        return execution
             .map(actual -> {
                 actual.setState(StreamTask.State.COMPLETED);
+                countTask(unitOfWork, actual);
                 return actual;
             })
             .onErrorResume(Throwable.class, throwable -> {
                 log.error("Stream Task: {} from Unit Of Work: {} failed: \n{}",
                     streamTaskId,
                     streamTask.getId(),
-                    streamTask.getHistory().stream().map(TaskHistory::toString)
+                    streamTask.getHistory().stream().map(TaskHistory::toDisplayString)
                         .collect(Collectors.joining("\n")));
                 streamTask.setState(StreamTask.State.FAILED);
+                streamTask.setRetryable(retryPolicy.isRetryable(throwable));
+                countTask(unitOfWork, streamTask);
+                if (streamWorkerConfiguration.isContinueOnTaskFailure()) {
+                    streamTask.error(streamTask.getName(), "execute", "failed", streamTask.getId(), null, throwable,
+                        null, "Stream Task failed, continuing with remaining tasks");
+                    return Mono.just(streamTask);
+                }
+                reportHistory(streamTask);
                 return Mono.error(throwable);
-//                return Mono.just(streamTask);
             });
     }
 
+    /**
+     * Stream Tasks that completed, or failed with an error that is not retryable, are skipped when a Unit Of Work is
+     * retried.
+     */
+    private boolean isExecutable(T streamTask) {
+        return !streamTask.isCompleted() && !(streamTask.isFailed() && !streamTask.isRetryable());
+    }
+
+    private void countTask(UnitOfWork<T> unitOfWork, T streamTask) {
+        Counter.builder("stream.task.executed")
+            .tags(meterTags)
+            .tag("attempt", unitOfWork.getRetries() > 0 ? "retry" : "first")
+            .tag("state", streamTask.getState().name())
+            .tag("retryable", String.valueOf(streamTask.isRetryable()))
+            .register(Metrics.globalRegistry)
+            .increment();
+    }
+
     private T startTask(UnitOfWork<T> unitOfWork, T streamTask) {
         log.info("Starting Task: {} from Unit Of Work: {}", streamTask.getId(), unitOfWork.getUnitOfOWorkId());
+        streamTask.configureHistory(streamWorkerConfiguration.getHistoryDepth(),
+            streamWorkerConfiguration.getHistoryLevel());
         streamTask.setState(StreamTask.State.IN_PROGRESS);
         streamTask.setRegisteredAt(OffsetDateTime.now());
         return streamTask;
@@ -163,10 +426,21 @@ public abstract class UnitOfWorkExecutor<T extends StreamTask> {
         log.info("Ending Task: {} from Unit Of Work: {}", streamTask.getId(), unitOfWork.getUnitOfOWorkId());
         streamTask.setFinishedAt(OffsetDateTime.now());
         streamTask.logSummary();
+        reportHistory(streamTask);
         return streamTask;
     }
 
+    private void reportHistory(T streamTask) {
+        if (historySpanReporter != null) {
+            historySpanReporter.report(streamTask);
+        }
+    }
+
     public StreamWorkerConfiguration getStreamWorkerConfiguration() {
         return streamWorkerConfiguration;
     }
+
+    public BackoffRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
 }
@@ -0,0 +1,69 @@
+package com.backbase.stream.worker.batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import reactor.core.publisher.Flux;
+
+/**
+ * Batches unbounded streams on size or time without overflowing slow subscribers.
+ *
+ * <p>{@code bufferTimeout} emits on its timer whether the subscriber requested a batch or not, and fails with an
+ * overflow error when the subscriber is slower than the timer. Here a batch is only collected when one is requested,
+ * and flushes arriving while none is are dropped.</p>
+ */
+public final class Batching {
+
+    private Batching() {
+    }
+
+    /**
+     * Batch a stream on size, or on a flush every {@code flushInterval}. Flushes stop once the source completes, and
+     * empty batches are never emitted.
+     *
+     * @param source        Items to batch
+     * @param batchSize     Maximum number of items in a batch
+     * @param flushInterval Interval at which a partial batch is emitted
+     * @param <T>           Item type
+     * @return Batches in the order of the source
+     */
+    public static <T> Flux<List<T>> batch(Flux<T> source, int batchSize, Duration flushInterval) {
+        int maxSize = Math.max(1, batchSize);
+        return source.<List<Object>>publish(items -> {
+            Flux<Object> flushes = Flux.interval(flushInterval)
+                .<Object>map(tick -> Flush.INSTANCE)
+                .onBackpressureDrop()
+                .takeUntilOther(items.then());
+            AtomicInteger size = new AtomicInteger();
+            return Flux.<Object>merge(items, flushes)
+                .bufferUntil(item -> {
+                    if (item == Flush.INSTANCE || size.incrementAndGet() == maxSize) {
+                        size.set(0);
+                        return true;
+                    }
+                    return false;
+                });
+        })
+            .map(Batching::<T>withoutFlushes)
+            .filter(batch -> !batch.isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> withoutFlushes(List<Object> buffer) {
+        List<T> batch = new ArrayList<>(buffer.size());
+        for (Object item : buffer) {
+            if (item != Flush.INSTANCE) {
+                batch.add((T) item);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Marks a flush among the items of a stream.
+     */
+    private enum Flush {
+        INSTANCE
+    }
+}
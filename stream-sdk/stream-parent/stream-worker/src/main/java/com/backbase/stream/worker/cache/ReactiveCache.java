@@ -0,0 +1,163 @@
+package com.backbase.stream.worker.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-through cache for reactive lookups, such as DBS calls by external id.
+ *
+ * <p>A value expires {@code ttl} after it was loaded, and the least recently used entry is evicted once more than
+ * {@code maximumSize} entries are cached. Concurrent misses for the same key share a single load. Empty results and
+ * errors are not cached, so the next lookup tries again.</p>
+ *
+ * <p>Reported meters, tagged with {@code cache}: {@code stream.cache.gets} tagged with {@code result} hit, miss or
+ * coalesced, {@code stream.cache.evictions}, {@code stream.cache.size} and {@code stream.cache.hit-ratio}, the share
+ * of gets that did not start a load.</p>
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+@Slf4j
+public class ReactiveCache<K, V> {
+
+    private final String name;
+    private final long ttlMillis;
+    private final int maximumSize;
+    private final Clock clock;
+    private final Map<K, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ReactiveCache(String name, Duration ttl, int maximumSize) {
+        this(name, ttl, maximumSize, Clock.systemUTC());
+    }
+
+    ReactiveCache(String name, Duration ttl, int maximumSize, Clock clock) {
+        this.name = name;
+        this.ttlMillis = ttl.toMillis();
+        this.maximumSize = Math.max(1, maximumSize);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                if (size() > ReactiveCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        Tags tags = Tags.of("cache", name);
+        FunctionCounter.builder("stream.cache.gets", hits, LongAdder::sum).tags(tags).tag("result", "hit")
+            .register(Metrics.globalRegistry);
+        FunctionCounter.builder("stream.cache.gets", misses, LongAdder::sum).tags(tags).tag("result", "miss")
+            .register(Metrics.globalRegistry);
+        FunctionCounter.builder("stream.cache.gets", coalesced, LongAdder::sum).tags(tags).tag("result", "coalesced")
+            .register(Metrics.globalRegistry);
+        FunctionCounter.builder("stream.cache.evictions", evictions, LongAdder::sum).tags(tags)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("stream.cache.size", this, ReactiveCache::size).tags(tags).register(Metrics.globalRegistry);
+        Gauge.builder("stream.cache.hit-ratio", this, ReactiveCache::hitRatio).tags(tags)
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Get the cached value for the key, or load it. The loader is only called on subscription, and not at all while
+     * another load for the same key is in flight.
+     *
+     * @param key    Key to look up
+     * @param loader Loads the value of a key, or completes empty when it does not exist
+     * @return Cached or loaded value
+     */
+    public Mono<V> get(K key, Function<? super K, ? extends Mono<? extends V>> loader) {
+        return Mono.defer(() -> {
+            Entry entry;
+            synchronized (this) {
+                entry = entries.get(key);
+                if (entry != null && entry.isExpired(clock.millis())) {
+                    entries.remove(key);
+                    evictions.increment();
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = load(key, loader);
+                    entries.put(key, entry);
+                    misses.increment();
+                } else if (entry.loadedAt < 0) {
+                    coalesced.increment();
+                } else {
+                    hits.increment();
+                }
+            }
+            return entry.value;
+        });
+    }
+
+    /**
+     * Drop the cached value of a key, for instance after it was created, updated or deleted.
+     *
+     * @param key Key to drop
+     */
+    public synchronized void invalidate(K key) {
+        if (entries.remove(key) != null) {
+            log.debug("Invalidated {} in {} cache", key, name);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public double hitRatio() {
+        double saved = hits.sum() + coalesced.sum();
+        double total = saved + misses.sum();
+        return total == 0 ? 0 : saved / total;
+    }
+
+    private Entry load(K key, Function<? super K, ? extends Mono<? extends V>> loader) {
+        Entry entry = new Entry();
+        entry.value = Mono.<V>defer(() -> loader.apply(key))
+            .doOnSuccess(value -> {
+                if (value != null) {
+                    entry.loadedAt = clock.millis();
+                } else {
+                    remove(key, entry);
+                }
+            })
+            .doOnError(throwable -> remove(key, entry))
+            .cache();
+        return entry;
+    }
+
+    private synchronized void remove(K key, Entry entry) {
+        entries.remove(key, entry);
+    }
+
+    private class Entry {
+
+        private Mono<V> value;
+        private volatile long loadedAt = -1;
+
+        private boolean isExpired(long now) {
+            return loadedAt >= 0 && now - loadedAt >= ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.backbase.stream.worker.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Shares identical reactive calls that are in flight at the same time, such as concurrent sagas looking up the same
+ * realm or function groups.
+ *
+ * <p>The first subscriber for a key starts the call, and every subscriber arriving before it completes receives the
+ * same result, including errors. Nothing is kept once the call completes, so the next subscriber starts a new call.
+ * Results are shared between subscribers, so callers must not modify them.</p>
+ *
+ * <p>Reported meter, tagged with {@code name}: {@code stream.single-flight.calls} tagged with {@code result}
+ * executed or shared, the latter being the calls saved.</p>
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(String name) {
+        Tags tags = Tags.of("name", name);
+        FunctionCounter.builder("stream.single-flight.calls", executed, LongAdder::sum).tags(tags)
+            .tag("result", "executed").register(Metrics.globalRegistry);
+        FunctionCounter.builder("stream.single-flight.calls", shared, LongAdder::sum).tags(tags)
+            .tag("result", "shared").register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Subscribe to the call in flight for the key, or start it.
+     *
+     * @param key  Key identifying the call, for instance its arguments
+     * @param call Call to start when none is in flight for the key
+     * @return Result of the shared call
+     */
+    public Mono<V> execute(K key, Supplier<? extends Mono<? extends V>> call) {
+        return Mono.defer(() -> {
+            boolean[] started = new boolean[1];
+            Mono<V> flight = inFlight.computeIfAbsent(key, k -> {
+                started[0] = true;
+                return start(k, call);
+            });
+            (started[0] ? executed : shared).increment();
+            return flight;
+        });
+    }
+
+    public long getSavedCalls() {
+        return shared.sum();
+    }
+
+    private Mono<V> start(K key, Supplier<? extends Mono<? extends V>> call) {
+        AtomicReference<Mono<V>> flight = new AtomicReference<>();
+        // Leave before the result is emitted, so subscribers reacting to it start a new call
+        flight.set(Mono.<V>defer(call)
+            .doOnSuccess(value -> inFlight.remove(key, flight.get()))
+            .doOnError(throwable -> inFlight.remove(key, flight.get()))
+            .doOnCancel(() -> inFlight.remove(key, flight.get()))
+            .cache());
+        return flight.get();
+    }
+}
@@ -1,5 +1,7 @@
 package com.backbase.stream.worker.configuration;
 
+import com.backbase.stream.worker.model.StreamTask;
+import com.backbase.stream.worker.model.TaskHistory;
 import java.time.Duration;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -11,6 +13,23 @@ public abstract class StreamWorkerConfiguration {
 
     private int taskExecutors = 1 ;
 
+    /**
+     * Maximum number of Stream Tasks of a single Unit Of Work executed at the same time.
+     */
+    private int taskConcurrency = 256;
+
+    /**
+     * Execute the Stream Tasks of a Unit Of Work and emit their results in registration order. With a
+     * {@code taskConcurrency} of 1 the tasks run strictly one after the other.
+     */
+    private boolean orderedTaskExecution = false;
+
+    /**
+     * Keep executing the remaining Stream Tasks of a Unit Of Work when one of them fails. Failed tasks are reported
+     * when the Unit Of Work completes, and a retry of the unit only runs the tasks that failed with a retryable error.
+     */
+    private boolean continueOnTaskFailure = false;
+
     private int maxRetries = 3;
 
     private int bufferSize = 10;
@@ -19,10 +38,88 @@ public abstract class StreamWorkerConfiguration {
 
     private Duration schedulerIntervalDuration = Duration.ofSeconds(5);
 
+    /**
+     * Maximum number of due Units Of Work claimed per scheduler poll. With a value above 1 the scheduler claims a
+     * batch, executes it with at most {@code workerUnitExecutors} units in parallel and polls again straight away
+     * while full batches are found.
+     */
+    private int schedulerBatchSize = 1;
+
+    /**
+     * Minimum time between two counts of the due Units Of Work for the {@code stream.unit-of-work.backlog} gauge, in
+     * batch scheduler mode.
+     */
+    private Duration backlogSampleInterval = Duration.ofMinutes(1);
+
+    /**
+     * Delay before the first retry of a failed Unit Of Work. Later retries back off exponentially.
+     */
     private Duration retryDuration = Duration.ofMinutes(1);
 
+    /**
+     * Factor applied to the retry delay for every further retry.
+     */
+    private double retryMultiplier = 2.0;
+
+    /**
+     * Upper bound of the retry delay.
+     */
+    private Duration maxRetryDuration = Duration.ofMinutes(30);
+
+    /**
+     * Fraction of the retry delay, between 0 and 1, that is randomly taken off to spread out retries.
+     */
+    private double retryJitter = 0.5;
+
+    /**
+     * Minimum time between two Stream Task executions of this executor type.
+     */
     private Duration delayBetweenTasks = Duration.ZERO;
 
+    /**
+     * Maximum number of Stream Task executions per second for this executor type. Disabled when not positive.
+     */
     private int rateLimit = -1;
 
+    /**
+     * Executors configuring the same group share one rate limiter, for instance all executors that target the same
+     * DBS host. Defaults to a limiter per executor type.
+     */
+    private String rateLimitGroup;
+
+    /**
+     * Maximum number of history entries kept per Stream Task. Older entries are dropped.
+     */
+    private int historyDepth = StreamTask.DEFAULT_HISTORY_DEPTH;
+
+    /**
+     * Minimum severity of the history entries recorded for a Stream Task.
+     */
+    private TaskHistory.Severity historyLevel = TaskHistory.Severity.INFO;
+
+    /**
+     * Attach the history of each Stream Task to the current span when the task ends.
+     */
+    private boolean historyTracing = true;
+
+    /**
+     * Fraction of the non error history entries, between 0 and 1, added to the span as annotations. Error entries are
+     * always added.
+     */
+    private double historyTraceSampleRate = 0.0;
+
+    private Duration terminalUnitRetention = Duration.ofHours(1);
+
+    /**
+     * Identifies this worker as lock owner of the Units Of Work it claims. Defaults to a random id per executor.
+     */
+    private String workerId;
+
+    /**
+     * How long a claimed Unit Of Work stays locked. The owning worker renews the lease every third of this duration
+     * while it executes the unit. When the worker stops renewing it, for instance because it crashed, other workers
+     * may claim the unit again once the lease expires.
+     */
+    private Duration lockLeaseDuration = Duration.ofMinutes(15);
+
 }
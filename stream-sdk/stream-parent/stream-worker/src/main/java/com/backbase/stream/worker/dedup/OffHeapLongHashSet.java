@@ -0,0 +1,126 @@
+package com.backbase.stream.worker.dedup;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+
+/**
+ * Open addressing hash set of {@code long} values stored in a direct buffer, outside the Java heap.
+ *
+ * <p>Uses linear probing and doubles its capacity when more than half full. The value {@code 0} marks an empty slot
+ * and is stored as {@code 1} instead. Not thread safe.</p>
+ *
+ * <p>Byte offsets into the buffer are {@code int}s, so the capacity is capped at {@link #MAX_CAPACITY} slots, a 1 GiB
+ * buffer holding up to half as many values. Adding beyond that fails with an {@link IllegalStateException}.</p>
+ */
+class OffHeapLongHashSet {
+
+    static final int MAX_CAPACITY = 1 << 27;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final int maxCapacity;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int size;
+
+    OffHeapLongHashSet(int expectedSize) {
+        this(expectedSize, MAX_CAPACITY);
+    }
+
+    OffHeapLongHashSet(int expectedSize, int maxCapacity) {
+        if (maxCapacity < MIN_CAPACITY || maxCapacity > MAX_CAPACITY || Integer.bitCount(maxCapacity) != 1) {
+            throw new IllegalArgumentException("Maximum capacity must be a power of two between " + MIN_CAPACITY
+                + " and " + MAX_CAPACITY + ": " + maxCapacity);
+        }
+        this.maxCapacity = maxCapacity;
+        allocate(capacityFor(expectedSize, maxCapacity));
+    }
+
+    boolean add(long value) {
+        long key = value == 0 ? 1 : value;
+        if (size + 1 > (mask + 1) / 2) {
+            if (contains(key)) {
+                return false;
+            }
+            grow();
+        }
+        if (insert(slots, mask, key)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    boolean contains(long value) {
+        long key = value == 0 ? 1 : value;
+        for (int slot = index(key, mask); ; slot = (slot + 1) & mask) {
+            long current = slots.getLong(slot << 3);
+            if (current == 0) {
+                return false;
+            }
+            if (current == key) {
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongConsumer consumer) {
+        for (int slot = 0; slot <= mask; slot++) {
+            long current = slots.getLong(slot << 3);
+            if (current != 0) {
+                consumer.accept(current);
+            }
+        }
+    }
+
+    private void grow() {
+        ByteBuffer previous = slots;
+        int previousCapacity = mask + 1;
+        if (previousCapacity >= maxCapacity) {
+            throw new IllegalStateException("Off heap set is full: " + size + " values in " + previousCapacity
+                + " slots");
+        }
+        allocate(previousCapacity * 2);
+        for (int slot = 0; slot < previousCapacity; slot++) {
+            long current = previous.getLong(slot << 3);
+            if (current != 0) {
+                insert(slots, mask, current);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = ByteBuffer.allocateDirect(capacity << 3);
+        mask = capacity - 1;
+    }
+
+    private static boolean insert(ByteBuffer slots, int mask, long key) {
+        for (int slot = index(key, mask); ; slot = (slot + 1) & mask) {
+            long current = slots.getLong(slot << 3);
+            if (current == key) {
+                return false;
+            }
+            if (current == 0) {
+                slots.putLong(slot << 3, key);
+                return true;
+            }
+        }
+    }
+
+    private static int index(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    static int capacityFor(int expectedSize, int maxCapacity) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < maxCapacity) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,279 @@
+package com.backbase.stream.worker.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Remembers recently seen keys, such as transaction external ids, to drop duplicates.
+ *
+ * <p>Keys are reduced to a 64 bit hash. Each time window keeps a Bloom filter in front of an exact off heap set of
+ * these hashes: most unknown keys are rejected by the Bloom filter alone, and the set rules out its false positives.
+ * Two windows are kept, so a key is remembered for at least {@code window} and at most twice as long.</p>
+ *
+ * <p>The windows can be written to and restored from a snapshot file. Reported meters, tagged with {@code name}:
+ * {@code stream.dedup.checked}, {@code stream.dedup.hits} and {@code stream.dedup.bloom-false-positives}.</p>
+ */
+@Slf4j
+public class TimeWindowedDeduplicator {
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final String name;
+    private final Duration window;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final Clock clock;
+
+    private Generation current;
+    private Generation previous;
+
+    private final Counter checked;
+    private final Counter hits;
+    private final Counter falsePositives;
+
+    public TimeWindowedDeduplicator(String name, Duration window, int expectedInsertions, double falsePositiveRate) {
+        this(name, window, expectedInsertions, falsePositiveRate, Clock.systemUTC());
+    }
+
+    TimeWindowedDeduplicator(String name, Duration window, int expectedInsertions, double falsePositiveRate,
+        Clock clock) {
+        this.name = name;
+        this.window = window;
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        this.falsePositiveRate = falsePositiveRate;
+        this.clock = clock;
+        this.current = newGeneration(clock.instant());
+
+        Tags tags = Tags.of("name", name);
+        this.checked = Counter.builder("stream.dedup.checked").tags(tags).register(Metrics.globalRegistry);
+        this.hits = Counter.builder("stream.dedup.hits").tags(tags).register(Metrics.globalRegistry);
+        this.falsePositives = Counter.builder("stream.dedup.bloom-false-positives").tags(tags)
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Check whether the key was recorded within the window.
+     *
+     * @param key Key to check
+     * @return {@code true} for a duplicate
+     */
+    public synchronized boolean isDuplicate(String key) {
+        rotate();
+        checked.increment();
+        long hash = hash(key);
+        boolean duplicate = current.contains(hash) || (previous != null && previous.contains(hash));
+        if (duplicate) {
+            hits.increment();
+        }
+        return duplicate;
+    }
+
+    /**
+     * Record a key, for instance once the transaction it identifies was accepted.
+     *
+     * @param key Key to record
+     */
+    public synchronized void record(String key) {
+        rotate();
+        current.add(hash(key));
+    }
+
+    public synchronized int size() {
+        return current.set.size() + (previous != null ? previous.set.size() : 0);
+    }
+
+    /**
+     * Write both windows to the given file. The file is replaced atomically.
+     *
+     * @param file Snapshot file
+     * @throws IOException When the snapshot cannot be written
+     */
+    public synchronized void snapshot(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporary);
+            DataOutputStream output = new DataOutputStream(new GZIPOutputStream(outputStream))) {
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeInt(previous != null ? 2 : 1);
+            if (previous != null) {
+                writeGeneration(output, previous);
+            }
+            writeGeneration(output, current);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Wrote {} snapshot with {} keys to {}", name, size(), file);
+    }
+
+    /**
+     * Replace the windows with those of the given snapshot file, if it exists. Windows that expired meanwhile are
+     * dropped.
+     *
+     * @param file Snapshot file
+     * @throws IOException When the snapshot cannot be read
+     */
+    public synchronized void restore(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (InputStream inputStream = Files.newInputStream(file);
+            DataInputStream input = new DataInputStream(new GZIPInputStream(inputStream))) {
+            int version = input.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported dedup snapshot version " + version + " in " + file);
+            }
+            int generations = input.readInt();
+            Generation restoredPrevious = null;
+            Generation restoredCurrent = null;
+            for (int i = 0; i < generations; i++) {
+                Generation generation = newGeneration(Instant.ofEpochMilli(input.readLong()));
+                int size = input.readInt();
+                for (int j = 0; j < size; j++) {
+                    generation.add(input.readLong());
+                }
+                restoredPrevious = restoredCurrent;
+                restoredCurrent = generation;
+            }
+            if (restoredCurrent != null) {
+                current = restoredCurrent;
+                previous = restoredPrevious;
+            }
+        }
+        rotate();
+        log.info("Restored {} with {} keys from {}", name, size(), file);
+    }
+
+    /**
+     * Write a snapshot at a fixed interval, and a last one when the returned subscription is disposed.
+     *
+     * @param file     Snapshot file
+     * @param interval Time between snapshots
+     * @return Subscription to dispose on shutdown
+     */
+    public Disposable scheduleSnapshots(Path file, Duration interval) {
+        return Flux.interval(interval, interval)
+            .doFinally(signalType -> snapshotQuietly(file))
+            .subscribe(tick -> snapshotQuietly(file));
+    }
+
+    private void snapshotQuietly(Path file) {
+        try {
+            snapshot(file);
+        } catch (IOException e) {
+            log.warn("Failed to write {} snapshot to {}: {}", name, file, e.getMessage());
+        }
+    }
+
+    private void rotate() {
+        Instant now = clock.instant();
+        if (!current.createdAt.plus(window).isAfter(now)) {
+            boolean currentExpired = !current.createdAt.plus(window.multipliedBy(2)).isAfter(now);
+            previous = currentExpired ? null : current;
+            current = newGeneration(now);
+        }
+        if (previous != null && !previous.createdAt.plus(window.multipliedBy(2)).isAfter(now)) {
+            previous = null;
+        }
+    }
+
+    private Generation newGeneration(Instant createdAt) {
+        return new Generation(createdAt, expectedInsertions, falsePositiveRate);
+    }
+
+    private static void writeGeneration(DataOutputStream output, Generation generation) throws IOException {
+        output.writeLong(generation.createdAt.toEpochMilli());
+        output.writeInt(generation.set.size());
+        IOException[] failure = new IOException[1];
+        generation.set.forEach(value -> {
+            if (failure[0] == null) {
+                try {
+                    output.writeLong(value);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private class Generation {
+
+        private final Instant createdAt;
+        private final long[] bits;
+        private final int hashFunctions;
+        private final OffHeapLongHashSet set;
+
+        private Generation(Instant createdAt, int expectedInsertions, double falsePositiveRate) {
+            this.createdAt = createdAt;
+            long bitCount = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new long[(int) Math.max(1, (bitCount + 63) / 64)];
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+            this.set = new OffHeapLongHashSet(expectedInsertions);
+        }
+
+        private void add(long hash) {
+            if (set.add(hash)) {
+                long bitCount = bits.length * 64L;
+                int h1 = (int) hash;
+                int h2 = (int) (hash >>> 32);
+                for (int i = 1; i <= hashFunctions; i++) {
+                    long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                    bits[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+
+        private boolean contains(long hash) {
+            long bitCount = bits.length * 64L;
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            if (set.contains(hash)) {
+                return true;
+            }
+            falsePositives.increment();
+            return false;
+        }
+    }
+}
@@ -1,76 +1,117 @@
 package com.backbase.stream.worker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.sleuth.annotation.ContinueSpan;
-import org.springframework.cloud.sleuth.annotation.SpanTag;
 
 @Data
 @NoArgsConstructor
 @Slf4j
 public abstract class StreamTask {
 
+    public static final int DEFAULT_HISTORY_DEPTH = 1000;
+
     private String id;
 
     private OffsetDateTime registeredAt;
     private OffsetDateTime finishedAt;
     private State state;
 
-    // Temporary until
-    private List<TaskHistory> history = new ArrayList<>();
+    /**
+     * Cleared when the task failed with an error that will not go away on a later attempt.
+     */
+    private boolean retryable = true;
+
+    /**
+     * Most recent history entries, bounded by {@link #DEFAULT_HISTORY_DEPTH} unless configured otherwise.
+     */
+    private List<TaskHistory> history = new TaskHistoryBuffer(DEFAULT_HISTORY_DEPTH);
+
+    /**
+     * Entries below this severity are not recorded.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private TaskHistory.Severity historyLevel = TaskHistory.Severity.INFO;
 
     public StreamTask(String id) {
         this.id = id;
     }
 
+    /**
+     * Bound the history of this task. Entries already recorded are kept as far as they fit.
+     *
+     * @param depth Maximum number of entries kept
+     * @param level Minimum severity of recorded entries
+     */
+    public void configureHistory(int depth, TaskHistory.Severity level) {
+        this.historyLevel = level != null ? level : TaskHistory.Severity.INFO;
+        if (!(history instanceof TaskHistoryBuffer) || ((TaskHistoryBuffer) history).getCapacity() != depth) {
+            history = new TaskHistoryBuffer(depth, history);
+        }
+    }
+
+    public void setHistory(List<TaskHistory> history) {
+        int depth = this.history instanceof TaskHistoryBuffer
+            ? ((TaskHistoryBuffer) this.history).getCapacity()
+            : DEFAULT_HISTORY_DEPTH;
+        this.history = new TaskHistoryBuffer(depth, history);
+    }
+
     public void info(String entity, String operation, String result, String externalId, String internalId,
         String message, Object... messageArgs) {
-        addHistory(entity, operation, result, externalId, internalId, String.format(message, messageArgs),
-            TaskHistory.Severity.INFO, null, null);
+        record(entity, operation, result, externalId, internalId, TaskHistory.Severity.INFO, null, null, message,
+            messageArgs);
     }
 
     public void warn(String entity, String operation, String result, String externalId, String internalId,
         String message, Object... messageArgs) {
-        addHistory(entity, operation, result, externalId, internalId, String.format(message, messageArgs),
-            TaskHistory.Severity.WARN, null, null);
+        record(entity, operation, result, externalId, internalId, TaskHistory.Severity.WARN, null, null, message,
+            messageArgs);
     }
 
     public void error(String entity, String operation, String result, String externalId, String internalId,
         String message, Object... messageArgs) {
-        addHistory(entity, operation, result, externalId, internalId, String.format(message, messageArgs),
-            TaskHistory.Severity.ERROR, null, null);
+        record(entity, operation, result, externalId, internalId, TaskHistory.Severity.ERROR, null, null, message,
+            messageArgs);
     }
 
     public void error(String entity, String operation, String result, String externalId, String internalId,
         Throwable throwable, String errorMessage, String message, Object... messageArgs) {
-        addHistory(entity, operation, result, externalId, internalId, String.format(message, messageArgs),
-            TaskHistory.Severity.ERROR, throwable, errorMessage);
+        record(entity, operation, result, externalId, internalId, TaskHistory.Severity.ERROR, throwable, errorMessage,
+            message, messageArgs);
+    }
+
+    public void addHistory(String entity, String operation, String result, String externalId, String internalId,
+        String message, TaskHistory.Severity severity, Throwable throwable, String errorMessage) {
+        record(entity, operation, result, externalId, internalId, severity, throwable, errorMessage, message, null);
     }
 
-    @ContinueSpan
-    public void addHistory(
-        @SpanTag("entity") String entity,
-        @SpanTag("operation") String operation,
-        @SpanTag("result") String result,
-        @SpanTag("externalId") String externalId,
-        @SpanTag("internalId") String internalId,
-        @SpanTag("message") String message,
-        @SpanTag("severity") TaskHistory.Severity severity,
-        @SpanTag("severity") Throwable throwable,
-        @SpanTag("severity") String errorMessage) {
+    private void record(String entity, String operation, String result, String externalId, String internalId,
+        TaskHistory.Severity severity, Throwable throwable, String errorMessage, String message,
+        Object[] messageArgs) {
+        if (severity.compareTo(historyLevel) < 0) {
+            return;
+        }
         TaskHistory taskHistory = new TaskHistory();
-        taskHistory.setTimestamp(OffsetDateTime.now());
+        taskHistory.setTimestamp(System.currentTimeMillis());
         taskHistory.setEntity(entity);
         taskHistory.setOperation(operation);
         taskHistory.setResult(result);
         taskHistory.setExternalId(externalId);
         taskHistory.setInternalId(internalId);
-        taskHistory.setMessage(message);
+        if (messageArgs == null) {
+            taskHistory.setMessage(message);
+        } else {
+            taskHistory.setMessage(message, messageArgs);
+        }
         taskHistory.setSeverity(severity);
         taskHistory.setErrorMessage(errorMessage);
         if (throwable != null && errorMessage == null) {
@@ -80,7 +121,10 @@ public abstract class StreamTask {
     }
 
     public StreamTask addHistory(List<TaskHistory> history) {
-        this.history.addAll(history);
+        history.stream()
+            .filter(taskHistory -> taskHistory.getSeverity() == null
+                || taskHistory.getSeverity().compareTo(historyLevel) >= 0)
+            .forEach(this.history::add);
         return this;
     }
 
@@ -103,12 +147,13 @@ public abstract class StreamTask {
 
     public void logSummary() {
         if (log.isDebugEnabled()) {
+            long dropped = history instanceof TaskHistoryBuffer ? ((TaskHistoryBuffer) history).getDropped() : 0;
             log.info("\n\n" +
                     "Stream Task: {}\n" +
                     "Status: {}\n\n" +
-                    "History:\n{}\n",
+                    "History ({} older entries dropped):\n{}\n",
                 this.getId(),
-                this.getState(), "\t" + this.getHistory().stream().map(TaskHistory::toDisplayString)
+                this.getState(), dropped, "\t" + this.getHistory().stream().map(TaskHistory::toDisplayString)
                     .collect(Collectors.joining("\n\t")));
         }
     }
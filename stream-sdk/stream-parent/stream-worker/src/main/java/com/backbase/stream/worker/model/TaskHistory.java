@@ -1,12 +1,24 @@
 package com.backbase.stream.worker.model;
 
-import java.time.OffsetDateTime;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.TemporalAccessor;
+import java.util.UUID;
+import java.util.function.Supplier;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
 public class TaskHistory {
 
-    private OffsetDateTime timestamp;
+    /**
+     * Epoch milliseconds.
+     */
+    private long timestamp;
 
     private String entity;
     private String internalId;
@@ -15,25 +27,124 @@ public class TaskHistory {
     private String operation;
     private String result;
 
+    @EqualsAndHashCode.Exclude
     private String message;
     private String errorMessage;
     private String resolution;
     private Severity severity;
 
+    /**
+     * Format and arguments of a message that has not been rendered yet. See {@link #getMessage()}.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String messageFormat;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Object[] messageArgs;
+
     public enum Severity {
         INFO,
         WARN,
         ERROR
     }
 
+    private static class LazyArgument {
+
+        private final Supplier<?> supplier;
+
+        private LazyArgument(Supplier<?> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(supplier.get());
+        }
+    }
+
+    /**
+     * Keep the message format and its arguments to render the message only when it is read. Arguments that may still
+     * change, such as collections or entities, are rendered to a string straight away, so the message shows their
+     * state at the time it was recorded. Immutable values and {@link #lazy(Supplier)} arguments are kept as they are.
+     *
+     * @param messageFormat {@link String#format(String, Object...)} format
+     * @param messageArgs   Format arguments
+     */
+    public void setMessage(String messageFormat, Object... messageArgs) {
+        this.message = null;
+        this.messageFormat = messageFormat;
+        this.messageArgs = snapshot(messageArgs);
+    }
+
+    /**
+     * Rendered message, also used to compare entries, whether or not it was rendered before.
+     *
+     * @return Message
+     */
+    @EqualsAndHashCode.Include
+    public synchronized String getMessage() {
+        if (message == null && messageFormat != null) {
+            message = String.format(messageFormat, messageArgs);
+            messageFormat = null;
+            messageArgs = null;
+        }
+        return message;
+    }
+
+    /**
+     * Message argument that is only computed when the message is rendered, for instance to join a long list of ids.
+     * The supplier runs at that later time, so it must only read state that no longer changes.
+     *
+     * @param supplier Computes the argument
+     * @return Argument rendering the supplied value
+     */
+    public static Object lazy(Supplier<?> supplier) {
+        return new LazyArgument(supplier);
+    }
+
+    private static Object[] snapshot(Object[] messageArgs) {
+        if (messageArgs == null || messageArgs.length == 0) {
+            return messageArgs;
+        }
+        Object[] snapshot = new Object[messageArgs.length];
+        for (int i = 0; i < messageArgs.length; i++) {
+            Object argument = messageArgs[i];
+            snapshot[i] = argument == null || isImmutable(argument) ? argument : String.valueOf(argument);
+        }
+        return snapshot;
+    }
+
+    private static boolean isImmutable(Object argument) {
+        return argument instanceof String
+            || argument instanceof Integer
+            || argument instanceof Long
+            || argument instanceof Short
+            || argument instanceof Byte
+            || argument instanceof Double
+            || argument instanceof Float
+            || argument instanceof BigInteger
+            || argument instanceof BigDecimal
+            || argument instanceof Boolean
+            || argument instanceof Character
+            || argument instanceof Enum
+            || argument instanceof UUID
+            || argument instanceof TemporalAccessor && argument.getClass().getName().startsWith("java.time.")
+            || argument instanceof Duration
+            || argument instanceof LazyArgument;
+    }
+
     public String toDisplayString() {
         String entityType = entity != null ? entity.toLowerCase() : "";
         if(errorMessage == null) {
-            return String.format("%s [%s] [%s] [%s] %s - %s", timestamp, severity, String.format("%1$25s", entityType), String.format("%1$15s", operation), externalId, message);
+            return String.format("%s [%s] [%s] [%s] %s - %s", Instant.ofEpochMilli(timestamp), severity, String.format("%1$25s", entityType), String.format("%1$15s", operation), externalId, getMessage());
         } else {
-            return String.format("%s [%s] [%s] [%s] %s - %s: Error Message: %s", timestamp, severity, String.format("%1$25s", entityType), String.format("%1$15s", operation), externalId, message, errorMessage);
+            return String.format("%s [%s] [%s] [%s] %s - %s: Error Message: %s", Instant.ofEpochMilli(timestamp), severity, String.format("%1$25s", entityType), String.format("%1$15s", operation), externalId, getMessage(), errorMessage);
 
         }
 
     }
-}
\ No newline at end of file
+}
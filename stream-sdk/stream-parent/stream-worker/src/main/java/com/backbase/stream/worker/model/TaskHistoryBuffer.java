@@ -0,0 +1,109 @@
+package com.backbase.stream.worker.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Fixed capacity list of {@link TaskHistory} entries. Once full, every added entry overwrites the oldest one, so a
+ * task that logs millions of entries keeps only its most recent history.
+ *
+ * <p>Iterators walk a copy of the entries taken under the lock, so the history can be read, for instance to log it,
+ * while the task keeps adding entries.</p>
+ */
+public class TaskHistoryBuffer extends AbstractList<TaskHistory> {
+
+    private final TaskHistory[] entries;
+    private int head;
+    private int size;
+    private long dropped;
+
+    public TaskHistoryBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Task history capacity must be positive: " + capacity);
+        }
+        this.entries = new TaskHistory[capacity];
+    }
+
+    public TaskHistoryBuffer(int capacity, Collection<TaskHistory> history) {
+        this(capacity);
+        addAll(history);
+    }
+
+    @Override
+    public synchronized boolean add(TaskHistory taskHistory) {
+        entries[(head + size) % entries.length] = taskHistory;
+        if (size < entries.length) {
+            size++;
+        } else {
+            head = (head + 1) % entries.length;
+            dropped++;
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized TaskHistory get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return entries[(head + index) % entries.length];
+    }
+
+    @Override
+    public Iterator<TaskHistory> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public ListIterator<TaskHistory> listIterator(int index) {
+        return snapshot().listIterator(index);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        head = 0;
+        size = 0;
+        dropped = 0;
+        modCount++;
+    }
+
+    private synchronized List<TaskHistory> snapshot() {
+        TaskHistory[] copy = new TaskHistory[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = entries[(head + i) % entries.length];
+        }
+        return Collections.unmodifiableList(Arrays.asList(copy));
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Number of entries overwritten since the buffer was created or cleared.
+     *
+     * @return Dropped entries
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -27,8 +27,13 @@ public class UnitOfWork<T extends StreamTask> {
         return unitOfWork;
     }
 
+    /**
+     * A Unit Of Work is unlocked when it was never locked, or when the lease of its lock has expired because the
+     * worker holding it did not complete it in time.
+     */
     public static <T extends StreamTask> boolean isUnLocked(UnitOfWork<T> unitOfWork) {
-        return unitOfWork.getLockedAt() == null;
+        return unitOfWork.getLockedAt() == null
+            || (unitOfWork.getLockedUntil() != null && unitOfWork.getLockedUntil().isBefore(OffsetDateTime.now()));
     }
 
     public enum State {
@@ -52,12 +57,16 @@ public class UnitOfWork<T extends StreamTask> {
 
     private OffsetDateTime registeredAt;
     private OffsetDateTime lockedAt;
+    private String lockedBy;
+    private OffsetDateTime lockedUntil;
     private OffsetDateTime nextAttemptAt;
     private OffsetDateTime startedAt;
     private OffsetDateTime finishedAt;
 
     private int retries = 0;
 
+    private long version = 0;
+
     public void logSummary() {
         if (log.isDebugEnabled()) {
             log.debug("UnitOfWork: {} Started at: {} Finished at: {} State: {}",
@@ -0,0 +1,202 @@
+package com.backbase.stream.worker.ratelimit;
+
+import com.backbase.stream.worker.configuration.StreamWorkerConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Reactive token bucket that spaces out Stream Task executions.
+ *
+ * <p>The bucket refills one permit every {@code 1s / rateLimit} and holds up to {@code rateLimit} permits, so short
+ * bursts are allowed while the average rate stays capped. When {@code delayBetweenTasks} is set the bucket holds a
+ * single permit and refills no faster than that delay. Permits are handed out in the order they are requested;
+ * callers that find the bucket empty are delayed instead of rejected.</p>
+ *
+ * <p>Limiters are shared by name through {@link #forConfiguration(String, StreamWorkerConfiguration)}. Executors
+ * that configure the same {@code rateLimitGroup}, for instance all executors that target the same DBS host, draw from
+ * one bucket. The first executor registering a group defines its rate.</p>
+ */
+@Slf4j
+public class TokenBucketRateLimiter {
+
+    private static final Map<String, TokenBucketRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final long nanosPerPermit;
+    private final long burstNanos;
+
+    /**
+     * Theoretical arrival time of the next permit, in {@link System#nanoTime()} units.
+     */
+    private final AtomicLong nextPermitAt;
+
+    private final AtomicInteger permitsWaiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter throttledCounter;
+
+    /**
+     * Create a limiter.
+     *
+     * @param name             Name used in logs and as {@code limiter} meter tag
+     * @param permitsPerSecond Average number of permits per second
+     * @param burst            Maximum number of permits handed out without delay after an idle period
+     */
+    public TokenBucketRateLimiter(String name, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limiter " + name + " needs a positive rate and burst");
+        }
+        this.name = name;
+        this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = nanosPerPermit * (burst - 1);
+        this.nextPermitAt = new AtomicLong(System.nanoTime());
+
+        Tags tags = Tags.of("limiter", name);
+        Metrics.globalRegistry.gauge("stream.rate-limiter.permits-waiting", tags, permitsWaiting);
+        this.waitTimer = Timer.builder("stream.rate-limiter.wait").tags(tags).register(Metrics.globalRegistry);
+        this.throttledCounter = Counter.builder("stream.rate-limiter.throttled").tags(tags)
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Get the limiter for the given name, creating it from the configuration on first use.
+     *
+     * @param defaultName   Limiter name used when the configuration does not define a {@code rateLimitGroup}
+     * @param configuration Worker configuration holding {@code rateLimit} and {@code delayBetweenTasks}
+     * @return Shared limiter, or {@code null} when neither {@code rateLimit} nor {@code delayBetweenTasks} is set
+     */
+    public static TokenBucketRateLimiter forConfiguration(String defaultName,
+        StreamWorkerConfiguration configuration) {
+        int rateLimit = configuration.getRateLimit();
+        Duration delayBetweenTasks = configuration.getDelayBetweenTasks();
+        boolean delayed = delayBetweenTasks != null && !delayBetweenTasks.isZero() && !delayBetweenTasks.isNegative();
+        if (rateLimit <= 0 && !delayed) {
+            return null;
+        }
+        String name = configuration.getRateLimitGroup() != null ? configuration.getRateLimitGroup() : defaultName;
+        return LIMITERS.computeIfAbsent(name, key -> {
+            double permitsPerSecond = rateLimit > 0 ? rateLimit : Double.MAX_VALUE;
+            int burst = rateLimit > 0 ? rateLimit : 1;
+            if (delayed) {
+                permitsPerSecond = Math.min(permitsPerSecond,
+                    (double) TimeUnit.SECONDS.toNanos(1) / delayBetweenTasks.toNanos());
+                burst = 1;
+            }
+            log.info("Rate limiting {} to {} permits per second", key, permitsPerSecond);
+            return new TokenBucketRateLimiter(key, permitsPerSecond, burst);
+        });
+    }
+
+    /**
+     * Acquire a single permit.
+     *
+     * @param scheduler Scheduler used to delay the caller when no permit is available
+     * @return Mono completing once the permit is granted
+     */
+    public Mono<Void> acquire(Scheduler scheduler) {
+        return Mono.defer(() -> {
+            long waitNanos = reserve(System.nanoTime());
+            waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+            if (waitNanos <= 0) {
+                return Mono.empty();
+            }
+            permitsWaiting.incrementAndGet();
+            return Mono.delay(Duration.ofNanos(waitNanos), scheduler)
+                .doFinally(signalType -> permitsWaiting.decrementAndGet())
+                .then();
+        });
+    }
+
+    /**
+     * Stop handing out permits for the given duration, for instance after the server answered with
+     * {@code Retry-After}. Pauses never shorten one already in place.
+     *
+     * @param duration Time to wait before the next permit
+     */
+    public void pause(Duration duration) {
+        long pauseUntil = System.nanoTime() + duration.toNanos() + burstNanos;
+        nextPermitAt.accumulateAndGet(pauseUntil, Math::max);
+        throttledCounter.increment();
+        log.warn("Rate limiter {} paused for {}", name, duration);
+    }
+
+    /**
+     * Pause the limiter when the error, or one of its causes, is a {@code 429 Too Many Requests} or
+     * {@code 503 Service Unavailable} response carrying a {@code Retry-After} header.
+     *
+     * @param throwable Error raised by a Stream Task
+     * @return {@code true} when the limiter was paused
+     */
+    public boolean onError(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException) {
+                WebClientResponseException exception = (WebClientResponseException) cause;
+                int status = exception.getRawStatusCode();
+                if (status != HttpStatus.TOO_MANY_REQUESTS.value()
+                    && status != HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                    return false;
+                }
+                Duration retryAfter = parseRetryAfter(exception.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                if (retryAfter == null) {
+                    return false;
+                }
+                pause(retryAfter);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPermitsWaiting() {
+        return permitsWaiting.get();
+    }
+
+    long reserve(long now) {
+        while (true) {
+            long current = nextPermitAt.get();
+            long waitNanos = Math.max(0, current - burstNanos - now);
+            if (nextPermitAt.compareAndSet(current, Math.max(current, now) + nanosPerPermit)) {
+                return waitNanos;
+            }
+        }
+    }
+
+    static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return null;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException notDate) {
+                log.debug("Ignoring malformed Retry-After header: {}", value);
+                return null;
+            }
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.backbase.stream.worker.repository;
 
 import com.backbase.stream.worker.model.StreamTask;
 import com.backbase.stream.worker.model.UnitOfWork;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import org.springframework.data.repository.reactive.ReactiveSortingRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface UnitOfWorkRepository<T extends StreamTask, ID> extends ReactiveSortingRepository<UnitOfWork<T>, ID> {
 
@@ -12,4 +14,40 @@ public interface UnitOfWorkRepository<T extends StreamTask, ID> extends Reactive
 
     Flux<UnitOfWork<T>> findAllByNextAttemptAtBefore(OffsetDateTime currentDateTime);
 
+    /**
+     * Count the Units Of Work that are due, locked or not. Repositories that can count without reading every unit
+     * should override this.
+     *
+     * @param currentDateTime Reference point in time
+     * @return Number of units whose next attempt is before the given time
+     */
+    default Mono<Long> countAllByNextAttemptAtBefore(OffsetDateTime currentDateTime) {
+        return findAllByNextAttemptAtBefore(currentDateTime).count();
+    }
+
+    /**
+     * Atomically lock a Unit Of Work for a worker. The claim only succeeds when the stored version still matches the
+     * expected version and the unit is not locked, or its lock lease has expired.
+     *
+     * @param id              Unit Of Work id
+     * @param expectedVersion Version the caller selected the unit with
+     * @param owner           Identifier of the claiming worker
+     * @param leaseDuration   How long the lock is valid before other workers may reclaim the unit
+     * @return The locked Unit Of Work, or empty when another worker claimed or changed it first
+     */
+    Mono<UnitOfWork<T>> claim(ID id, long expectedVersion, String owner, Duration leaseDuration);
+
+    /**
+     * Atomically extend the lock lease of a Unit Of Work that a worker is still executing. The renewal only succeeds
+     * when the stored version still matches the expected version and the unit is still locked by the owner; it
+     * increments the version, like any other write.
+     *
+     * @param id              Unit Of Work id
+     * @param expectedVersion Version of the unit held by the owner
+     * @param owner           Identifier of the worker holding the lock
+     * @param leaseDuration   How long the lock is valid from now on
+     * @return Whether the lease was renewed; {@code false} when another worker claimed or changed the unit
+     */
+    Mono<Boolean> renewLease(ID id, long expectedVersion, String owner, Duration leaseDuration);
+
 }
@@ -3,9 +3,11 @@ package com.backbase.stream.worker.repository.impl;
 import com.backbase.stream.worker.model.StreamTask;
 import com.backbase.stream.worker.model.UnitOfWork;
 import com.backbase.stream.worker.repository.UnitOfWorkRepository;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.reactivestreams.Publisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.lang.NonNull;
@@ -33,12 +35,47 @@ public class InMemoryReactiveUnitOfWorkRepository<T extends StreamTask> implemen
                 && legalEntityUnitOfWork.getNextAttemptAt().isBefore(currentDateTime)));
     }
 
+    @Override
+    public Mono<UnitOfWork<T>> claim(String unitOfWorkId, long expectedVersion, String owner, Duration leaseDuration) {
+        AtomicBoolean claimed = new AtomicBoolean();
+        UnitOfWork<T> unitOfWork = inMemStorage.computeIfPresent(unitOfWorkId, (id, stored) -> {
+            if (stored.getVersion() == expectedVersion && UnitOfWork.isUnLocked(stored)) {
+                OffsetDateTime now = OffsetDateTime.now();
+                stored.setLockedAt(now);
+                stored.setLockedBy(owner);
+                stored.setLockedUntil(now.plus(leaseDuration));
+                stored.setState(UnitOfWork.State.IN_PROGRESS);
+                stored.setVersion(stored.getVersion() + 1);
+                claimed.set(true);
+            }
+            return stored;
+        });
+        return claimed.get() ? Mono.just(unitOfWork) : Mono.empty();
+    }
+
+    @Override
+    public Mono<Boolean> renewLease(String unitOfWorkId, long expectedVersion, String owner, Duration leaseDuration) {
+        AtomicBoolean renewed = new AtomicBoolean();
+        inMemStorage.computeIfPresent(unitOfWorkId, (id, stored) -> {
+            if (stored.getVersion() == expectedVersion && owner.equals(stored.getLockedBy())) {
+                stored.setLockedUntil(OffsetDateTime.now().plus(leaseDuration));
+                stored.setVersion(stored.getVersion() + 1);
+                renewed.set(true);
+            }
+            return stored;
+        });
+        return Mono.just(renewed.get());
+    }
+
     @Override
     public <S extends UnitOfWork<T>> Mono<S> save(S entity) {
         if (entity.getUnitOfOWorkId() == null) {
             entity.setUnitOfOWorkId(UUID.randomUUID().toString());
         }
-        inMemStorage.put(entity.getUnitOfOWorkId(), entity);
+        inMemStorage.compute(entity.getUnitOfOWorkId(), (id, stored) -> {
+            entity.setVersion(entity.getVersion() + 1);
+            return entity;
+        });
         return Mono.just(entity);
     }
 
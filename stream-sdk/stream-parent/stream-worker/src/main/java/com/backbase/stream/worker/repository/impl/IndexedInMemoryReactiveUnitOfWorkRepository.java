@@ -0,0 +1,198 @@
+package com.backbase.stream.worker.repository.impl;
+
+import com.backbase.stream.worker.model.StreamTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In memory Unit Of Work repository that keeps a time ordered index of the units that are due for execution.
+ *
+ * <p>Selecting due units is a range query on a skip list keyed by {@code nextAttemptAt}, so the scheduler no longer
+ * scans every stored unit on each tick. Units in a terminal state ({@code COMPLETED} and
+ * {@code FAILED_RETRIES_EXHAUSTED}) are evicted once the configured retention has passed. A {@code null} retention
+ * keeps terminal units forever, as {@link InMemoryReactiveUnitOfWorkRepository} does.</p>
+ */
+@Slf4j
+@SuppressWarnings("NullableProblems")
+public class IndexedInMemoryReactiveUnitOfWorkRepository<T extends StreamTask> extends
+    InMemoryReactiveUnitOfWorkRepository<T> {
+
+    private final Duration terminalUnitRetention;
+
+    private final ConcurrentSkipListSet<IndexKey<T>> readyIndex = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, IndexKey<T>> readyKeys = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListSet<IndexKey<T>> evictionIndex = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, IndexKey<T>> evictionKeys = new ConcurrentHashMap<>();
+
+    public IndexedInMemoryReactiveUnitOfWorkRepository(Duration terminalUnitRetention) {
+        this.terminalUnitRetention = terminalUnitRetention;
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAllByNextAttemptAtBefore(OffsetDateTime currentDateTime) {
+        evictExpired(Instant.now());
+        IndexKey<T> upperBound = new IndexKey<>(currentDateTime.toInstant(), "", null);
+        return Flux.fromIterable(readyIndex.headSet(upperBound, false))
+            .map(IndexKey::getUnitOfWork);
+    }
+
+    @Override
+    public <S extends UnitOfWork<T>> Mono<S> save(S entity) {
+        Mono<S> saved = super.save(entity);
+        index(entity);
+        return saved;
+    }
+
+    @Override
+    public Mono<Void> deleteById(String unitOfWorkId) {
+        removeReadyKey(unitOfWorkId);
+        removeEvictionKey(unitOfWorkId);
+        return super.deleteById(unitOfWorkId);
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        readyKeys.clear();
+        readyIndex.clear();
+        evictionKeys.clear();
+        evictionIndex.clear();
+        return super.deleteAll();
+    }
+
+    /**
+     * Remove terminal units whose retention expired before the given instant.
+     *
+     * @param now Reference point in time
+     * @return Number of evicted units
+     */
+    public int evictExpired(Instant now) {
+        int evicted = 0;
+        IndexKey<T> first;
+        while ((first = firstOrNull()) != null && !first.getAt().isAfter(now)) {
+            if (evictionIndex.remove(first) && evictionKeys.remove(first.getId(), first)) {
+                removeReadyKey(first.getId());
+                super.deleteById(first.getId());
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} terminal Units Of Work", evicted);
+        }
+        return evicted;
+    }
+
+    private IndexKey<T> firstOrNull() {
+        Iterator<IndexKey<T>> iterator = evictionIndex.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private void index(UnitOfWork<T> unitOfWork) {
+        String id = unitOfWork.getUnitOfOWorkId();
+        OffsetDateTime nextAttemptAt = unitOfWork.getNextAttemptAt();
+        readyKeys.compute(id, (key, previous) -> {
+            if (previous != null) {
+                readyIndex.remove(previous);
+            }
+            if (nextAttemptAt == null) {
+                return null;
+            }
+            IndexKey<T> indexKey = new IndexKey<>(nextAttemptAt.toInstant(), id, unitOfWork);
+            readyIndex.add(indexKey);
+            return indexKey;
+        });
+
+        boolean terminal = isTerminal(unitOfWork.getState());
+        evictionKeys.compute(id, (key, previous) -> {
+            if (previous != null && terminal) {
+                return previous;
+            }
+            if (previous != null) {
+                evictionIndex.remove(previous);
+            }
+            if (!terminal || terminalUnitRetention == null) {
+                return null;
+            }
+            IndexKey<T> indexKey = new IndexKey<>(Instant.now().plus(terminalUnitRetention), id, unitOfWork);
+            evictionIndex.add(indexKey);
+            return indexKey;
+        });
+    }
+
+    private void removeReadyKey(String id) {
+        IndexKey<T> previous = readyKeys.remove(id);
+        if (previous != null) {
+            readyIndex.remove(previous);
+        }
+    }
+
+    private void removeEvictionKey(String id) {
+        IndexKey<T> previous = evictionKeys.remove(id);
+        if (previous != null) {
+            evictionIndex.remove(previous);
+        }
+    }
+
+    private static boolean isTerminal(UnitOfWork.State state) {
+        return state == UnitOfWork.State.COMPLETED || state == UnitOfWork.State.FAILED_RETRIES_EXHAUSTED;
+    }
+
+    /**
+     * Index entry ordered by instant and then by Unit Of Work id, so entries due at the same time remain distinct.
+     */
+    private static final class IndexKey<T extends StreamTask> implements Comparable<IndexKey<T>> {
+
+        private final Instant at;
+        private final String id;
+        private final UnitOfWork<T> unitOfWork;
+
+        private IndexKey(Instant at, String id, UnitOfWork<T> unitOfWork) {
+            this.at = at;
+            this.id = id;
+            this.unitOfWork = unitOfWork;
+        }
+
+        private Instant getAt() {
+            return at;
+        }
+
+        private String getId() {
+            return id;
+        }
+
+        private UnitOfWork<T> getUnitOfWork() {
+            return unitOfWork;
+        }
+
+        @Override
+        public int compareTo(IndexKey<T> other) {
+            int result = at.compareTo(other.at);
+            return result != 0 ? result : id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey<?> other = (IndexKey<?>) o;
+            return at.equals(other.at) && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * at.hashCode() + id.hashCode();
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.backbase.stream.worker.repository.impl;
+
+import com.backbase.stream.worker.model.StreamTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import com.backbase.stream.worker.repository.UnitOfWorkRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit Of Work repository backed by a relational database through R2DBC.
+ *
+ * <p>Each repository owns one table. Header fields are stored in indexed columns, with timestamps as epoch
+ * milliseconds, and the stream tasks are stored as a GZIP compressed JSON payload. The queries are plain SQL shared by
+ * H2, PostgreSQL and MySQL; only the schema differs per {@link Dialect}. Every write increments the {@code version} column; {@link #claim(String, long, String, Duration)} is a
+ * single conditional update, so concurrent workers sharing the table never lock the same unit. Lease renewals are
+ * conditional updates of the lock columns only.</p>
+ *
+ * <p>Due units are read in pages of {@code batchSize} rows, only when the subscriber asks for them. New units passed
+ * to {@code saveAll} are written with multi row inserts of the same size.</p>
+ */
+@Slf4j
+@SuppressWarnings("NullableProblems")
+public class R2dbcUnitOfWorkRepository<T extends StreamTask> implements UnitOfWorkRepository<T, String> {
+
+    private static final String COLUMNS = "id, state, registered_at, locked_at, locked_by, locked_until, "
+        + "next_attempt_at, started_at, finished_at, retries, version, stream_tasks";
+
+    private static final String VALUES = ":id, :state, :registeredAt, :lockedAt, :lockedBy, :lockedUntil, "
+        + ":nextAttemptAt, :startedAt, :finishedAt, :retries, :version + 1, :streamTasks";
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    private final JavaType streamTasksType;
+    private final String tableName;
+    private final int batchSize;
+    private final Dialect dialect;
+
+    public R2dbcUnitOfWorkRepository(DatabaseClient databaseClient, ObjectMapper objectMapper, Class<T> taskType,
+        String tableName) {
+        this(databaseClient, objectMapper, taskType, tableName, DEFAULT_BATCH_SIZE);
+    }
+
+    public R2dbcUnitOfWorkRepository(DatabaseClient databaseClient, ObjectMapper objectMapper, Class<T> taskType,
+        String tableName, int batchSize) {
+        this(databaseClient, objectMapper, taskType, tableName, batchSize, Dialect.STANDARD);
+    }
+
+    public R2dbcUnitOfWorkRepository(DatabaseClient databaseClient, ObjectMapper objectMapper, Class<T> taskType,
+        String tableName, int batchSize, Dialect dialect) {
+        this.databaseClient = databaseClient;
+        this.batchSize = batchSize;
+        this.dialect = dialect;
+        this.objectMapper = objectMapper.copy()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.streamTasksType = this.objectMapper.getTypeFactory().constructCollectionType(List.class, taskType);
+        this.tableName = tableName;
+    }
+
+    /**
+     * Create the table and its indexes when they do not exist yet. Blocking callers should run this once on startup,
+     * not while creating beans.
+     *
+     * @return Completes when the schema is in place
+     */
+    public Mono<Void> initializeSchema() {
+        String columns = "id VARCHAR(255) NOT NULL PRIMARY KEY, "
+            + "state VARCHAR(32) NOT NULL, "
+            + "registered_at BIGINT, "
+            + "locked_at BIGINT, "
+            + "locked_by VARCHAR(255), "
+            + "locked_until BIGINT, "
+            + "next_attempt_at BIGINT, "
+            + "started_at BIGINT, "
+            + "finished_at BIGINT, "
+            + "retries INT NOT NULL, "
+            + "version BIGINT NOT NULL, "
+            + "stream_tasks " + dialect.binaryType;
+        if (dialect == Dialect.MYSQL) {
+            // MySQL has no CREATE INDEX IF NOT EXISTS, so the indexes are created with the table
+            return execute("CREATE TABLE IF NOT EXISTS " + tableName + " (" + columns + ", "
+                + "INDEX " + tableName + "_next_attempt_at_idx (next_attempt_at), "
+                + "INDEX " + tableName + "_state_idx (state), "
+                + "INDEX " + tableName + "_locked_at_idx (locked_at))");
+        }
+        return execute("CREATE TABLE IF NOT EXISTS " + tableName + " (" + columns + ")")
+            .then(execute("CREATE INDEX IF NOT EXISTS " + tableName + "_next_attempt_at_idx ON " + tableName
+                + " (next_attempt_at)"))
+            .then(execute("CREATE INDEX IF NOT EXISTS " + tableName + "_state_idx ON " + tableName + " (state)"))
+            .then(execute("CREATE INDEX IF NOT EXISTS " + tableName + "_locked_at_idx ON " + tableName
+                + " (locked_at)"));
+    }
+
+    @Override
+    public Mono<UnitOfWork<T>> claim(String unitOfWorkId, long expectedVersion, String owner, Duration leaseDuration) {
+        long now = System.currentTimeMillis();
+        return databaseClient.execute("UPDATE " + tableName + " SET locked_at = :now, locked_by = :owner, "
+            + "locked_until = :lockedUntil, state = :state, version = version + 1 "
+            + "WHERE id = :id AND version = :version AND (locked_at IS NULL OR locked_until < :now)")
+            .bind("now", now)
+            .bind("owner", owner)
+            .bind("lockedUntil", now + leaseDuration.toMillis())
+            .bind("state", UnitOfWork.State.IN_PROGRESS.name())
+            .bind("id", unitOfWorkId)
+            .bind("version", expectedVersion)
+            .fetch()
+            .rowsUpdated()
+            .filter(updated -> updated == 1)
+            .flatMap(updated -> findById(unitOfWorkId));
+    }
+
+    @Override
+    public Mono<Boolean> renewLease(String unitOfWorkId, long expectedVersion, String owner, Duration leaseDuration) {
+        return databaseClient.execute("UPDATE " + tableName + " SET locked_until = :lockedUntil, "
+            + "version = version + 1 WHERE id = :id AND version = :version AND locked_by = :owner")
+            .bind("lockedUntil", System.currentTimeMillis() + leaseDuration.toMillis())
+            .bind("id", unitOfWorkId)
+            .bind("version", expectedVersion)
+            .bind("owner", owner)
+            .fetch()
+            .rowsUpdated()
+            .map(updated -> updated == 1);
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAllByRegisteredAtBefore(OffsetDateTime currentDateTime) {
+        return select("WHERE registered_at < :before ORDER BY registered_at", currentDateTime);
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAllByNextAttemptAtBefore(OffsetDateTime currentDateTime) {
+        long before = toEpochMilli(currentDateTime);
+        return findPageByNextAttemptAtBefore(before, null)
+            .expand(page -> page.units.size() < batchSize
+                ? Mono.empty()
+                : findPageByNextAttemptAtBefore(before, page))
+            .flatMapIterable(page -> page.units);
+    }
+
+    @Override
+    public Mono<Long> countAllByNextAttemptAtBefore(OffsetDateTime currentDateTime) {
+        return databaseClient.execute("SELECT COUNT(*) FROM " + tableName + " WHERE next_attempt_at < :before")
+            .bind("before", toEpochMilli(currentDateTime))
+            .map((row, rowMetadata) -> row.get(0, Long.class))
+            .one();
+    }
+
+    private Mono<Page<T>> findPageByNextAttemptAtBefore(long before, Page<T> previous) {
+        String keyset = previous == null ? ""
+            : "AND (next_attempt_at > :lastAt OR (next_attempt_at = :lastAt AND id > :lastId)) ";
+        GenericExecuteSpec spec = databaseClient.execute("SELECT " + COLUMNS + " FROM " + tableName
+            + " WHERE next_attempt_at < :before " + keyset + "ORDER BY next_attempt_at, id LIMIT " + batchSize)
+            .bind("before", before);
+        if (previous != null) {
+            spec = spec.bind("lastAt", previous.lastAt).bind("lastId", previous.lastId);
+        }
+        return spec.map((row, rowMetadata) -> map(row)).all().collectList().map(Page::new);
+    }
+
+    @Override
+    public <S extends UnitOfWork<T>> Mono<S> save(S entity) {
+        if (entity.getUnitOfOWorkId() == null) {
+            entity.setUnitOfOWorkId(UUID.randomUUID().toString());
+        }
+        return update(entity)
+            .flatMap(updated -> updated == 1 ? Mono.just(entity) : insertIfAbsent(entity))
+            .doOnNext(saved -> saved.setVersion(saved.getVersion() + 1));
+    }
+
+    private <S extends UnitOfWork<T>> Mono<Integer> update(S entity) {
+        return bindHeader(databaseClient.execute("UPDATE " + tableName + " SET state = :state, "
+            + "registered_at = :registeredAt, locked_at = :lockedAt, locked_by = :lockedBy, "
+            + "locked_until = :lockedUntil, next_attempt_at = :nextAttemptAt, started_at = :startedAt, "
+            + "finished_at = :finishedAt, retries = :retries, stream_tasks = :streamTasks, version = version + 1 "
+            + "WHERE id = :id AND version = :version"), entity, "")
+            .fetch()
+            .rowsUpdated();
+    }
+
+    private <S extends UnitOfWork<T>> Mono<S> insertIfAbsent(S entity) {
+        return existsById(entity.getUnitOfOWorkId())
+            .flatMap(exists -> exists
+                ? Mono.<S>error(new OptimisticLockingFailureException(
+                "Unit Of Work: " + entity.getUnitOfOWorkId() + " was modified concurrently"))
+                : bindHeader(databaseClient.execute("INSERT INTO " + tableName + " (" + COLUMNS + ") VALUES ("
+                    + VALUES + ")"), entity, "")
+                    .then()
+                    .thenReturn(entity));
+    }
+
+    /**
+     * Units that were never saved (version 0) are inserted with one multi row insert per batch; units that already
+     * exist are updated one by one, with their version checked.
+     */
+    @Override
+    public <S extends UnitOfWork<T>> Flux<S> saveAll(Iterable<S> entities) {
+        return saveAll(Flux.fromIterable(entities));
+    }
+
+    @Override
+    public <S extends UnitOfWork<T>> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream)
+            .buffer(batchSize)
+            .concatMap(batch -> {
+                List<S> inserts = new ArrayList<>(batch.size());
+                List<S> updates = new ArrayList<>();
+                for (S entity : batch) {
+                    if (entity.getUnitOfOWorkId() == null) {
+                        entity.setUnitOfOWorkId(UUID.randomUUID().toString());
+                    }
+                    (entity.getVersion() == 0 ? inserts : updates).add(entity);
+                }
+                return insertAll(inserts).concatWith(Flux.fromIterable(updates).concatMap(this::save));
+            });
+    }
+
+    private <S extends UnitOfWork<T>> Flux<S> insertAll(List<S> entities) {
+        if (entities.isEmpty()) {
+            return Flux.empty();
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (").append(COLUMNS)
+            .append(") VALUES ");
+        for (int i = 0; i < entities.size(); i++) {
+            sql.append(i == 0 ? "(" : ", (").append(VALUES.replaceAll(":(\\w+)", ":$1" + i)).append(")");
+        }
+        GenericExecuteSpec spec = databaseClient.execute(sql.toString());
+        for (int i = 0; i < entities.size(); i++) {
+            spec = bindHeader(spec, entities.get(i), String.valueOf(i));
+        }
+        return spec.then()
+            .thenMany(Flux.fromIterable(entities))
+            .doOnNext(saved -> saved.setVersion(saved.getVersion() + 1));
+    }
+
+    @Override
+    public Mono<UnitOfWork<T>> findById(String unitOfWorkId) {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM " + tableName + " WHERE id = :id")
+            .bind("id", unitOfWorkId)
+            .map((row, rowMetadata) -> map(row))
+            .one();
+    }
+
+    @Override
+    public Mono<UnitOfWork<T>> findById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String unitOfWorkId) {
+        return databaseClient.execute("SELECT COUNT(*) FROM " + tableName + " WHERE id = :id")
+            .bind("id", unitOfWorkId)
+            .map((row, rowMetadata) -> row.get(0, Long.class))
+            .one()
+            .map(count -> count > 0);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAll() {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM " + tableName)
+            .map((row, rowMetadata) -> map(row))
+            .all();
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAll(Sort sort) {
+        return findAll();
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAllById(Iterable<String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Flux<UnitOfWork<T>> findAllById(Publisher<String> idStream) {
+        return Flux.from(idStream).concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return databaseClient.execute("SELECT COUNT(*) FROM " + tableName)
+            .map((row, rowMetadata) -> row.get(0, Long.class))
+            .one();
+    }
+
+    @Override
+    public Mono<Void> deleteById(String unitOfWorkId) {
+        return databaseClient.execute("DELETE FROM " + tableName + " WHERE id = :id")
+            .bind("id", unitOfWorkId)
+            .then();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(UnitOfWork<T> entity) {
+        return deleteById(entity.getUnitOfOWorkId());
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends UnitOfWork<T>> entities) {
+        return Flux.fromIterable(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends UnitOfWork<T>> entityStream) {
+        return Flux.from(entityStream).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return execute("DELETE FROM " + tableName);
+    }
+
+    private Flux<UnitOfWork<T>> select(String criteria, OffsetDateTime before) {
+        return databaseClient.execute("SELECT " + COLUMNS + " FROM " + tableName + " " + criteria)
+            .bind("before", toEpochMilli(before))
+            .map((row, rowMetadata) -> map(row))
+            .all();
+    }
+
+    private Mono<Void> execute(String sql) {
+        return databaseClient.execute(sql).then();
+    }
+
+    private GenericExecuteSpec bindHeader(GenericExecuteSpec spec, UnitOfWork<T> unitOfWork, String suffix) {
+        spec = spec.bind("id" + suffix, unitOfWork.getUnitOfOWorkId())
+            .bind("state" + suffix, unitOfWork.getState().name())
+            .bind("retries" + suffix, unitOfWork.getRetries())
+            .bind("version" + suffix, unitOfWork.getVersion())
+            .bind("streamTasks" + suffix, writeStreamTasks(unitOfWork));
+        spec = bindNullable(spec, "registeredAt" + suffix, toEpochMilli(unitOfWork.getRegisteredAt()), Long.class);
+        spec = bindNullable(spec, "lockedAt" + suffix, toEpochMilli(unitOfWork.getLockedAt()), Long.class);
+        spec = bindNullable(spec, "lockedBy" + suffix, unitOfWork.getLockedBy(), String.class);
+        spec = bindNullable(spec, "lockedUntil" + suffix, toEpochMilli(unitOfWork.getLockedUntil()), Long.class);
+        spec = bindNullable(spec, "nextAttemptAt" + suffix, toEpochMilli(unitOfWork.getNextAttemptAt()), Long.class);
+        spec = bindNullable(spec, "startedAt" + suffix, toEpochMilli(unitOfWork.getStartedAt()), Long.class);
+        return bindNullable(spec, "finishedAt" + suffix, toEpochMilli(unitOfWork.getFinishedAt()), Long.class);
+    }
+
+    private static GenericExecuteSpec bindNullable(GenericExecuteSpec spec, String name, Object value,
+        Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private UnitOfWork<T> map(Row row) {
+        UnitOfWork<T> unitOfWork = new UnitOfWork<>();
+        unitOfWork.setUnitOfOWorkId(row.get("id", String.class));
+        unitOfWork.setState(UnitOfWork.State.valueOf(row.get("state", String.class)));
+        unitOfWork.setRegisteredAt(toDateTime(row.get("registered_at", Long.class)));
+        unitOfWork.setLockedAt(toDateTime(row.get("locked_at", Long.class)));
+        unitOfWork.setLockedBy(row.get("locked_by", String.class));
+        unitOfWork.setLockedUntil(toDateTime(row.get("locked_until", Long.class)));
+        unitOfWork.setNextAttemptAt(toDateTime(row.get("next_attempt_at", Long.class)));
+        unitOfWork.setStartedAt(toDateTime(row.get("started_at", Long.class)));
+        unitOfWork.setFinishedAt(toDateTime(row.get("finished_at", Long.class)));
+        unitOfWork.setRetries(row.get("retries", Integer.class));
+        unitOfWork.setVersion(row.get("version", Long.class));
+        unitOfWork.setStreamTasks(readStreamTasks(unitOfWork.getUnitOfOWorkId(), row.get("stream_tasks", byte[].class)));
+        return unitOfWork;
+    }
+
+    private byte[] writeStreamTasks(UnitOfWork<T> unitOfWork) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writerFor(streamTasksType).writeValue(gzip, unitOfWork.getStreamTasks());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize Unit Of Work: " + unitOfWork.getUnitOfOWorkId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Payloads written before compression was introduced are plain JSON; they are recognised by the missing GZIP
+     * header.
+     */
+    private List<T> readStreamTasks(String unitOfWorkId, byte[] streamTasks) {
+        if (streamTasks == null) {
+            return null;
+        }
+        boolean compressed = streamTasks.length > 1
+            && (streamTasks[0] & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+            && (streamTasks[1] & 0xff) == (GZIPInputStream.GZIP_MAGIC >> 8);
+        try (InputStream input = compressed
+            ? new GZIPInputStream(new ByteArrayInputStream(streamTasks))
+            : new ByteArrayInputStream(streamTasks)) {
+            return objectMapper.readValue(input, streamTasksType);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to deserialize Unit Of Work: " + unitOfWorkId, e);
+        }
+    }
+
+    private static Long toEpochMilli(OffsetDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant().toEpochMilli() : null;
+    }
+
+    private static OffsetDateTime toDateTime(Long epochMilli) {
+        return epochMilli != null ? OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Page of due units. The keyset of the last row is captured up front, because subscribers may modify the units
+     * before the next page is requested.
+     */
+    private static final class Page<T extends StreamTask> {
+
+        private final List<UnitOfWork<T>> units;
+        private final Long lastAt;
+        private final String lastId;
+
+        private Page(List<UnitOfWork<T>> units) {
+            this.units = units;
+            UnitOfWork<T> last = units.isEmpty() ? null : units.get(units.size() - 1);
+            this.lastAt = last != null ? toEpochMilli(last.getNextAttemptAt()) : null;
+            this.lastId = last != null ? last.getUnitOfOWorkId() : null;
+        }
+    }
+
+    /**
+     * Schema flavour of the database holding the table.
+     */
+    public enum Dialect {
+
+        /**
+         * H2 and PostgreSQL.
+         */
+        STANDARD("BYTEA"),
+
+        /**
+         * MySQL and MariaDB.
+         */
+        MYSQL("LONGBLOB");
+
+        private final String binaryType;
+
+        Dialect(String binaryType) {
+            this.binaryType = binaryType;
+        }
+
+        /**
+         * Pick the dialect from the name the R2DBC driver reports, such as {@code PostgreSQL} or {@code MySQL}.
+         *
+         * @param connectionFactory Connection factory of the database
+         * @return Dialect of the database
+         */
+        public static Dialect of(ConnectionFactory connectionFactory) {
+            String name = connectionFactory.getMetadata().getName().toLowerCase(Locale.ROOT);
+            if (name.contains("mysql") || name.contains("mariadb")) {
+                return MYSQL;
+            }
+            if (name.contains("postgres") || name.contains("h2")) {
+                return STANDARD;
+            }
+            throw new IllegalArgumentException("Unsupported database for Unit Of Work persistence: "
+                + connectionFactory.getMetadata().getName());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.backbase.stream.worker.retry;
+
+import com.backbase.stream.worker.configuration.StreamWorkerConfiguration;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * Decides whether a failed Stream Task is worth retrying and when the next attempt should happen.
+ *
+ * <p>The delay before retry {@code n} (starting at 0) is {@code retryDuration * retryMultiplier^n}, capped at
+ * {@code maxRetryDuration}, and then shortened by a random fraction of up to {@code retryJitter} so that units that
+ * failed together do not retry together.</p>
+ *
+ * <p>Client errors ({@code 4xx}) other than {@code 408 Request Timeout} and {@code 429 Too Many Requests} are
+ * considered permanent: sending the same request again will not change the outcome.</p>
+ */
+public class BackoffRetryPolicy {
+
+    private final Duration retryDuration;
+    private final Duration maxRetryDuration;
+    private final double multiplier;
+    private final double jitter;
+
+    public BackoffRetryPolicy(Duration retryDuration, Duration maxRetryDuration, double multiplier, double jitter) {
+        this.retryDuration = retryDuration;
+        this.maxRetryDuration = maxRetryDuration;
+        this.multiplier = Math.max(1, multiplier);
+        this.jitter = Math.min(1, Math.max(0, jitter));
+    }
+
+    public static BackoffRetryPolicy from(StreamWorkerConfiguration configuration) {
+        return new BackoffRetryPolicy(configuration.getRetryDuration(), configuration.getMaxRetryDuration(),
+            configuration.getRetryMultiplier(), configuration.getRetryJitter());
+    }
+
+    /**
+     * Delay before the next attempt.
+     *
+     * @param retries Number of retries already made
+     * @return Delay including jitter
+     */
+    public Duration nextAttemptDelay(int retries) {
+        double delayMillis = retryDuration.toMillis() * Math.pow(multiplier, retries);
+        if (maxRetryDuration != null) {
+            delayMillis = Math.min(delayMillis, maxRetryDuration.toMillis());
+        }
+        delayMillis *= 1 - jitter * ThreadLocalRandom.current().nextDouble();
+        return Duration.ofMillis((long) delayMillis);
+    }
+
+    /**
+     * Check whether the error, or one of its causes, may succeed on a later attempt.
+     *
+     * @param throwable Error raised by a Stream Task
+     * @return {@code false} for permanent client errors
+     */
+    public boolean isRetryable(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException) {
+                int status = ((WebClientResponseException) cause).getRawStatusCode();
+                return status < 400 || status >= 500
+                    || status == HttpStatus.REQUEST_TIMEOUT.value()
+                    || status == HttpStatus.TOO_MANY_REQUESTS.value();
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,216 @@
+package com.backbase.stream.worker.stage;
+
+import com.backbase.stream.worker.model.StreamTask;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Runs the stages of a Stream Task as a dependency graph: every stage starts as soon as the stages it depends on have
+ * completed, so independent stages run concurrently.
+ *
+ * <p>The first failing stage fails the execution with its error. Running stages are cancelled and stages that did not
+ * start yet never do, just like in a sequential chain. The start offset and duration of each stage are added to the
+ * task history, logged as a breakdown when the execution completes, and recorded by the timer
+ * {@code stream.stage.duration} tagged with {@code graph}, {@code stage} and {@code outcome}.</p>
+ *
+ * @param <T> Stream Task type
+ */
+@Slf4j
+public class StageGraph<T extends StreamTask> {
+
+    private final String name;
+    private final List<Stage<T>> stages;
+
+    private StageGraph(String name, List<Stage<T>> stages) {
+        this.name = name;
+        this.stages = stages;
+    }
+
+    public static <T extends StreamTask> Builder<T> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * Run all stages for the given task.
+     *
+     * @param task Stream Task passed to every stage
+     * @return The task, once all stages completed
+     */
+    public Mono<T> execute(T task) {
+        return Mono.create(sink -> new Execution(task, sink).start());
+    }
+
+    /**
+     * Get the stages of the graph, in the order they were added, with the names of the stages they depend on.
+     *
+     * @return Stage names mapped to their direct dependencies
+     */
+    public Map<String, List<String>> getDependencies() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        stages.forEach(stage -> dependencies.put(stage.name, Collections.unmodifiableList(stage.dependsOn)));
+        return Collections.unmodifiableMap(dependencies);
+    }
+
+    /**
+     * Builder adding stages in an order where every stage follows the stages it depends on, which keeps the graph
+     * free of cycles.
+     *
+     * @param <T> Stream Task type
+     */
+    public static class Builder<T extends StreamTask> {
+
+        private final String name;
+        private final Map<String, Stage<T>> stages = new LinkedHashMap<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Add a stage.
+         *
+         * @param stageName Name of the stage, used in history, logs and metrics
+         * @param stage     Function running the stage for a task
+         * @param dependsOn Names of the stages, added before, that must complete before this one starts
+         * @return This builder
+         */
+        public Builder<T> stage(String stageName, Function<T, ? extends Mono<?>> stage, String... dependsOn) {
+            if (stages.containsKey(stageName)) {
+                throw new IllegalArgumentException("Duplicate stage " + stageName + " in " + name);
+            }
+            for (String dependency : dependsOn) {
+                if (!stages.containsKey(dependency)) {
+                    throw new IllegalArgumentException(
+                        "Stage " + stageName + " in " + name + " depends on unknown stage " + dependency);
+                }
+            }
+            stages.put(stageName, new Stage<>(name, stageName, stage, Arrays.asList(dependsOn)));
+            return this;
+        }
+
+        public StageGraph<T> build() {
+            return new StageGraph<>(name, Collections.unmodifiableList(new ArrayList<>(stages.values())));
+        }
+    }
+
+    private static class Stage<T> {
+
+        private final String name;
+        private final Function<T, ? extends Mono<?>> function;
+        private final List<String> dependsOn;
+        private final Timer completed;
+        private final Timer failed;
+
+        private Stage(String graph, String name, Function<T, ? extends Mono<?>> function, List<String> dependsOn) {
+            this.name = name;
+            this.function = function;
+            this.dependsOn = dependsOn;
+            this.completed = Timer.builder("stream.stage.duration").tag("graph", graph).tag("stage", name)
+                .tag("outcome", "completed").register(Metrics.globalRegistry);
+            this.failed = Timer.builder("stream.stage.duration").tag("graph", graph).tag("stage", name)
+                .tag("outcome", "failed").register(Metrics.globalRegistry);
+        }
+    }
+
+    private class Execution {
+
+        private final T task;
+        private final MonoSink<T> sink;
+        private final long start = System.nanoTime();
+        private final Disposable.Composite running = Disposables.composite();
+        private final Map<String, Integer> waitingFor = new LinkedHashMap<>();
+        private final List<String> breakdown = new ArrayList<>();
+
+        private int remaining = stages.size();
+        private boolean failed;
+
+        private Execution(T task, MonoSink<T> sink) {
+            this.task = task;
+            this.sink = sink;
+            stages.forEach(stage -> waitingFor.put(stage.name, stage.dependsOn.size()));
+        }
+
+        private void start() {
+            sink.onCancel(running);
+            if (stages.isEmpty()) {
+                sink.success(task);
+                return;
+            }
+            stages.stream().filter(stage -> stage.dependsOn.isEmpty()).collect(Collectors.toList())
+                .forEach(this::run);
+        }
+
+        private void run(Stage<T> stage) {
+            long stageStart = System.nanoTime();
+            running.add(Mono.defer(() -> stage.function.apply(task))
+                .subscribe(
+                    value -> { },
+                    throwable -> onError(stage, stageStart, throwable),
+                    () -> onComplete(stage, stageStart)));
+        }
+
+        private void onComplete(Stage<T> stage, long stageStart) {
+            List<Stage<T>> ready = new ArrayList<>();
+            boolean done;
+            synchronized (this) {
+                if (failed) {
+                    return;
+                }
+                record(stage, stageStart, "completed");
+                for (Stage<T> dependent : stages) {
+                    if (dependent.dependsOn.contains(stage.name)
+                        && waitingFor.merge(dependent.name, -1, Integer::sum) == 0) {
+                        ready.add(dependent);
+                    }
+                }
+                done = --remaining == 0;
+            }
+            if (done) {
+                log.info("Completed {} for {} in {} ms: {}", name, task.getId(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), String.join(", ", breakdown));
+                sink.success(task);
+            } else {
+                ready.forEach(this::run);
+            }
+        }
+
+        private void onError(Stage<T> stage, long stageStart, Throwable throwable) {
+            synchronized (this) {
+                if (failed) {
+                    return;
+                }
+                failed = true;
+                record(stage, stageStart, "failed");
+            }
+            log.info("Failed {} for {} in stage {} after {} ms: {}", name, task.getId(), stage.name,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), String.join(", ", breakdown));
+            running.dispose();
+            sink.error(throwable);
+        }
+
+        private void record(Stage<T> stage, long stageStart, String outcome) {
+            long now = System.nanoTime();
+            long offsetMillis = TimeUnit.NANOSECONDS.toMillis(stageStart - start);
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(now - stageStart);
+            ("completed".equals(outcome) ? stage.completed : stage.failed)
+                .record(now - stageStart, TimeUnit.NANOSECONDS);
+            breakdown.add(stage.name + " +" + offsetMillis + "ms " + durationMillis + "ms");
+            task.info(name, stage.name, outcome, task.getId(), null, "Stage %s %s after %s ms, started at +%s ms",
+                stage.name, outcome, durationMillis, offsetMillis);
+        }
+    }
+}
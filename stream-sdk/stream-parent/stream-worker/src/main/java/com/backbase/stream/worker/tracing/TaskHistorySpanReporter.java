@@ -0,0 +1,86 @@
+package com.backbase.stream.worker.tracing;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import com.backbase.stream.worker.model.StreamTask;
+import com.backbase.stream.worker.model.TaskHistory;
+import com.backbase.stream.worker.model.TaskHistoryBuffer;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Attaches the history of a Stream Task to the current span once, when the task ends.
+ *
+ * <p>Recording history no longer touches the tracer. Instead the span receives summary tags (task id, state, number
+ * of entries per severity) and, as timestamped annotations, every {@code ERROR} entry plus a random sample of the
+ * other entries. A sample rate of {@code 0} only adds the summary; {@code 1} annotates every entry.</p>
+ */
+public class TaskHistorySpanReporter {
+
+    private final Supplier<Tracer> tracer;
+    private final double sampleRate;
+
+    public TaskHistorySpanReporter(double sampleRate) {
+        this(() -> Tracing.current() != null ? Tracing.current().tracer() : null, sampleRate);
+    }
+
+    public TaskHistorySpanReporter(Supplier<Tracer> tracer, double sampleRate) {
+        this.tracer = tracer;
+        this.sampleRate = Math.min(1, Math.max(0, sampleRate));
+    }
+
+    /**
+     * Tag the current span with the history of the given task. Does nothing when there is no current span.
+     *
+     * @param streamTask Ended Stream Task
+     */
+    public void report(StreamTask streamTask) {
+        Tracer currentTracer = tracer.get();
+        Span span = currentTracer != null ? currentTracer.currentSpan() : null;
+        if (span == null || span.isNoop()) {
+            return;
+        }
+        List<TaskHistory> history = streamTask.getHistory();
+        int warnings = 0;
+        int errors = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (TaskHistory taskHistory : history) {
+            boolean error = taskHistory.getSeverity() == TaskHistory.Severity.ERROR;
+            if (error) {
+                errors++;
+            } else if (taskHistory.getSeverity() == TaskHistory.Severity.WARN) {
+                warnings++;
+            }
+            if (error || (sampleRate > 0 && random.nextDouble() < sampleRate)) {
+                span.annotate(TimeUnit.MILLISECONDS.toMicros(taskHistory.getTimestamp()), annotation(taskHistory));
+            }
+        }
+        span.tag("stream.task.id", String.valueOf(streamTask.getId()));
+        span.tag("stream.task.state", String.valueOf(streamTask.getState()));
+        span.tag("stream.task.history.size", String.valueOf(history.size()));
+        span.tag("stream.task.history.warnings", String.valueOf(warnings));
+        span.tag("stream.task.history.errors", String.valueOf(errors));
+        if (history instanceof TaskHistoryBuffer) {
+            span.tag("stream.task.history.dropped", String.valueOf(((TaskHistoryBuffer) history).getDropped()));
+        }
+    }
+
+    private static String annotation(TaskHistory taskHistory) {
+        StringBuilder annotation = new StringBuilder()
+            .append(taskHistory.getSeverity()).append(' ')
+            .append(taskHistory.getEntity()).append(' ')
+            .append(taskHistory.getOperation()).append(' ')
+            .append(taskHistory.getResult());
+        if (taskHistory.getExternalId() != null) {
+            annotation.append(' ').append(taskHistory.getExternalId());
+        }
+        annotation.append(" - ").append(taskHistory.getMessage());
+        if (taskHistory.getErrorMessage() != null) {
+            annotation.append(": ").append(taskHistory.getErrorMessage());
+        }
+        return annotation.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.backbase.stream.worker;
+
+import com.backbase.stream.worker.model.StreamTask;
+
+public class TestTask extends StreamTask {
+
+    public TestTask() {
+    }
+
+    public TestTask(String id) {
+        super(id);
+    }
+
+    @Override
+    public String getName() {
+        return "test";
+    }
+}
@@ -0,0 +1,227 @@
+package com.backbase.stream.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.worker.configuration.StreamWorkerConfiguration;
+import com.backbase.stream.worker.model.StreamTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import com.backbase.stream.worker.repository.impl.InMemoryReactiveUnitOfWorkRepository;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+public class UnitOfWorkExecutorTest {
+
+    private final AtomicInteger backlogCounts = new AtomicInteger();
+
+    private final InMemoryReactiveUnitOfWorkRepository<TestTask> repository =
+        new InMemoryReactiveUnitOfWorkRepository<TestTask>() {
+            @Override
+            public Mono<Long> countAllByNextAttemptAtBefore(OffsetDateTime currentDateTime) {
+                backlogCounts.incrementAndGet();
+                return super.countAllByNextAttemptAtBefore(currentDateTime);
+            }
+        };
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final StreamTaskExecutor<TestTask> taskExecutor = new StreamTaskExecutor<TestTask>() {
+        @Override
+        public Mono<TestTask> executeTask(TestTask streamTask) {
+            executions.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(20))
+                .then(result(streamTask))
+                .doOnTerminate(running::decrementAndGet);
+        }
+
+        @Override
+        public Mono<TestTask> rollBack(TestTask streamTask) {
+            return Mono.just(streamTask);
+        }
+
+        private Mono<TestTask> result(TestTask streamTask) {
+            if (streamTask.getId().startsWith("failing")) {
+                return Mono.error(new IllegalStateException("Task failed"));
+            }
+            if (streamTask.getId().startsWith("invalid")) {
+                return Mono.error(WebClientResponseException.create(HttpStatus.BAD_REQUEST.value(), "Bad Request",
+                    null, null, null));
+            }
+            return Mono.just(streamTask);
+        }
+    };
+
+    @Test
+    public void drainsAllDueUnitsInBatches() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setSchedulerBatchSize(2);
+        configuration.setWorkerUnitExecutors(2);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+
+        for (int i = 0; i < 5; i++) {
+            UnitOfWork<TestTask> unitOfWork = UnitOfWork.from("unit-" + i, new TestTask("task-" + i));
+            unitOfWork.setNextAttemptAt(OffsetDateTime.now().minusSeconds(1));
+            repository.save(unitOfWork).block();
+        }
+
+        List<UnitOfWork<TestTask>> executed = executor.drainUnitsOfWork().collectList().block();
+
+        assertEquals(5, executed.size());
+        assertEquals(5, executions.get());
+        assertTrue(executed.stream().allMatch(unitOfWork -> unitOfWork.getState() == UnitOfWork.State.COMPLETED
+            && UnitOfWork.isUnLocked(unitOfWork)));
+        assertEquals(1, backlogCounts.get());
+    }
+
+    @Test
+    public void continuesOnTaskFailureWithBoundedConcurrency() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setTaskExecutors(4);
+        configuration.setTaskConcurrency(2);
+        configuration.setOrderedTaskExecution(true);
+        configuration.setContinueOnTaskFailure(true);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+
+        List<TestTask> tasks = Arrays.asList(new TestTask("task-0"), new TestTask("failing-1"), new TestTask("task-2"),
+            new TestTask("task-3"), new TestTask("task-4"), new TestTask("task-5"));
+        UnitOfWork<TestTask> unitOfWork = executor.register(UnitOfWork.from("unit", tasks)).block();
+
+        UnitOfWork<TestTask> executed = executor.executeUnitOfWork(unitOfWork).block();
+
+        assertEquals(6, executions.get());
+        assertEquals(2, maxRunning.get());
+        assertEquals(UnitOfWork.State.FAILED, executed.getState());
+        assertEquals(1, executed.getStreamTasks().stream().filter(StreamTask::isFailed).count());
+    }
+
+    @Test
+    public void retriesOnlyFailedTasks() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setContinueOnTaskFailure(true);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+
+        List<TestTask> tasks = Arrays.asList(new TestTask("task-0"), new TestTask("failing-1"), new TestTask("task-2"));
+        UnitOfWork<TestTask> unitOfWork = executor.register(UnitOfWork.from("unit", tasks)).block();
+
+        OffsetDateTime before = OffsetDateTime.now();
+        UnitOfWork<TestTask> failed = executor.executeUnitOfWork(unitOfWork).block();
+        assertEquals(3, executions.get());
+        assertEquals(UnitOfWork.State.FAILED, failed.getState());
+        assertTrue(failed.getNextAttemptAt().isAfter(before.plusSeconds(29)));
+
+        executor.executeUnitOfWork(failed).block();
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setContinueOnTaskFailure(true);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+
+        List<TestTask> tasks = Arrays.asList(new TestTask("task-0"), new TestTask("invalid-1"));
+        UnitOfWork<TestTask> unitOfWork = executor.register(UnitOfWork.from("unit", tasks)).block();
+
+        UnitOfWork<TestTask> executed = executor.executeUnitOfWork(unitOfWork).block();
+
+        assertEquals(UnitOfWork.State.FAILED_RETRIES_EXHAUSTED, executed.getState());
+        assertFalse(executed.getStreamTasks().get(1).isRetryable());
+    }
+
+    @Test
+    public void executesUnsavedUnitsWithoutSchedulingThem() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setContinueOnTaskFailure(true);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+
+        UnitOfWork<TestTask> failed = executor.executeUnsavedUnitOfWork(UnitOfWork.from("unit",
+            Arrays.asList(new TestTask("task-0"), new TestTask("failing-1")))).block();
+        UnitOfWork<TestTask> invalid = executor.executeUnsavedUnitOfWork(UnitOfWork.from("invalid",
+            Arrays.asList(new TestTask("invalid-0")))).block();
+        UnitOfWork<TestTask> completed = executor.executeUnsavedUnitOfWork(UnitOfWork.from("completed",
+            Arrays.asList(new TestTask("task-0")))).block();
+
+        assertEquals(UnitOfWork.State.FAILED, failed.getState());
+        assertNull(failed.getNextAttemptAt());
+        assertEquals(UnitOfWork.State.FAILED_RETRIES_EXHAUSTED, invalid.getState());
+        assertEquals(UnitOfWork.State.COMPLETED, completed.getState());
+        assertEquals(Long.valueOf(0), repository.count().block());
+
+        executor.executeUnsavedUnitOfWork(failed).block();
+        assertEquals(5, executions.get());
+        assertEquals(UnitOfWork.State.FAILED, failed.getState());
+    }
+
+    @Test
+    public void renewsLeaseWhileExecuting() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setLockLeaseDuration(Duration.ofMillis(90));
+        configuration.setTaskConcurrency(1);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+        UnitOfWork<TestTask> unitOfWork = repository.save(slowUnitOfWork()).block();
+
+        Mono<Boolean> claimedByOther = Mono.delay(Duration.ofMillis(150))
+            .then(Mono.defer(() -> repository.claim("unit", unitOfWork.getVersion(), "other", Duration.ofMinutes(1))))
+            .hasElement();
+        assertFalse(Mono.zip(claimedByOther, executor.drainUnitsOfWork().collectList(), (claimed, executed) -> claimed)
+            .block());
+
+        UnitOfWork<TestTask> completed = repository.findById("unit").block();
+        assertEquals(12, executions.get());
+        assertEquals(UnitOfWork.State.COMPLETED, completed.getState());
+        assertNull(completed.getLockedBy());
+    }
+
+    @Test
+    public void abandonsUnitsWhoseLeaseWasLost() {
+        StreamWorkerConfiguration configuration = new TestWorkerConfiguration();
+        configuration.setLockLeaseDuration(Duration.ofMillis(90));
+        configuration.setTaskConcurrency(1);
+        TestUnitOfWorkExecutor executor = new TestUnitOfWorkExecutor(configuration);
+        UnitOfWork<TestTask> unitOfWork = repository.save(slowUnitOfWork()).block();
+
+        Mono.delay(Duration.ofMillis(50)).subscribe(tick -> unitOfWork.setLockedBy("other"));
+        List<UnitOfWork<TestTask>> executed = executor.drainUnitsOfWork().collectList().block();
+
+        assertTrue(executed.isEmpty());
+        assertTrue(executions.get() < 12);
+        assertEquals(UnitOfWork.State.IN_PROGRESS, unitOfWork.getState());
+        assertEquals("other", unitOfWork.getLockedBy());
+    }
+
+    /**
+     * Unit Of Work that runs for about 240 ms when its tasks are executed one at a time.
+     */
+    private UnitOfWork<TestTask> slowUnitOfWork() {
+        UnitOfWork<TestTask> unitOfWork = UnitOfWork.from("unit", IntStream.range(0, 12)
+            .mapToObj(i -> new TestTask("task-" + i))
+            .collect(Collectors.toList()));
+        unitOfWork.setNextAttemptAt(OffsetDateTime.now().minusSeconds(1));
+        return unitOfWork;
+    }
+
+    private class TestUnitOfWorkExecutor extends UnitOfWorkExecutor<TestTask> {
+
+        TestUnitOfWorkExecutor(StreamWorkerConfiguration configuration) {
+            super(repository, taskExecutor, configuration);
+        }
+    }
+
+    private static class TestWorkerConfiguration extends StreamWorkerConfiguration {
+
+    }
+}
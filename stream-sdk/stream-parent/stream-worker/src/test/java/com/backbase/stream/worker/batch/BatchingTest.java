@@ -0,0 +1,47 @@
+package com.backbase.stream.worker.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class BatchingTest {
+
+    @Test
+    public void batchesOnSize() {
+        StepVerifier.create(Batching.batch(Flux.range(0, 7), 3, Duration.ofSeconds(10)))
+            .expectNext(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5), Arrays.asList(6))
+            .verifyComplete();
+    }
+
+    @Test
+    public void flushesPartialBatches() {
+        Flux<Integer> source = Flux.concat(Flux.just(0, 1), Mono.delay(Duration.ofMillis(200)).thenReturn(2));
+
+        StepVerifier.create(Batching.batch(source, 10, Duration.ofMillis(50)))
+            .expectNext(Arrays.asList(0, 1), Arrays.asList(2))
+            .verifyComplete();
+    }
+
+    @Test
+    public void keepsEveryItemInOrderForSlowSubscriber() {
+        Flux<Integer> source = Flux.range(0, 300).delayElements(Duration.ofMillis(1));
+
+        List<List<Integer>> batches = Batching.batch(source, 7, Duration.ofMillis(2))
+            .concatMap(batch -> Mono.delay(Duration.ofMillis(10)).thenReturn(batch), 1)
+            .collectList()
+            .block();
+
+        assertTrue(batches.stream().allMatch(batch -> !batch.isEmpty() && batch.size() <= 7));
+        assertEquals(IntStream.range(0, 300).boxed().collect(Collectors.toList()),
+            batches.stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.backbase.stream.worker.benchmark;
+
+import com.backbase.stream.worker.TestTask;
+import com.backbase.stream.worker.model.TaskHistory;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Records task history the way a transaction batch does, comparing the former eager history with the bounded, lazily
+ * formatted one.
+ *
+ * <p>{@code legacy} reproduces the previous implementation: formatted message, {@link OffsetDateTime} timestamp and
+ * an unbounded list. Run {@code main} from the test classpath and add {@code -prof gc} to the options to compare
+ * allocation rates.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskHistoryBenchmark {
+
+    private static final int ENTRIES = 10_000;
+
+    @Param({"legacy", "ring-info", "ring-warn"})
+    private String history;
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    public Object record() {
+        if ("legacy".equals(history)) {
+            List<LegacyTaskHistory> entries = new ArrayList<>();
+            for (int i = 0; i < ENTRIES; i++) {
+                LegacyTaskHistory taskHistory = new LegacyTaskHistory();
+                taskHistory.timestamp = OffsetDateTime.now();
+                taskHistory.message = String.format("Ingested transaction %s of %s", i, ENTRIES);
+                entries.add(taskHistory);
+            }
+            return entries;
+        }
+        TestTask task = new TestTask("benchmark");
+        task.configureHistory(100, "ring-warn".equals(history) ? TaskHistory.Severity.WARN : TaskHistory.Severity.INFO);
+        for (int i = 0; i < ENTRIES; i++) {
+            task.info("transaction", "post", "success", null, null, "Ingested transaction %s of %s", i, ENTRIES);
+        }
+        return task;
+    }
+
+    private static class LegacyTaskHistory {
+
+        private OffsetDateTime timestamp;
+        private String message;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TaskHistoryBenchmark.class.getSimpleName())
+            .build())
+            .run();
+    }
+}
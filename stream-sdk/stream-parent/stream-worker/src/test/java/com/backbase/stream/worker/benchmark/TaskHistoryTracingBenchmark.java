@@ -0,0 +1,107 @@
+package com.backbase.stream.worker.benchmark;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.SpanHandler;
+import com.backbase.stream.worker.TestTask;
+import com.backbase.stream.worker.model.TaskHistory;
+import com.backbase.stream.worker.tracing.TaskHistorySpanReporter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of recording 10k history entries in a traced Stream Task.
+ *
+ * <ul>
+ *     <li>{@code untraced}: history only, no span reporting</li>
+ *     <li>{@code per-entry}: every entry tags the span the way {@code @ContinueSpan} with {@code @SpanTag}
+ *     parameters did</li>
+ *     <li>{@code bulk}: summary attached once at task end</li>
+ *     <li>{@code sampled}: summary plus 1% of the entries as annotations</li>
+ * </ul>
+ *
+ * <p>Run {@code main} from the test classpath.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskHistoryTracingBenchmark {
+
+    private static final int ENTRIES = 10_000;
+
+    @Param({"untraced", "per-entry", "bulk", "sampled"})
+    private String tracingMode;
+
+    private Tracing tracing;
+    private TaskHistorySpanReporter reporter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracing = Tracing.newBuilder().addSpanHandler(new SpanHandler() {
+        }).build();
+        reporter = new TaskHistorySpanReporter(tracing::tracer, "sampled".equals(tracingMode) ? 0.01 : 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        tracing.close();
+    }
+
+    @Benchmark
+    public Object recordHistory() {
+        Tracer tracer = tracing.tracer();
+        Span span = tracer.newTrace().name("stream-task").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(span)) {
+            TestTask task = new TestTask("benchmark");
+            task.configureHistory(ENTRIES, TaskHistory.Severity.INFO);
+            for (int i = 0; i < ENTRIES; i++) {
+                task.info("arrangement", "upsert", "success", "external-" + i, null, "Upserted arrangement %s", i);
+                if ("per-entry".equals(tracingMode)) {
+                    tagEntry(tracer.currentSpan(), task.getHistory().get(task.getHistory().size() - 1));
+                }
+            }
+            if (!"untraced".equals(tracingMode) && !"per-entry".equals(tracingMode)) {
+                reporter.report(task);
+            }
+            return task;
+        } finally {
+            span.abandon();
+        }
+    }
+
+    private static void tagEntry(Span span, TaskHistory taskHistory) {
+        span.tag("entity", taskHistory.getEntity());
+        span.tag("operation", taskHistory.getOperation());
+        span.tag("result", taskHistory.getResult());
+        span.tag("externalId", taskHistory.getExternalId());
+        span.tag("message", taskHistory.getMessage());
+        span.tag("severity", taskHistory.getSeverity().name());
+        span.annotate(taskHistory.getMessage());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TaskHistoryTracingBenchmark.class.getSimpleName())
+            .build())
+            .run();
+    }
+}
@@ -0,0 +1,84 @@
+package com.backbase.stream.worker.benchmark;
+
+import com.backbase.stream.worker.TestTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import com.backbase.stream.worker.repository.UnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.InMemoryReactiveUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.IndexedInMemoryReactiveUnitOfWorkRepository;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares selecting the next due Unit Of Work with the scanning and the indexed in memory repositories.
+ *
+ * <p>The store is filled the way a long running worker looks after a bulk load: every unit is completed and retained
+ * except the last one registered, which is due for execution. Run with {@code main} from the test classpath.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnitOfWorkSelectionBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int units;
+
+    @Param({"scan", "indexed"})
+    private String repositoryType;
+
+    private UnitOfWorkRepository<TestTask, String> repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = "indexed".equals(repositoryType)
+            ? new IndexedInMemoryReactiveUnitOfWorkRepository<>(null)
+            : new InMemoryReactiveUnitOfWorkRepository<>();
+
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < units; i++) {
+            String id = "unit-" + i;
+            UnitOfWork<TestTask> unitOfWork = UnitOfWork.from(id, new TestTask(id));
+            if (i == units - 1) {
+                unitOfWork.setState(UnitOfWork.State.ACCEPTED);
+                unitOfWork.setNextAttemptAt(now.minusSeconds(1));
+            } else {
+                unitOfWork.setState(UnitOfWork.State.COMPLETED);
+                unitOfWork.setNextAttemptAt(null);
+                unitOfWork.setFinishedAt(now);
+            }
+            repository.save(unitOfWork).block();
+        }
+    }
+
+    @Benchmark
+    public UnitOfWork<TestTask> selectUnitOfWork() {
+        return repository.findAllByNextAttemptAtBefore(OffsetDateTime.now())
+            .filter(UnitOfWork::isUnLocked)
+            .next()
+            .block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(UnitOfWorkSelectionBenchmark.class.getSimpleName())
+            .build())
+            .run();
+    }
+}
@@ -0,0 +1,127 @@
+package com.backbase.stream.worker.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class ReactiveCacheTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, Mono<String>> loader = key -> Mono.fromCallable(() -> {
+        loads.incrementAndGet();
+        return key.startsWith("missing") ? null : "value-" + key;
+    });
+
+    @Test
+    public void coalescesConcurrentMisses() {
+        ReactiveCache<String, String> cache = cache(10);
+        Function<String, Mono<String>> slowLoader = key -> Mono.delay(Duration.ofMillis(50))
+            .map(tick -> "value-" + loads.incrementAndGet());
+
+        StepVerifier.create(Flux.range(0, 20).flatMap(i -> cache.get("key", slowLoader)).distinct())
+            .expectNext("value-1")
+            .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(0.95, cache.hitRatio(), 0.001);
+    }
+
+    @Test
+    public void reloadsExpiredValues() {
+        ReactiveCache<String, String> cache = cache(10);
+
+        cache.get("key", loader).block();
+        clock.advance(Duration.ofSeconds(59));
+        cache.get("key", loader).block();
+        assertEquals(1, loads.get());
+
+        clock.advance(Duration.ofSeconds(1));
+        cache.get("key", loader).block();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        ReactiveCache<String, String> cache = cache(2);
+
+        cache.get("a", loader).block();
+        cache.get("b", loader).block();
+        cache.get("a", loader).block();
+        cache.get("c", loader).block();
+        assertEquals(2, cache.size());
+
+        cache.get("a", loader).block();
+        assertEquals(3, loads.get());
+        cache.get("b", loader).block();
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void doesNotCacheEmptyResultsOrErrors() {
+        ReactiveCache<String, String> cache = cache(10);
+        AtomicInteger failures = new AtomicInteger();
+        Function<String, Mono<String>> failing = key -> Mono.defer(() -> failures.incrementAndGet() == 1
+            ? Mono.error(new IllegalStateException("unavailable"))
+            : Mono.just("value-" + key));
+
+        StepVerifier.create(cache.get("missing", loader)).verifyComplete();
+        StepVerifier.create(cache.get("missing", loader)).verifyComplete();
+        assertEquals(2, loads.get());
+
+        StepVerifier.create(cache.get("key", failing)).verifyError(IllegalStateException.class);
+        StepVerifier.create(cache.get("key", failing)).expectNext("value-key").verifyComplete();
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void reloadsInvalidatedKeys() {
+        ReactiveCache<String, String> cache = cache(10);
+
+        cache.get("key", loader).block();
+        cache.invalidate("key");
+        cache.get("key", loader).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    private ReactiveCache<String, String> cache(int maximumSize) {
+        return new ReactiveCache<>("test-" + UUID.randomUUID(), Duration.ofMinutes(1), maximumSize, clock);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
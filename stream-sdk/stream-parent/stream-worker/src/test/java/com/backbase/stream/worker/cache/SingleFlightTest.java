@@ -0,0 +1,64 @@
+package com.backbase.stream.worker.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>("test");
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Supplier<Mono<Integer>> call = () -> Mono.delay(Duration.ofMillis(50))
+        .map(tick -> calls.incrementAndGet());
+
+    @Test
+    public void sharesCallsInFlight() {
+        StepVerifier.create(Flux.range(0, 10).flatMap(i -> singleFlight.execute("key", call)).distinct())
+            .expectNext(1)
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(9, singleFlight.getSavedCalls());
+    }
+
+    @Test
+    public void startsNewCallOnceCompleted() {
+        assertEquals(Integer.valueOf(1), singleFlight.execute("key", call).block());
+        assertEquals(Integer.valueOf(2), singleFlight.execute("key", call).block());
+        assertEquals(Integer.valueOf(3), singleFlight.execute("other", call).block());
+
+        assertEquals(0, singleFlight.getSavedCalls());
+    }
+
+    @Test
+    public void sharesErrorsWithoutKeepingThem() {
+        Supplier<Mono<Integer>> failing = () -> Mono.delay(Duration.ofMillis(50))
+            .then(Mono.error(new IllegalStateException("unavailable")));
+
+        StepVerifier.create(Flux.range(0, 3)
+            .flatMap(i -> singleFlight.execute("key", failing).onErrorReturn(-1)))
+            .expectNext(-1, -1, -1)
+            .verifyComplete();
+
+        StepVerifier.create(singleFlight.execute("key", call)).expectNext(1).verifyComplete();
+        assertEquals(2, singleFlight.getSavedCalls());
+    }
+
+    @Test
+    public void keepsCallForRemainingSubscribers() {
+        Disposable cancelled = singleFlight.execute("key", call).subscribe();
+        Mono<Integer> remaining = singleFlight.execute("key", call);
+        cancelled.dispose();
+
+        StepVerifier.create(remaining).expectNext(1).verifyComplete();
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,43 @@
+package com.backbase.stream.worker.dedup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class OffHeapLongHashSetTest {
+
+    @Test
+    public void growsUntilMaximumCapacity() {
+        OffHeapLongHashSet set = new OffHeapLongHashSet(1, 2048);
+        for (long value = 0; value < 1024; value++) {
+            assertTrue(set.add(value * 31));
+        }
+
+        assertEquals(1024, set.size());
+        assertFalse(set.add(0));
+        try {
+            set.add(-1);
+            fail("Expected a full set");
+        } catch (IllegalStateException e) {
+            assertEquals(1024, set.size());
+        }
+        for (long value = 0; value < 1024; value++) {
+            assertTrue(set.contains(value * 31));
+        }
+    }
+
+    @Test
+    public void capsCapacityToIntByteOffsets() {
+        assertEquals(OffHeapLongHashSet.MAX_CAPACITY,
+            OffHeapLongHashSet.capacityFor(Integer.MAX_VALUE, OffHeapLongHashSet.MAX_CAPACITY));
+        assertTrue(((long) OffHeapLongHashSet.MAX_CAPACITY << 3) <= Integer.MAX_VALUE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaximumCapacityAboveCap() {
+        new OffHeapLongHashSet(1, OffHeapLongHashSet.MAX_CAPACITY << 1);
+    }
+}
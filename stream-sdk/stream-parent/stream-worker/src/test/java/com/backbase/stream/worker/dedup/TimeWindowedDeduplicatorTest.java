@@ -0,0 +1,98 @@
+package com.backbase.stream.worker.dedup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeWindowedDeduplicatorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    public void detectsRecordedKeys() {
+        TimeWindowedDeduplicator deduplicator = deduplicator();
+        for (int i = 0; i < 10_000; i++) {
+            deduplicator.record("transaction-" + i);
+        }
+
+        assertEquals(10_000, deduplicator.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(deduplicator.isDuplicate("transaction-" + i));
+        }
+        for (int i = 10_000; i < 20_000; i++) {
+            assertFalse(deduplicator.isDuplicate("transaction-" + i));
+        }
+    }
+
+    @Test
+    public void forgetsKeysAfterTwoWindows() {
+        TimeWindowedDeduplicator deduplicator = deduplicator();
+        deduplicator.record("transaction");
+
+        clock.advance(Duration.ofMinutes(90));
+        assertTrue(deduplicator.isDuplicate("transaction"));
+
+        clock.advance(Duration.ofMinutes(60));
+        assertFalse(deduplicator.isDuplicate("transaction"));
+    }
+
+    @Test
+    public void restoresSnapshot() throws Exception {
+        Path snapshot = temporaryFolder.getRoot().toPath().resolve("dedup.snapshot");
+        TimeWindowedDeduplicator deduplicator = deduplicator();
+        deduplicator.record("old");
+        clock.advance(Duration.ofMinutes(61));
+        deduplicator.record("new");
+        deduplicator.snapshot(snapshot);
+
+        TimeWindowedDeduplicator restored = deduplicator();
+        restored.restore(snapshot);
+
+        assertEquals(2, restored.size());
+        assertTrue(restored.isDuplicate("old"));
+        assertTrue(restored.isDuplicate("new"));
+        assertFalse(restored.isDuplicate("other"));
+    }
+
+    private TimeWindowedDeduplicator deduplicator() {
+        return new TimeWindowedDeduplicator("test-" + UUID.randomUUID(), Duration.ofHours(1), 1000, 0.01, clock);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.backbase.stream.worker.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.backbase.stream.worker.TestTask;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TaskHistoryBufferTest {
+
+    @Test
+    public void keepsMostRecentEntries() {
+        TestTask task = new TestTask("task");
+        task.configureHistory(3, TaskHistory.Severity.INFO);
+
+        for (int i = 0; i < 5; i++) {
+            task.info("entity", "operation", "result", null, null, "message %s", i);
+        }
+
+        assertEquals(3, task.getHistory().size());
+        assertEquals("message 2", task.getHistory().get(0).getMessage());
+        assertEquals("message 4", task.getHistory().get(2).getMessage());
+        assertEquals(2, ((TaskHistoryBuffer) task.getHistory()).getDropped());
+    }
+
+    @Test
+    public void skipsEntriesBelowLevel() {
+        TestTask task = new TestTask("task");
+        task.configureHistory(10, TaskHistory.Severity.WARN);
+
+        task.info("entity", "operation", "result", null, null, "info");
+        task.warn("entity", "operation", "result", null, null, "warn");
+
+        assertEquals(1, task.getHistory().size());
+        assertEquals(TaskHistory.Severity.WARN, task.getHistory().get(0).getSeverity());
+    }
+
+    @Test
+    public void formatsMessageOnRead() {
+        AtomicInteger formatted = new AtomicInteger();
+        TestTask task = new TestTask("task");
+        task.info("entity", "operation", "result", null, null, "ids: %s",
+            TaskHistory.lazy(() -> "id-" + formatted.incrementAndGet()));
+
+        TaskHistory taskHistory = task.getHistory().get(0);
+        assertEquals(0, formatted.get());
+        assertEquals("ids: id-1", taskHistory.getMessage());
+        assertEquals("ids: id-1", taskHistory.getMessage());
+        assertNull(taskHistory.getMessageArgs());
+    }
+
+    @Test
+    public void rendersMutableArgumentsWhenRecorded() {
+        List<String> ids = new ArrayList<>();
+        ids.add("a");
+        TestTask task = new TestTask("task");
+        task.info("entity", "operation", "result", null, null, "ids: %s", ids);
+        ids.add("b");
+
+        assertEquals("ids: [a]", task.getHistory().get(0).getMessage());
+    }
+
+    @Test
+    public void comparesRenderedMessages() {
+        TaskHistory rendered = new TaskHistory();
+        rendered.setMessage("message %s", 1);
+        rendered.getMessage();
+        TaskHistory pending = new TaskHistory();
+        pending.setMessage("message %s", 1);
+
+        assertEquals(rendered, pending);
+        assertEquals(rendered.hashCode(), pending.hashCode());
+    }
+
+    @Test
+    public void iteratesCopyWhileEntriesAreAdded() {
+        TestTask task = new TestTask("task");
+        task.configureHistory(10, TaskHistory.Severity.INFO);
+        task.info("entity", "operation", "result", null, null, "first");
+        task.info("entity", "operation", "result", null, null, "second");
+
+        Iterator<TaskHistory> iterator = task.getHistory().iterator();
+        assertEquals("first", iterator.next().getMessage());
+        task.info("entity", "operation", "result", null, null, "third");
+        assertEquals("second", iterator.next().getMessage());
+        assertEquals(false, iterator.hasNext());
+        assertEquals(3, task.getHistory().size());
+    }
+}
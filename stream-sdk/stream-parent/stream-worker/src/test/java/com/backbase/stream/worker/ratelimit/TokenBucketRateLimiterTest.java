@@ -0,0 +1,81 @@
+package com.backbase.stream.worker.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.worker.configuration.StreamWorkerConfiguration;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class TokenBucketRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void allowsBurstThenSpacesPermits() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(name(), 10, 3);
+        long now = System.nanoTime() + SECOND;
+
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(SECOND / 10, limiter.reserve(now));
+        assertEquals(2 * SECOND / 10, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now + SECOND));
+    }
+
+    @Test
+    public void pausesOnRetryAfter() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(name(), 100, 1);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "2");
+        WebClientResponseException tooManyRequests = WebClientResponseException.create(
+            HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", headers, new byte[0], StandardCharsets.UTF_8);
+
+        assertTrue(limiter.onError(new RuntimeException(tooManyRequests)));
+        assertTrue(limiter.reserve(System.nanoTime()) > SECOND);
+
+        WebClientResponseException badRequest = WebClientResponseException.create(
+            HttpStatus.BAD_REQUEST.value(), "Bad Request", headers, new byte[0], StandardCharsets.UTF_8);
+        assertFalse(limiter.onError(badRequest));
+    }
+
+    @Test
+    public void sharesLimiterPerGroup() {
+        String group = name();
+        TestConfiguration transactions = new TestConfiguration();
+        transactions.setRateLimit(5);
+        transactions.setRateLimitGroup(group);
+        TestConfiguration limits = new TestConfiguration();
+        limits.setDelayBetweenTasks(Duration.ofMillis(100));
+        limits.setRateLimitGroup(group);
+
+        assertSame(TokenBucketRateLimiter.forConfiguration("transactions", transactions),
+            TokenBucketRateLimiter.forConfiguration("limits", limits));
+        assertNull(TokenBucketRateLimiter.forConfiguration(name(), new TestConfiguration()));
+    }
+
+    @Test
+    public void parsesRetryAfter() {
+        assertEquals(Duration.ofSeconds(120), TokenBucketRateLimiter.parseRetryAfter("120"));
+        assertEquals(Duration.ZERO, TokenBucketRateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(TokenBucketRateLimiter.parseRetryAfter("soon"));
+    }
+
+    private static String name() {
+        return "test-" + UUID.randomUUID();
+    }
+
+    private static class TestConfiguration extends StreamWorkerConfiguration {
+
+    }
+}
@@ -0,0 +1,44 @@
+package com.backbase.stream.worker.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import com.backbase.stream.worker.TestTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import java.time.Duration;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+public class InMemoryReactiveUnitOfWorkRepositoryTest {
+
+    private final InMemoryReactiveUnitOfWorkRepository<TestTask> repository =
+        new InMemoryReactiveUnitOfWorkRepository<>();
+
+    @Test
+    public void claimsOnlyOnceAcrossThreads() {
+        UnitOfWork<TestTask> unitOfWork = repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        long version = unitOfWork.getVersion();
+
+        Long claimed = Flux.range(0, 100)
+            .parallel()
+            .runOn(Schedulers.parallel())
+            .flatMap(i -> repository.claim("unit", version, "worker-" + i, Duration.ofMinutes(1)))
+            .sequential()
+            .count()
+            .block();
+
+        assertEquals(Long.valueOf(1), claimed);
+    }
+
+    @Test
+    public void reclaimsExpiredLease() {
+        UnitOfWork<TestTask> unitOfWork = repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        repository.claim("unit", unitOfWork.getVersion(), "crashed", Duration.ZERO.minusMillis(1)).block();
+
+        StepVerifier.create(repository.claim("unit", unitOfWork.getVersion(), "healthy", Duration.ofMinutes(1))
+            .map(UnitOfWork::getLockedBy))
+            .expectNext("healthy")
+            .verifyComplete();
+    }
+}
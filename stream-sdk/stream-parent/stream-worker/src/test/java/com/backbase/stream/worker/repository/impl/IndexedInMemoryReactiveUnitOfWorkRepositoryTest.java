@@ -0,0 +1,78 @@
+package com.backbase.stream.worker.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.worker.TestTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import reactor.test.StepVerifier;
+
+public class IndexedInMemoryReactiveUnitOfWorkRepositoryTest {
+
+    private final IndexedInMemoryReactiveUnitOfWorkRepository<TestTask> repository =
+        new IndexedInMemoryReactiveUnitOfWorkRepository<>(Duration.ofMinutes(5));
+
+    @Test
+    public void findsDueUnitsInNextAttemptOrder() {
+        OffsetDateTime now = OffsetDateTime.now();
+        repository.save(unitOfWork("late", now.minusSeconds(1))).block();
+        repository.save(unitOfWork("early", now.minusSeconds(10))).block();
+        repository.save(unitOfWork("future", now.plusMinutes(1))).block();
+
+        StepVerifier.create(repository.findAllByNextAttemptAtBefore(now).map(UnitOfWork::getUnitOfOWorkId))
+            .expectNext("early", "late")
+            .verifyComplete();
+    }
+
+    @Test
+    public void reindexesOnSave() {
+        OffsetDateTime now = OffsetDateTime.now();
+        UnitOfWork<TestTask> unitOfWork = unitOfWork("unit", now.minusSeconds(1));
+        repository.save(unitOfWork).block();
+
+        unitOfWork.setNextAttemptAt(now.plusMinutes(1));
+        repository.save(unitOfWork).block();
+        StepVerifier.create(repository.findAllByNextAttemptAtBefore(now)).verifyComplete();
+
+        unitOfWork.setNextAttemptAt(null);
+        unitOfWork.setState(UnitOfWork.State.COMPLETED);
+        repository.save(unitOfWork).block();
+        StepVerifier.create(repository.findAllByNextAttemptAtBefore(now.plusHours(1))).verifyComplete();
+        assertTrue(repository.existsById("unit").block());
+    }
+
+    @Test
+    public void evictsTerminalUnitsAfterRetention() {
+        OffsetDateTime now = OffsetDateTime.now();
+        UnitOfWork<TestTask> completed = unitOfWork("completed", null);
+        completed.setState(UnitOfWork.State.COMPLETED);
+        UnitOfWork<TestTask> exhausted = unitOfWork("exhausted", null);
+        exhausted.setState(UnitOfWork.State.FAILED_RETRIES_EXHAUSTED);
+        UnitOfWork<TestTask> failed = unitOfWork("failed", now.plusMinutes(1));
+        failed.setState(UnitOfWork.State.FAILED);
+        repository.saveAll(Arrays.asList(completed, exhausted, failed)).blockLast();
+
+        assertEquals(0, repository.evictExpired(Instant.now()));
+        assertEquals(2, repository.evictExpired(Instant.now().plus(Duration.ofMinutes(6))));
+
+        List<String> remaining = repository.findAll().map(UnitOfWork::getUnitOfOWorkId).collectList().block()
+            .stream().sorted().collect(Collectors.toList());
+        assertEquals(Collections.singletonList("failed"), remaining);
+        assertFalse(repository.existsById("completed").block());
+    }
+
+    private static UnitOfWork<TestTask> unitOfWork(String id, OffsetDateTime nextAttemptAt) {
+        UnitOfWork<TestTask> unitOfWork = UnitOfWork.from(id, new TestTask(id));
+        unitOfWork.setNextAttemptAt(nextAttemptAt);
+        return unitOfWork;
+    }
+}
@@ -0,0 +1,173 @@
+package com.backbase.stream.worker.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.worker.TestTask;
+import com.backbase.stream.worker.model.UnitOfWork;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.backbase.stream.worker.repository.impl.R2dbcUnitOfWorkRepository.Dialect;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.h2.H2ConnectionOption;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class R2dbcUnitOfWorkRepositoryTest {
+
+    private DatabaseClient databaseClient;
+    private R2dbcUnitOfWorkRepository<TestTask> repository;
+
+    @Before
+    public void setUp() {
+        databaseClient = DatabaseClient.create(H2ConnectionFactory.inMemory(UUID.randomUUID().toString()));
+        repository = new R2dbcUnitOfWorkRepository<>(databaseClient,
+            new ObjectMapper().registerModule(new JavaTimeModule()), TestTask.class, "test_unit_of_work", 2);
+        repository.initializeSchema().block();
+    }
+
+    @Test
+    public void savesAndReadsUnitOfWork() {
+        UnitOfWork<TestTask> unitOfWork = UnitOfWork.from("unit", new TestTask("task"));
+        unitOfWork.getStreamTasks().get(0).info("entity", "operation", "result", "external", null, "message %s", 1);
+        repository.save(unitOfWork).block();
+        unitOfWork.setRetries(2);
+        repository.save(unitOfWork).block();
+
+        UnitOfWork<TestTask> found = repository.findById("unit").block();
+        assertEquals(2, found.getRetries());
+        assertEquals(2, found.getVersion());
+        assertEquals("task", found.getStreamTasks().get(0).getId());
+        assertEquals("message 1", found.getStreamTasks().get(0).getHistory().get(0).getMessage());
+
+        StepVerifier.create(repository.findAllByNextAttemptAtBefore(OffsetDateTime.now().plusSeconds(1))
+            .map(UnitOfWork::getUnitOfOWorkId))
+            .expectNext("unit")
+            .verifyComplete();
+    }
+
+    @Test
+    public void batchesInsertsAndPagesDueUnits() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<UnitOfWork<TestTask>> unitsOfWork = IntStream.range(0, 5)
+            .mapToObj(i -> {
+                UnitOfWork<TestTask> unitOfWork = UnitOfWork.from("unit-" + i, new TestTask("task-" + i));
+                unitOfWork.setNextAttemptAt(now.minusSeconds(10 - i));
+                return unitOfWork;
+            })
+            .collect(Collectors.toList());
+        repository.saveAll(unitsOfWork).blockLast();
+        assertTrue(unitsOfWork.stream().allMatch(unitOfWork -> unitOfWork.getVersion() == 1));
+
+        StepVerifier.create(repository.findAllByNextAttemptAtBefore(now).map(UnitOfWork::getUnitOfOWorkId))
+            .expectNext("unit-0", "unit-1", "unit-2", "unit-3", "unit-4")
+            .verifyComplete();
+        assertEquals(Long.valueOf(3), repository.countAllByNextAttemptAtBefore(now.minusSeconds(7)).block());
+
+        unitsOfWork.get(0).setRetries(1);
+        repository.saveAll(Collections.singletonList(unitsOfWork.get(0))).blockLast();
+        assertEquals(1, repository.findById("unit-0").block().getRetries());
+    }
+
+    @Test
+    public void compressesStreamTasks() {
+        repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+
+        byte[] payload = databaseClient.execute("SELECT stream_tasks FROM test_unit_of_work")
+            .map((row, rowMetadata) -> row.get(0, byte[].class))
+            .one()
+            .block();
+        assertEquals((byte) 0x1f, payload[0]);
+        assertEquals((byte) 0x8b, payload[1]);
+    }
+
+    @Test
+    public void readsUncompressedStreamTasks() {
+        repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        databaseClient.execute("UPDATE test_unit_of_work SET stream_tasks = :payload")
+            .bind("payload", "[{\"id\":\"plain\"}]".getBytes(StandardCharsets.UTF_8))
+            .then()
+            .block();
+
+        assertEquals("plain", repository.findById("unit").block().getStreamTasks().get(0).getId());
+    }
+
+    @Test
+    public void claimsOnlyOnce() {
+        UnitOfWork<TestTask> unitOfWork = repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        long version = unitOfWork.getVersion();
+
+        Long claimed = Flux.range(0, 10)
+            .flatMap(i -> repository.claim("unit", version, "worker-" + i, Duration.ofMinutes(1)))
+            .count()
+            .block();
+
+        assertEquals(Long.valueOf(1), claimed);
+        StepVerifier.create(repository.claim("unit", version + 1, "other", Duration.ofMinutes(1)))
+            .verifyComplete();
+    }
+
+    @Test
+    public void reclaimsExpiredLease() {
+        UnitOfWork<TestTask> unitOfWork = repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        UnitOfWork<TestTask> claimed = repository.claim("unit", unitOfWork.getVersion(), "crashed", Duration.ZERO.minusMillis(1))
+            .block();
+
+        UnitOfWork<TestTask> reclaimed = repository.claim("unit", claimed.getVersion(), "healthy", Duration.ofMinutes(1))
+            .block();
+        assertEquals("healthy", reclaimed.getLockedBy());
+
+        reclaimed.setLockedAt(null);
+        reclaimed.setLockedBy(null);
+        reclaimed.setLockedUntil(null);
+        repository.save(reclaimed).block();
+        assertNull(repository.findById("unit").block().getLockedBy());
+    }
+
+    @Test
+    public void renewsLeaseOfOwnerOnly() {
+        UnitOfWork<TestTask> unitOfWork = repository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        UnitOfWork<TestTask> claimed = repository.claim("unit", unitOfWork.getVersion(), "owner", Duration.ofMillis(1))
+            .block();
+
+        assertFalse(repository.renewLease("unit", claimed.getVersion(), "other", Duration.ofMinutes(1)).block());
+        assertTrue(repository.renewLease("unit", claimed.getVersion(), "owner", Duration.ofMinutes(1)).block());
+        assertFalse(repository.renewLease("unit", claimed.getVersion(), "owner", Duration.ofMinutes(1)).block());
+
+        UnitOfWork<TestTask> renewed = repository.findById("unit").block();
+        assertEquals(claimed.getVersion() + 1, renewed.getVersion());
+        assertFalse(UnitOfWork.isUnLocked(renewed));
+    }
+
+    @Test
+    public void createsMysqlSchema() {
+        H2ConnectionFactory connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+            .inMemory(UUID.randomUUID().toString())
+            .property(H2ConnectionOption.DB_CLOSE_DELAY, "-1")
+            .property(H2ConnectionOption.MODE, "MySQL")
+            .build());
+        R2dbcUnitOfWorkRepository<TestTask> mysqlRepository = new R2dbcUnitOfWorkRepository<>(
+            DatabaseClient.create(connectionFactory), new ObjectMapper().registerModule(new JavaTimeModule()),
+            TestTask.class, "test_unit_of_work", 2, Dialect.MYSQL);
+        mysqlRepository.initializeSchema().block();
+        mysqlRepository.initializeSchema().block();
+
+        mysqlRepository.save(UnitOfWork.from("unit", new TestTask("task"))).block();
+        assertEquals(Long.valueOf(1), mysqlRepository.count().block());
+        assertEquals(Dialect.STANDARD, Dialect.of(connectionFactory));
+    }
+}
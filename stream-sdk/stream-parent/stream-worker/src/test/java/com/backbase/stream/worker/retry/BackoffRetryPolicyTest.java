@@ -0,0 +1,49 @@
+package com.backbase.stream.worker.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.worker.exception.StreamTaskException;
+import java.time.Duration;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class BackoffRetryPolicyTest {
+
+    @Test
+    public void backsOffExponentiallyUpToTheCap() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(Duration.ofSeconds(1), Duration.ofSeconds(10), 2, 0);
+
+        assertEquals(Duration.ofSeconds(1), policy.nextAttemptDelay(0));
+        assertEquals(Duration.ofSeconds(4), policy.nextAttemptDelay(2));
+        assertEquals(Duration.ofSeconds(10), policy.nextAttemptDelay(10));
+    }
+
+    @Test
+    public void appliesJitterBelowTheDelay() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(Duration.ofSeconds(8), null, 2, 0.5);
+
+        for (int i = 0; i < 100; i++) {
+            Duration delay = policy.nextAttemptDelay(1);
+            assertTrue(delay.compareTo(Duration.ofSeconds(8)) >= 0);
+            assertTrue(delay.compareTo(Duration.ofSeconds(16)) <= 0);
+        }
+    }
+
+    @Test
+    public void classifiesClientErrorsAsPermanent() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(Duration.ofSeconds(1), null, 2, 0);
+
+        assertFalse(policy.isRetryable(new StreamTaskException("Failed", response(HttpStatus.BAD_REQUEST))));
+        assertTrue(policy.isRetryable(response(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(policy.isRetryable(response(HttpStatus.REQUEST_TIMEOUT)));
+        assertTrue(policy.isRetryable(response(HttpStatus.BAD_GATEWAY)));
+        assertTrue(policy.isRetryable(new IllegalStateException()));
+    }
+
+    private static WebClientResponseException response(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), null, null, null);
+    }
+}
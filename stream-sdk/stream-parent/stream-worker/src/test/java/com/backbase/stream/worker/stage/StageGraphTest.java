@@ -0,0 +1,79 @@
+package com.backbase.stream.worker.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.stream.worker.TestTask;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class StageGraphTest {
+
+    @Test
+    public void runsIndependentStagesConcurrently() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        StageGraph<TestTask> graph = StageGraph.<TestTask>builder("test")
+            .stage("root", task -> step(events, "root", 0))
+            .stage("left", task -> step(events, "left", 300), "root")
+            .stage("right", task -> step(events, "right", 300), "root")
+            .stage("join", task -> step(events, "join", 0), "left", "right")
+            .build();
+        TestTask task = new TestTask("task-1");
+
+        long start = System.nanoTime();
+        StepVerifier.create(graph.execute(task)).expectNext(task).verifyComplete();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(550)) < 0);
+        assertEquals("root", events.get(0));
+        assertEquals("join", events.get(3));
+        assertEquals(4, task.getHistory().stream().filter(history -> "completed".equals(history.getResult())).count());
+    }
+
+    @Test
+    public void failingStageStopsTheGraph() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        AtomicBoolean slowCancelled = new AtomicBoolean();
+        StageGraph<TestTask> graph = StageGraph.<TestTask>builder("test")
+            .stage("root", task -> step(events, "root", 0))
+            .stage("failing", task -> Mono.delay(Duration.ofMillis(50))
+                .then(Mono.error(new IllegalStateException("failed"))), "root")
+            .stage("slow", task -> step(events, "slow", 1000).doOnCancel(() -> slowCancelled.set(true)), "root")
+            .stage("dependent", task -> step(events, "dependent", 0), "failing")
+            .build();
+        TestTask task = new TestTask("task-1");
+
+        StepVerifier.create(graph.execute(task)).verifyErrorMessage("failed");
+
+        assertTrue(slowCancelled.get());
+        assertFalse(events.contains("dependent"));
+        assertTrue(task.getHistory().stream().anyMatch(history -> "failing".equals(history.getOperation())
+            && "failed".equals(history.getResult())));
+    }
+
+    @Test
+    public void exposesDependenciesInStageOrder() {
+        StageGraph<TestTask> graph = StageGraph.<TestTask>builder("test")
+            .stage("root", task -> Mono.empty())
+            .stage("left", task -> Mono.empty(), "root")
+            .stage("join", task -> Mono.empty(), "root", "left")
+            .build();
+
+        assertEquals(Arrays.asList("root", "left", "join"), new ArrayList<>(graph.getDependencies().keySet()));
+        assertTrue(graph.getDependencies().get("root").isEmpty());
+        assertEquals(Arrays.asList("root", "left"), graph.getDependencies().get("join"));
+    }
+
+    private static Mono<TestTask> step(List<String> events, String name, long delayMillis) {
+        return Mono.delay(Duration.ofMillis(delayMillis))
+            .doOnNext(tick -> events.add(name))
+            .then(Mono.empty());
+    }
+}
@@ -0,0 +1,79 @@
+package com.backbase.stream.worker.tracing;
+
+import static org.junit.Assert.assertEquals;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.backbase.stream.worker.TestTask;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskHistorySpanReporterTest {
+
+    private final List<MutableSpan> spans = new ArrayList<>();
+    private Tracing tracing;
+
+    @Before
+    public void setUp() {
+        tracing = Tracing.newBuilder()
+            .addSpanHandler(new SpanHandler() {
+                @Override
+                public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                    spans.add(span);
+                    return true;
+                }
+            })
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        tracing.close();
+    }
+
+    @Test
+    public void attachesSummaryAndErrorsToSpan() {
+        TestTask task = new TestTask("task");
+        task.info("entity", "operation", "success", "external-1", null, "first");
+        task.warn("entity", "operation", "success", "external-2", null, "second");
+        task.error("entity", "operation", "failed", "external-3", null, "third");
+
+        report(new TaskHistorySpanReporter(tracing::tracer, 0), task);
+
+        MutableSpan span = spans.get(0);
+        assertEquals("3", span.tag("stream.task.history.size"));
+        assertEquals("1", span.tag("stream.task.history.warnings"));
+        assertEquals("1", span.tag("stream.task.history.errors"));
+        assertEquals(1, span.annotationCount());
+        assertEquals("ERROR entity operation failed external-3 - third", span.annotationValueAt(0));
+    }
+
+    @Test
+    public void annotatesSampledEntries() {
+        TestTask task = new TestTask("task");
+        for (int i = 0; i < 10; i++) {
+            task.info("entity", "operation", "success", null, null, "entry %s", i);
+        }
+
+        report(new TaskHistorySpanReporter(tracing::tracer, 1), task);
+
+        assertEquals(10, spans.get(0).annotationCount());
+    }
+
+    private void report(TaskHistorySpanReporter reporter, TestTask task) {
+        Tracer tracer = tracing.tracer();
+        Span span = tracer.newTrace().name("task").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpanInScope(span)) {
+            reporter.report(task);
+        } finally {
+            span.finish();
+        }
+    }
+}
@@ -7,11 +7,17 @@ import com.backbase.dbs.transaction.api.service.v2.model.TransactionsDeleteReque
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPatchRequestBody;
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequestBody;
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostResponseBody;
+import com.backbase.stream.configuration.TransactionWorkerConfigurationProperties;
+import com.backbase.stream.transaction.TransactionOrdering;
 import com.backbase.stream.transaction.TransactionTask;
 import com.backbase.stream.transaction.TransactionUnitOfWorkExecutor;
 import com.backbase.stream.transaction.TransactionsQuery;
 import com.backbase.stream.worker.model.UnitOfWork;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -35,12 +41,18 @@ public class TransactionService {
     }
 
     /**
-     * Upsert Transactions.
+     * Upsert Transactions. With {@code backbase.stream.transaction.worker.streaming} enabled, transactions are batched
+     * per arrangement and posted in order, and the returned Flux only requests transactions as fast as they are
+     * ingested.
      *
      * @param transactions Unbounded list of Transactions
      * @return Ingestion Transactions IDs
      */
     public Flux<TransactionsPostResponseBody> processTransactions(Flux<TransactionsPostRequestBody> transactions) {
+        if (transactionTaskExecutor.getTransactionWorkerConfigurationProperties().isStreaming()) {
+            return transactionTaskExecutor.executeStreaming(transactions)
+                .concatMap(this::getTransactionIdsFlux);
+        }
         Flux<UnitOfWork<TransactionTask>> unitOfWorkFlux = transactionTaskExecutor.prepareUnitOfWork(transactions);
         return unitOfWorkFlux.flatMap(transactionTaskExecutor::executeUnitOfWork)
             .flatMap(this::getTransactionIdsFlux);
@@ -49,6 +61,7 @@ public class TransactionService {
     private Flux<TransactionsPostResponseBody> getTransactionIdsFlux(UnitOfWork<TransactionTask> unitOfWork) {
         Stream<TransactionsPostResponseBody> transactionIdsStream = unitOfWork.getStreamTasks().stream()
             .map(TransactionTask::getResponse)
+            .filter(Objects::nonNull)
             .flatMap(Collection::stream);
         return Flux.fromStream(transactionIdsStream);
     }
@@ -73,6 +86,58 @@ public class TransactionService {
     }
 
 
+    /**
+     * Retrieve the latest transactions across many arrangements.
+     *
+     * @param arrangementIds external productIds
+     * @param size           number of transactions to return.
+     * @return The {@code size} latest transactions of all arrangements, by booking date
+     */
+    public Flux<TransactionItem> getLatestTransactions(Collection<String> arrangementIds, int size) {
+        TransactionsQuery transactionsQuery = new TransactionsQuery();
+        transactionsQuery.setArrangementsIds(new ArrayList<>(arrangementIds));
+        return getTransactions(transactionsQuery, size);
+    }
+
+    /**
+     * Fan out a query over its {@code arrangementsIds}. The ids are split into chunks of {@code fanOutChunkSize},
+     * which are queried with at most {@code fanOutConcurrency} requests at a time for their first {@code size}
+     * transactions each. The chunk results are k-way merged in the order given by the {@code orderBy},
+     * {@code direction} and {@code secDirection} fields of the query (booking date descending by default), stopping
+     * at {@code size} transactions. The first transaction is only known once every chunk answered; after that,
+     * transactions are merged as they are consumed.
+     *
+     * @param transactionsQuery Transaction Query with the arrangement ids to query
+     * @param size              number of transactions to return.
+     * @return The first {@code size} matching transactions of all arrangements
+     */
+    public Flux<TransactionItem> getTransactions(TransactionsQuery transactionsQuery, int size) {
+        List<String> arrangementIds = transactionsQuery.getArrangementsIds() != null
+            ? transactionsQuery.getArrangementsIds()
+            : Collections.emptyList();
+        TransactionWorkerConfigurationProperties properties =
+            transactionTaskExecutor.getTransactionWorkerConfigurationProperties();
+        int chunkSize = Math.max(1, properties.getFanOutChunkSize());
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < arrangementIds.size(); i += chunkSize) {
+            chunks.add(arrangementIds.subList(i, Math.min(i + chunkSize, arrangementIds.size())));
+        }
+        TransactionOrdering ordering = TransactionOrdering.of(transactionsQuery);
+        return Flux.fromIterable(chunks)
+            .flatMap(chunk -> getTransactions(transactionsQuery.toBuilder()
+                .arrangementsIds(chunk)
+                .from(null)
+                .cursor(null)
+                .size(size)
+                .build())
+                .collectList()
+                .onErrorResume(WebClientResponseException.NotFound.class,
+                    ex -> Mono.just(Collections.<TransactionItem>emptyList())),
+                Math.max(1, properties.getFanOutConcurrency()))
+            .collectList()
+            .flatMapMany(results -> ordering.merge(results, size));
+    }
+
     /**
      * Remove transactions from DBS.
      *
@@ -126,6 +191,41 @@ public class TransactionService {
             transactionsQuery.getSecDirection());
     }
 
+    /**
+     * Stream all transactions matching a query, following the {@code from} page number from the page in the query
+     * (or the first) until DBS returns a page smaller than the page size. Pages are only requested as the returned
+     * Flux is consumed, plus {@code readPrefetchPages} ahead, so at most one more page is held in memory.
+     *
+     * <p>The generated client does not expose the cursor of the next page, so a query with a {@code cursor} and no
+     * {@code from} is executed as a single page.</p>
+     *
+     * @param transactionsQuery Transaction Query
+     * @return All matching transactions, or an {@link IllegalArgumentException} when the page size is not positive
+     */
+    public Flux<TransactionItem> streamTransactions(TransactionsQuery transactionsQuery) {
+        if (transactionsQuery.getCursor() != null && transactionsQuery.getFrom() == null) {
+            return getTransactions(transactionsQuery);
+        }
+        TransactionWorkerConfigurationProperties properties =
+            transactionTaskExecutor.getTransactionWorkerConfigurationProperties();
+        int pageSize = transactionsQuery.getSize() != null ? transactionsQuery.getSize() : properties.getReadPageSize();
+        if (pageSize <= 0) {
+            // No page is ever smaller than that, so paging would never end
+            return Flux.error(new IllegalArgumentException("Transaction page size must be positive: " + pageSize));
+        }
+        int firstPage = transactionsQuery.getFrom() != null ? transactionsQuery.getFrom() : 0;
+        int pagesAhead = Math.max(1, properties.getReadPrefetchPages());
+        return Flux.range(firstPage, Integer.MAX_VALUE - firstPage)
+            .flatMapSequential(page -> getTransactions(transactionsQuery.toBuilder()
+                .from(page)
+                .size(pageSize)
+                .cursor(null)
+                .build())
+                .collectList(), pagesAhead, 1)
+            .takeUntil(transactionItems -> transactionItems.size() < pageSize)
+            .concatMapIterable(transactionItems -> transactionItems, 1);
+    }
+
     /**
      * Update Transactions  with a new category or billing status.
      *
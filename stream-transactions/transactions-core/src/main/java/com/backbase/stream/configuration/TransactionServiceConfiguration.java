@@ -4,21 +4,36 @@ import com.backbase.dbs.transaction.api.service.ApiClient;
 import com.backbase.dbs.transaction.api.service.v2.TransactionPresentationServiceApi;
 import com.backbase.stream.TransactionService;
 import com.backbase.stream.config.BackbaseStreamConfigurationProperties;
+import com.backbase.stream.transaction.AdaptiveBatchSizer;
 import com.backbase.stream.transaction.TransactionTask;
 import com.backbase.stream.transaction.TransactionTaskExecutor;
 import com.backbase.stream.transaction.TransactionUnitOfWorkExecutor;
 import com.backbase.stream.transaction.repository.TransactionUnitOfWorkRepository;
 import com.backbase.stream.webclient.DbsWebClientConfiguration;
+import com.backbase.stream.worker.dedup.TimeWindowedDeduplicator;
 import com.backbase.stream.worker.repository.impl.InMemoryReactiveUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.IndexedInMemoryReactiveUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.R2dbcUnitOfWorkRepository;
+import com.backbase.stream.worker.repository.impl.R2dbcUnitOfWorkRepository.Dialect;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.ConnectionFactory;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.DateFormat;
+import java.time.Duration;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.core.DatabaseClient;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 
 @EnableConfigurationProperties({
     BackbaseStreamConfigurationProperties.class,
@@ -31,9 +46,49 @@ public class TransactionServiceConfiguration {
 
 
     @Bean
-    public TransactionTaskExecutor transactionTaskExecutor(ApiClient transactionPresentationApiClient) {
+    public TransactionTaskExecutor transactionTaskExecutor(ApiClient transactionPresentationApiClient,
+        TransactionWorkerConfigurationProperties transactionWorkerConfigurationProperties,
+        ObjectProvider<TimeWindowedDeduplicator> transactionDeduplicator) {
         TransactionPresentationServiceApi transactionsApi = new TransactionPresentationServiceApi(transactionPresentationApiClient);
-        return new TransactionTaskExecutor(transactionsApi);
+        AdaptiveBatchSizer batchSizer = null;
+        if (transactionWorkerConfigurationProperties.isAdaptiveBatching()) {
+            batchSizer = new AdaptiveBatchSizer(TransactionTaskExecutor.class.getSimpleName(),
+                transactionWorkerConfigurationProperties.getAdaptiveBatchInitialSize(),
+                transactionWorkerConfigurationProperties.getAdaptiveBatchMinSize(),
+                transactionWorkerConfigurationProperties.getAdaptiveBatchMaxSize(),
+                transactionWorkerConfigurationProperties.getAdaptiveBatchLatencyTarget(),
+                transactionWorkerConfigurationProperties.getAdaptiveBatchWindowSize());
+        }
+        return new TransactionTaskExecutor(transactionsApi, batchSizer, transactionDeduplicator.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backbase.stream.transaction.worker.dedup", havingValue = "true")
+    public TimeWindowedDeduplicator transactionDeduplicator(
+        TransactionWorkerConfigurationProperties transactionWorkerConfigurationProperties) throws IOException {
+        TimeWindowedDeduplicator deduplicator = new TimeWindowedDeduplicator("transactions",
+            transactionWorkerConfigurationProperties.getDedupWindow(),
+            transactionWorkerConfigurationProperties.getDedupExpectedInsertions(),
+            transactionWorkerConfigurationProperties.getDedupFalsePositiveRate());
+        String snapshotFile = transactionWorkerConfigurationProperties.getDedupSnapshotFile();
+        if (snapshotFile != null && !snapshotFile.isEmpty()) {
+            deduplicator.restore(Paths.get(snapshotFile));
+        }
+        return deduplicator;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(name = "backbase.stream.transaction.worker.dedup-snapshot-file")
+    public Disposable transactionDeduplicatorSnapshots(
+        ObjectProvider<TimeWindowedDeduplicator> transactionDeduplicator,
+        TransactionWorkerConfigurationProperties transactionWorkerConfigurationProperties) {
+        TimeWindowedDeduplicator deduplicator = transactionDeduplicator.getIfAvailable();
+        if (deduplicator == null) {
+            return Disposables.disposed();
+        }
+        return deduplicator.scheduleSnapshots(
+            Paths.get(transactionWorkerConfigurationProperties.getDedupSnapshotFile()),
+            transactionWorkerConfigurationProperties.getDedupSnapshotInterval());
     }
 
     @Bean
@@ -51,11 +106,56 @@ public class TransactionServiceConfiguration {
         return new InMemoryTransactionUnitOfWorkRepository();
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "backbase.stream.persistence", havingValue = "indexed-memory")
+    public TransactionUnitOfWorkRepository indexedTransactionUnitOfWorkRepository(
+        TransactionWorkerConfigurationProperties transactionWorkerConfigurationProperties) {
+        return new IndexedInMemoryTransactionUnitOfWorkRepository(
+            transactionWorkerConfigurationProperties.getTerminalUnitRetention());
+    }
+
     public static class InMemoryTransactionUnitOfWorkRepository extends
         InMemoryReactiveUnitOfWorkRepository<TransactionTask> implements TransactionUnitOfWorkRepository {
 
     }
 
+    public static class IndexedInMemoryTransactionUnitOfWorkRepository extends
+        IndexedInMemoryReactiveUnitOfWorkRepository<TransactionTask> implements TransactionUnitOfWorkRepository {
+
+        public IndexedInMemoryTransactionUnitOfWorkRepository(Duration terminalUnitRetention) {
+            super(terminalUnitRetention);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.data.r2dbc.core.DatabaseClient")
+    @ConditionalOnProperty(name = "backbase.stream.persistence", havingValue = "r2dbc")
+    public static class R2dbcPersistenceConfiguration {
+
+        @Bean
+        public R2dbcTransactionUnitOfWorkRepository r2dbcTransactionUnitOfWorkRepository(
+            DatabaseClient databaseClient, ConnectionFactory connectionFactory, ObjectMapper objectMapper) {
+            return new R2dbcTransactionUnitOfWorkRepository(databaseClient, objectMapper,
+                Dialect.of(connectionFactory));
+        }
+
+        @Bean
+        public ApplicationRunner transactionUnitOfWorkSchemaInitializer(
+            R2dbcTransactionUnitOfWorkRepository repository) {
+            return args -> repository.initializeSchema().block();
+        }
+    }
+
+    public static class R2dbcTransactionUnitOfWorkRepository extends
+        R2dbcUnitOfWorkRepository<TransactionTask> implements TransactionUnitOfWorkRepository {
+
+        public R2dbcTransactionUnitOfWorkRepository(DatabaseClient databaseClient, ObjectMapper objectMapper,
+            Dialect dialect) {
+            super(databaseClient, objectMapper, TransactionTask.class, "transaction_unit_of_work",
+                DEFAULT_BATCH_SIZE, dialect);
+        }
+    }
+
     @Bean
     public TransactionService transactionService(ApiClient transactionPresentationApiClient,
         TransactionUnitOfWorkExecutor transactionTaskExecutor) {
@@ -1,6 +1,7 @@
 package com.backbase.stream.configuration;
 
 import com.backbase.stream.worker.configuration.StreamWorkerConfiguration;
+import java.time.Duration;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -13,4 +14,92 @@ public class TransactionWorkerConfigurationProperties extends StreamWorkerConfig
     private boolean groupPerArrangementId;
 
     private boolean continueOnError;
+
+    /**
+     * Ingest transactions as a continuous stream grouped per arrangement instead of in fixed buffers. See
+     * {@link com.backbase.stream.transaction.TransactionUnitOfWorkExecutor#executeStreaming}.
+     */
+    private boolean streaming;
+
+    /**
+     * Number of rails transactions are hash partitioned on by arrangement. Each rail executes its units one by one.
+     */
+    private int streamingPartitions = 4;
+
+    /**
+     * Maximum number of transactions in a batch of a rail. A batch is executed as a single Unit Of Work.
+     */
+    private int streamingBatchSize = 500;
+
+    /**
+     * Interval at which the partial batch of a rail is flushed.
+     */
+    private Duration streamingFlushMaxTime = Duration.ofSeconds(5);
+
+    /**
+     * Post the transactions of a task in batches sized from the observed DBS latency and error rate.
+     */
+    private boolean adaptiveBatching;
+
+    private int adaptiveBatchInitialSize = 100;
+
+    private int adaptiveBatchMinSize = 10;
+
+    private int adaptiveBatchMaxSize = 1000;
+
+    /**
+     * p95 latency of a single post that the batch size is tuned towards.
+     */
+    private Duration adaptiveBatchLatencyTarget = Duration.ofSeconds(2);
+
+    /**
+     * Number of posts observed before the batch size is adjusted.
+     */
+    private int adaptiveBatchWindowSize = 20;
+
+    /**
+     * Drop transactions whose {@code externalId} was ingested within {@code dedupWindow} before posting them.
+     */
+    private boolean dedup;
+
+    /**
+     * Ingested external ids are remembered for at least this long and at most twice as long.
+     */
+    private Duration dedupWindow = Duration.ofHours(24);
+
+    /**
+     * Expected number of transactions ingested per window, used to size the Bloom filters.
+     */
+    private int dedupExpectedInsertions = 1_000_000;
+
+    private double dedupFalsePositiveRate = 0.01;
+
+    /**
+     * File the dedup index is snapshotted to and restored from on startup. Not persisted when empty.
+     */
+    private String dedupSnapshotFile;
+
+    private Duration dedupSnapshotInterval = Duration.ofMinutes(1);
+
+    /**
+     * Page size used by {@link com.backbase.stream.TransactionService#streamTransactions} when the query has none.
+     */
+    private int readPageSize = 100;
+
+    /**
+     * Number of pages {@link com.backbase.stream.TransactionService#streamTransactions} requests ahead of the page
+     * being consumed, at least one.
+     */
+    private int readPrefetchPages = 1;
+
+    /**
+     * Number of arrangements queried per request by the fan out queries of
+     * {@link com.backbase.stream.TransactionService}.
+     */
+    private int fanOutChunkSize = 50;
+
+    /**
+     * Maximum number of requests a fan out query has in flight.
+     */
+    private int fanOutConcurrency = 8;
 }
@@ -0,0 +1,89 @@
+package com.backbase.stream.transaction;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adapts the number of transactions posted per request to the latency observed from DBS.
+ *
+ * <p>Outcomes are collected in windows of {@code windowSize} requests. At the end of a window the batch size grows
+ * by {@code minSize} (additive increase) when the p95 latency stayed below the target and no request failed, and is
+ * halved (multiplicative decrease) when the p95 latency exceeded the target or more than 10% of the requests
+ * failed. A request rejected as too large halves the batch size straight away.</p>
+ */
+@Slf4j
+public class AdaptiveBatchSizer {
+
+    private static final double MAX_ERROR_RATE = 0.1;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long latencyTargetMillis;
+    private final long[] latencies;
+    private final AtomicInteger batchSize;
+
+    private int samples;
+    private int errors;
+
+    public AdaptiveBatchSizer(String name, int initialSize, int minSize, int maxSize, Duration latencyTarget,
+        int windowSize) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.latencyTargetMillis = latencyTarget.toMillis();
+        this.latencies = new long[Math.max(1, windowSize)];
+        this.batchSize = new AtomicInteger(Math.min(this.maxSize, Math.max(this.minSize, initialSize)));
+        Metrics.globalRegistry.gauge("stream.transactions.batch-size", Tags.of("executor", name), batchSize);
+    }
+
+    public int getBatchSize() {
+        return batchSize.get();
+    }
+
+    public synchronized void onSuccess(Duration latency) {
+        record(latency.toMillis(), false);
+    }
+
+    public synchronized void onFailure(Duration latency) {
+        record(latency.toMillis(), true);
+    }
+
+    /**
+     * Halve the batch size immediately, for instance after a {@code 413 Payload Too Large} response or a timeout.
+     */
+    public synchronized void onOversized() {
+        decrease();
+        samples = 0;
+        errors = 0;
+    }
+
+    private void record(long latencyMillis, boolean failed) {
+        latencies[samples++] = latencyMillis;
+        if (failed) {
+            errors++;
+        }
+        if (samples < latencies.length) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+        double errorRate = (double) errors / samples;
+        if (p95 > latencyTargetMillis || errorRate > MAX_ERROR_RATE) {
+            decrease();
+        } else if (errors == 0) {
+            batchSize.getAndUpdate(size -> Math.min(maxSize, size + minSize));
+        }
+        log.debug("Transaction batch size {} after window with p95 {} ms and error rate {}", batchSize.get(), p95,
+            errorRate);
+        samples = 0;
+        errors = 0;
+    }
+
+    private void decrease() {
+        batchSize.getAndUpdate(size -> Math.max(minSize, size / 2));
+    }
+}
@@ -0,0 +1,168 @@
+package com.backbase.stream.transaction;
+
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionItem;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.BeanUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * Orders transactions the way DBS does for the {@code orderBy}, {@code direction} and {@code secDirection} fields of a
+ * {@link TransactionsQuery}, so that results of several queries can be merged.
+ *
+ * <p>Defaults to {@code bookingDate} descending. Ties are broken on the transaction id in {@code secDirection}
+ * (defaulting to {@code direction}), and missing values sort last.</p>
+ */
+public class TransactionOrdering {
+
+    private static final String DESC = "DESC";
+    private static final String DEFAULT_ORDER_BY = "bookingDate";
+
+    private static final Map<String, String> PROPERTY_PATHS = new HashMap<>();
+    private static final Map<String, Boolean> NUMERIC = new HashMap<>();
+
+    static {
+        PROPERTY_PATHS.put("amount", "transactionAmountCurrency.amount");
+        PROPERTY_PATHS.put("currency", "transactionAmountCurrency.currencyCode");
+        PROPERTY_PATHS.put("instructedAmount", "instructedAmountCurrency.amount");
+        PROPERTY_PATHS.put("instructedCurrency", "instructedAmountCurrency.currencyCode");
+        NUMERIC.put("amount", true);
+        NUMERIC.put("instructedAmount", true);
+        NUMERIC.put("currencyExchangeRate", true);
+        NUMERIC.put("checkSerialNumber", true);
+    }
+
+    private final String orderBy;
+    private final List<Method> getters;
+    private final boolean descending;
+    private final boolean secondaryDescending;
+
+    private TransactionOrdering(String orderBy, boolean descending, boolean secondaryDescending) {
+        this.orderBy = orderBy;
+        this.getters = getters(PROPERTY_PATHS.getOrDefault(orderBy, orderBy));
+        this.descending = descending;
+        this.secondaryDescending = secondaryDescending;
+    }
+
+    public static TransactionOrdering of(TransactionsQuery transactionsQuery) {
+        String orderBy = transactionsQuery.getOrderBy() != null ? transactionsQuery.getOrderBy() : DEFAULT_ORDER_BY;
+        boolean descending = transactionsQuery.getDirection() == null
+            || DESC.equalsIgnoreCase(transactionsQuery.getDirection());
+        boolean secondaryDescending = transactionsQuery.getSecDirection() != null
+            ? DESC.equalsIgnoreCase(transactionsQuery.getSecDirection())
+            : descending;
+        return new TransactionOrdering(orderBy, descending, secondaryDescending);
+    }
+
+    /**
+     * K-way merge the given results into the first {@code limit} transactions in this order. Each result must already
+     * be in this order, as DBS returns it for a query with the same ordering fields. Transactions are merged as they
+     * are requested, and the key of each transaction is only read once.
+     *
+     * @param results Results of separate queries
+     * @param limit   Maximum number of transactions to return
+     * @return Merged transactions
+     */
+    @SuppressWarnings("unchecked")
+    public Flux<TransactionItem> merge(List<List<TransactionItem>> results, int limit) {
+        if (limit <= 0) {
+            return Flux.empty();
+        }
+        Publisher<Keyed>[] sources = results.stream()
+            .map(result -> Flux.fromIterable(result).map(this::keyed))
+            .toArray(Publisher[]::new);
+        return Flux.mergeOrdered(comparator(), sources)
+            .take(limit)
+            .map(keyed -> keyed.transactionItem);
+    }
+
+    private Keyed keyed(TransactionItem transactionItem) {
+        return new Keyed(transactionItem, key(transactionItem), transactionItem.getId());
+    }
+
+    private Comparator<Keyed> comparator() {
+        return (left, right) -> {
+            int result = compare(left.key, right.key, descending);
+            return result != 0 ? result : compare(left.id, right.id, secondaryDescending);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Comparable left, Comparable right, boolean descending) {
+        if (left == right) {
+            return 0;
+        }
+        if (left == null) {
+            return 1;
+        }
+        if (right == null) {
+            return -1;
+        }
+        int result = left.getClass() == right.getClass()
+            ? left.compareTo(right)
+            : left.toString().compareTo(right.toString());
+        return descending ? -result : result;
+    }
+
+    private Comparable<?> key(TransactionItem transactionItem) {
+        if (getters == null) {
+            return null;
+        }
+        Object value = transactionItem;
+        try {
+            for (Method getter : getters) {
+                value = getter.invoke(value);
+                if (value == null) {
+                    return null;
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+        if (NUMERIC.containsKey(orderBy) && !(value instanceof BigDecimal)) {
+            try {
+                return new BigDecimal(value.toString());
+            } catch (NumberFormatException e) {
+                return value.toString();
+            }
+        }
+        return value instanceof Comparable ? (Comparable<?>) value : value.toString();
+    }
+
+    /**
+     * Resolve the getters along a property path of {@link TransactionItem}, or {@code null} for an unknown property.
+     */
+    private static List<Method> getters(String propertyPath) {
+        List<Method> getters = new ArrayList<>();
+        Class<?> type = TransactionItem.class;
+        for (String property : propertyPath.split("\\.")) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, property);
+            if (descriptor == null || descriptor.getReadMethod() == null) {
+                return null;
+            }
+            getters.add(descriptor.getReadMethod());
+            type = descriptor.getPropertyType();
+        }
+        return getters;
+    }
+
+    private static class Keyed {
+
+        private final TransactionItem transactionItem;
+        private final Comparable<?> key;
+        private final String id;
+
+        private Keyed(TransactionItem transactionItem, Comparable<?> key, String id) {
+            this.transactionItem = transactionItem;
+            this.key = key;
+            this.id = id;
+        }
+    }
+}
@@ -3,12 +3,15 @@ package com.backbase.stream.transaction;
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequestBody;
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostResponseBody;
 import com.backbase.stream.worker.model.StreamTask;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
+@NoArgsConstructor
 public class TransactionTask extends StreamTask {
 
     public TransactionTask(String unitOfWorkId, List<TransactionsPostRequestBody> data) {
@@ -19,6 +22,25 @@ public class TransactionTask extends StreamTask {
     private List<TransactionsPostRequestBody> data;
     private List<TransactionsPostResponseBody> response;
 
+    /**
+     * Number of leading transactions in {@code data} accepted by DBS. A retry posts only the transactions after them.
+     */
+    private int accepted;
+
+    /**
+     * Record a batch of transactions, following the ones accepted before, as accepted.
+     *
+     * @param count          Number of transactions in the batch
+     * @param transactionIds Ids DBS assigned to them
+     */
+    public void accept(int count, List<TransactionsPostResponseBody> transactionIds) {
+        accepted += count;
+        if (response == null) {
+            response = new ArrayList<>();
+        }
+        response.addAll(transactionIds);
+    }
+
     @Override
     public String getName() {
         return "transaction";
@@ -4,44 +4,177 @@ import com.backbase.dbs.transaction.api.service.v2.TransactionPresentationServic
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequestBody;
 import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostResponseBody;
 import com.backbase.stream.worker.StreamTaskExecutor;
+import com.backbase.stream.worker.dedup.TimeWindowedDeduplicator;
 import com.backbase.stream.worker.exception.StreamTaskException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Slf4j
 public class TransactionTaskExecutor implements StreamTaskExecutor<TransactionTask> {
 
     private final TransactionPresentationServiceApi transactionPresentationServiceApi;
+    private final AdaptiveBatchSizer batchSizer;
+    private final TimeWindowedDeduplicator deduplicator;
 
     public TransactionTaskExecutor(TransactionPresentationServiceApi transactionPresentationServiceApi) {
+        this(transactionPresentationServiceApi, null, null);
+    }
+
+    /**
+     * Create an executor that posts the transactions of a task in batches sized by the given sizer. Batches rejected
+     * as too large, or that time out, are split in half and posted again.
+     *
+     * @param transactionPresentationServiceApi Transaction API
+     * @param batchSizer                        Batch sizer, or {@code null} to post each task in a single request
+     */
+    public TransactionTaskExecutor(TransactionPresentationServiceApi transactionPresentationServiceApi,
+        AdaptiveBatchSizer batchSizer) {
+        this(transactionPresentationServiceApi, batchSizer, null);
+    }
+
+    /**
+     * Create an executor that also drops transactions whose external id was ingested before, according to the given
+     * deduplicator, and records the external ids of ingested transactions.
+     *
+     * @param transactionPresentationServiceApi Transaction API
+     * @param batchSizer                        Batch sizer, or {@code null} to post each task in a single request
+     * @param deduplicator                      Deduplicator, or {@code null} to post every transaction
+     */
+    public TransactionTaskExecutor(TransactionPresentationServiceApi transactionPresentationServiceApi,
+        AdaptiveBatchSizer batchSizer, TimeWindowedDeduplicator deduplicator) {
         this.transactionPresentationServiceApi = transactionPresentationServiceApi;
+        this.batchSizer = batchSizer;
+        this.deduplicator = deduplicator;
     }
 
+    /**
+     * Post the transactions of the task that were not accepted yet. Every accepted batch is recorded in the task, so a
+     * retry of a failed task resumes after the last accepted batch instead of posting earlier batches again.
+     */
     @Override
     public Mono<TransactionTask> executeTask(TransactionTask streamTask) {
         List<TransactionsPostRequestBody> data = streamTask.getData();
-        String externalIds = streamTask.getData().stream().map(TransactionsPostRequestBody::getExternalId)
-            .collect(Collectors.joining(","));
-        log.info("Post {} transactions: ", data.size());
-        return transactionPresentationServiceApi.postTransactions(data)
+        int accepted = Math.min(streamTask.getAccepted(), data.size());
+        List<TransactionsPostRequestBody> remaining = dropDuplicates(streamTask, data.subList(accepted, data.size()));
+        if (remaining.size() < data.size() - accepted) {
+            List<TransactionsPostRequestBody> unique = new ArrayList<>(data.subList(0, accepted));
+            unique.addAll(remaining);
+            streamTask.setData(unique);
+        }
+        log.info("Post {} transactions: ", remaining.size());
+        int batchSize = batchSizer != null ? batchSizer.getBatchSize() : Math.max(1, remaining.size());
+        return Flux.fromIterable(partition(remaining, batchSize))
+            .concatMap(batch -> postTransactions(streamTask, batch))
+            .then(Mono.fromCallable(() -> {
+                if (streamTask.getResponse() == null) {
+                    streamTask.setResponse(new ArrayList<>());
+                }
+                return streamTask;
+            }));
+    }
+
+    private Mono<Void> postTransactions(TransactionTask streamTask, List<TransactionsPostRequestBody> batch) {
+        long start = System.nanoTime();
+        return transactionPresentationServiceApi.postTransactions(batch)
+            .collectList()
+            .doOnSuccess(transactionIds -> {
+                streamTask.accept(batch.size(), transactionIds);
+                if (deduplicator != null) {
+                    batch.stream().map(TransactionsPostRequestBody::getExternalId).filter(Objects::nonNull)
+                        .forEach(deduplicator::record);
+                }
+                if (batchSizer != null) {
+                    batchSizer.onSuccess(Duration.ofNanos(System.nanoTime() - start));
+                }
+                streamTask.info("transactions", "post", "success", externalIds(batch), transactionIds.stream()
+                    .map(TransactionsPostResponseBody::getId).collect(Collectors.joining(",")),
+                    "Ingested Transactions");
+            })
+            .then()
+            .onErrorResume(throwable -> {
+                // Other errors, such as validation errors, say nothing about the batch size. Failures of split
+                // batches were handled by the split already.
+                if (batchSizer == null || throwable instanceof StreamTaskException || !isOversized(throwable)) {
+                    return Mono.error(throwable);
+                }
+                if (batch.size() > 1) {
+                    batchSizer.onOversized();
+                    int half = batch.size() / 2;
+                    streamTask.warn("transactions", "post", "split", externalIds(batch), null,
+                        "Splitting batch of %s transactions after: %s", batch.size(), throwable.getMessage());
+                    return postTransactions(streamTask, batch.subList(0, half))
+                        .then(postTransactions(streamTask, batch.subList(half, batch.size())));
+                }
+                batchSizer.onFailure(Duration.ofNanos(System.nanoTime() - start));
+                return Mono.error(throwable);
+            })
             .onErrorResume(WebClientResponseException.class, throwable -> {
-                streamTask.error("transactions", "post", "failed", externalIds, null, throwable,
+                streamTask.error("transactions", "post", "failed", externalIds(batch), null, throwable,
                     throwable.getResponseBodyAsString(), "Failed to ingest transactions");
                 return Mono.error(new StreamTaskException(streamTask, throwable,
                     "Failed to Ingest Transactions: " + throwable.getResponseBodyAsString()));
-            })
-            .collectList()
-            .map(transactionIds -> {
-                streamTask.error("transactions", "post", "success", externalIds, transactionIds.stream().map(
-                    TransactionsPostResponseBody::getId).collect(Collectors.joining(",")), "Ingested Transactions");
-                streamTask.setResponse(transactionIds);
-                return streamTask;
             });
     }
 
+    private List<TransactionsPostRequestBody> dropDuplicates(TransactionTask streamTask,
+        List<TransactionsPostRequestBody> data) {
+        if (deduplicator == null) {
+            return data;
+        }
+        List<TransactionsPostRequestBody> unique = new ArrayList<>(data.size());
+        Set<String> seen = new HashSet<>();
+        for (TransactionsPostRequestBody transaction : data) {
+            String externalId = transaction.getExternalId();
+            if (externalId == null) {
+                unique.add(transaction);
+            } else if (!seen.add(externalId) || deduplicator.isDuplicate(externalId)) {
+                streamTask.info("transactions", "post", "duplicate", externalId, null,
+                    "Dropped duplicate transaction: %s", externalId);
+            } else {
+                unique.add(transaction);
+            }
+        }
+        return unique;
+    }
+
+    private static boolean isOversized(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException) {
+                int status = ((WebClientResponseException) cause).getRawStatusCode();
+                return status == HttpStatus.PAYLOAD_TOO_LARGE.value()
+                    || status == HttpStatus.REQUEST_TIMEOUT.value()
+                    || status == HttpStatus.GATEWAY_TIMEOUT.value();
+            }
+            if (cause instanceof TimeoutException || cause.getClass().getSimpleName().endsWith("TimeoutException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String externalIds(List<TransactionsPostRequestBody> batch) {
+        return batch.stream().map(TransactionsPostRequestBody::getExternalId).collect(Collectors.joining(","));
+    }
+
+    private static <T> List<List<T>> partition(List<T> items, int size) {
+        List<List<T>> partitions = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            partitions.add(items.subList(i, Math.min(i + size, items.size())));
+        }
+        return partitions;
+    }
+
     @Override
     public Mono<TransactionTask> rollBack(TransactionTask streamTask) {
         return Mono.just(streamTask);
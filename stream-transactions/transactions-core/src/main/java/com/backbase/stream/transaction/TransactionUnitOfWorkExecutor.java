@@ -4,14 +4,20 @@ import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequest
 import com.backbase.stream.configuration.TransactionWorkerConfigurationProperties;
 import com.backbase.stream.worker.StreamTaskExecutor;
 import com.backbase.stream.worker.UnitOfWorkExecutor;
+import com.backbase.stream.worker.batch.Batching;
 import com.backbase.stream.worker.model.UnitOfWork;
 import com.backbase.stream.worker.repository.UnitOfWorkRepository;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+@Slf4j
 public class TransactionUnitOfWorkExecutor extends UnitOfWorkExecutor<TransactionTask> {
 
     public TransactionUnitOfWorkExecutor(UnitOfWorkRepository<TransactionTask, String> repository,
@@ -48,6 +54,62 @@ public class TransactionUnitOfWorkExecutor extends UnitOfWorkExecutor<Transactio
             .flatMap(this::prepareUnitOfWork);
     }
 
+    /**
+     * Execute transactions as they arrive, batched per rail.
+     *
+     * <p>Transactions are hash partitioned by {@code externalArrangementId} on {@code streamingPartitions} rails,
+     * which stay open until the source completes. Each rail collects batches of up to {@code streamingBatchSize}
+     * transactions, and flushes a partial batch every {@code streamingFlushMaxTime}. A batch is executed as a single
+     * Unit Of Work, keeping the order of the transactions of each arrangement in it.</p>
+     *
+     * <p>A rail executes one unit at a time, so batches of the same arrangement are posted in order and at most one
+     * unit per rail is in flight. Streamed units are not saved: a failed unit is retried on its rail, with the backoff
+     * of the worker and up to {@code maxRetries} times, before the next batch of the rail is posted. A unit that still
+     * fails is logged and emitted as is, without stopping the stream. Demand flows from the subscriber back to the
+     * source, see {@link Batching}.</p>
+     *
+     * @param items Unbounded stream of transactions
+     * @return Executed Units Of Work
+     */
+    public Flux<UnitOfWork<TransactionTask>> executeStreaming(Flux<TransactionsPostRequestBody> items) {
+        TransactionWorkerConfigurationProperties properties = getTransactionWorkerConfigurationProperties();
+        int partitions = Math.max(1, properties.getStreamingPartitions());
+        AtomicLong batchSequence = new AtomicLong();
+        return items
+            .groupBy(transaction -> partition(transaction, partitions))
+            .flatMap(rail -> Batching.batch(rail, properties.getStreamingBatchSize(),
+                properties.getStreamingFlushMaxTime())
+                .map(batch -> {
+                    String unitOfOWorkId = "transactions-streamed-" + rail.key() + "-"
+                        + batchSequence.incrementAndGet();
+                    return UnitOfWork.from(unitOfOWorkId, new TransactionTask(unitOfOWorkId, batch));
+                })
+                .concatMap(this::executeStreamedUnitOfWork, 1), partitions);
+    }
+
+    private Mono<UnitOfWork<TransactionTask>> executeStreamedUnitOfWork(UnitOfWork<TransactionTask> unitOfWork) {
+        return executeUnsavedUnitOfWork(unitOfWork)
+            .flatMap(executed -> {
+                if (executed.getState() != UnitOfWork.State.FAILED) {
+                    return Mono.just(executed);
+                }
+                int retries = executed.getRetries();
+                if (retries >= streamWorkerConfiguration.getMaxRetries()) {
+                    log.error("Unit Of Work: {} failed after {} retries", executed.getUnitOfOWorkId(), retries);
+                    executed.setState(UnitOfWork.State.FAILED_RETRIES_EXHAUSTED);
+                    return Mono.just(executed);
+                }
+                Duration delay = getRetryPolicy().nextAttemptDelay(retries);
+                log.info("Retrying Unit Of Work: {} in {}", executed.getUnitOfOWorkId(), delay);
+                executed.setRetries(retries + 1);
+                return Mono.delay(delay).then(Mono.defer(() -> executeStreamedUnitOfWork(executed)));
+            });
+    }
+
+    private static int partition(TransactionsPostRequestBody transaction, int partitions) {
+        return Math.floorMod(String.valueOf(transaction.getExternalArrangementId()).hashCode(), partitions);
+    }
+
     public TransactionWorkerConfigurationProperties getTransactionWorkerConfigurationProperties() {
         return (TransactionWorkerConfigurationProperties) super.getStreamWorkerConfiguration();
     }
@@ -0,0 +1,104 @@
+package com.backbase.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionItem;
+import com.backbase.stream.configuration.TransactionWorkerConfigurationProperties;
+import com.backbase.stream.transaction.TransactionUnitOfWorkExecutor;
+import com.backbase.stream.transaction.TransactionsQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class TransactionServiceTest {
+
+    private final TransactionWorkerConfigurationProperties properties = new TransactionWorkerConfigurationProperties();
+    private final List<TransactionsQuery> queries = new ArrayList<>();
+
+    @Test
+    public void streamsPagesUntilShortPage() {
+        TransactionService transactionService = transactionService(2, 2, 1);
+
+        StepVerifier.create(transactionService.streamTransactions(TransactionsQuery.builder().size(2).build())
+            .map(TransactionItem::getId))
+            .expectNext("0-0", "0-1", "1-0", "1-1", "2-0")
+            .verifyComplete();
+
+        assertEquals(Arrays.asList(0, 1, 2), queries.stream().limit(3).map(TransactionsQuery::getFrom)
+            .collect(Collectors.toList()));
+        assertEquals(Integer.valueOf(2), queries.get(0).getSize());
+    }
+
+    @Test
+    public void startsAtPageOfQueryWithReadPageSize() {
+        properties.setReadPageSize(3);
+        TransactionService transactionService = transactionService(3, 1);
+
+        StepVerifier.create(transactionService.streamTransactions(TransactionsQuery.builder().from(2).build()))
+            .expectNextCount(4)
+            .verifyComplete();
+
+        assertEquals(Integer.valueOf(2), queries.get(0).getFrom());
+        assertEquals(Integer.valueOf(3), queries.get(0).getSize());
+    }
+
+    @Test
+    public void requestsPagesAsConsumed() {
+        properties.setReadPrefetchPages(0);
+        TransactionService transactionService = transactionService(2, 2, 2, 2);
+
+        StepVerifier.create(transactionService.streamTransactions(TransactionsQuery.builder().size(2).build()), 1)
+            .expectNextCount(1)
+            .then(() -> assertEquals(2, queries.size()))
+            .thenRequest(2)
+            .expectNextCount(2)
+            .then(() -> assertEquals(3, queries.size()))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    public void rejectsNonPositiveQuerySize() {
+        TransactionService transactionService = transactionService(1);
+
+        StepVerifier.create(transactionService.streamTransactions(TransactionsQuery.builder().size(0).build()))
+            .verifyError(IllegalArgumentException.class);
+
+        assertEquals(0, queries.size());
+    }
+
+    @Test
+    public void rejectsNonPositiveReadPageSize() {
+        properties.setReadPageSize(-1);
+        TransactionService transactionService = transactionService(1);
+
+        StepVerifier.create(transactionService.streamTransactions(new TransactionsQuery()))
+            .verifyError(IllegalArgumentException.class);
+
+        assertEquals(0, queries.size());
+    }
+
+    private TransactionService transactionService(int... pageSizes) {
+        TransactionUnitOfWorkExecutor executor = mock(TransactionUnitOfWorkExecutor.class);
+        when(executor.getTransactionWorkerConfigurationProperties()).thenReturn(properties);
+        return new TransactionService(null, executor) {
+            @Override
+            public Flux<TransactionItem> getTransactions(TransactionsQuery transactionsQuery) {
+                return Flux.defer(() -> {
+                    queries.add(transactionsQuery);
+                    int page = transactionsQuery.getFrom() - queries.get(0).getFrom();
+                    int items = page < pageSizes.length ? pageSizes[page] : 0;
+                    return Flux.fromStream(IntStream.range(0, items)
+                        .mapToObj(item -> new TransactionItem().id(page + "-" + item)));
+                });
+            }
+        };
+    }
+}
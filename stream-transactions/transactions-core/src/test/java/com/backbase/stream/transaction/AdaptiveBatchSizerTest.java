@@ -0,0 +1,85 @@
+package com.backbase.stream.transaction;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+
+    private static final Duration FAST = Duration.ofMillis(100);
+    private static final Duration SLOW = Duration.ofSeconds(2);
+
+    private final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer("test", 100, 10, 120, Duration.ofSeconds(1), 20);
+
+    @Test
+    public void growsAdditivelyAfterFastWindow() {
+        window(20, FAST, 0);
+        assertEquals(110, sizer.getBatchSize());
+
+        window(20, FAST, 0);
+        window(20, FAST, 0);
+        assertEquals(120, sizer.getBatchSize());
+    }
+
+    @Test
+    public void keepsSizeUntilWindowIsComplete() {
+        window(19, FAST, 0);
+        assertEquals(100, sizer.getBatchSize());
+    }
+
+    @Test
+    public void halvesWhenP95ExceedsTarget() {
+        window(18, FAST, 0);
+        window(2, SLOW, 0);
+        assertEquals(50, sizer.getBatchSize());
+    }
+
+    @Test
+    public void ignoresLatencyOutliersBelowP95() {
+        window(19, FAST, 0);
+        window(1, SLOW, 0);
+        assertEquals(110, sizer.getBatchSize());
+    }
+
+    @Test
+    public void halvesWhenErrorRateExceedsTenPercent() {
+        window(17, FAST, 3);
+        assertEquals(50, sizer.getBatchSize());
+    }
+
+    @Test
+    public void holdsSizeWithFewErrors() {
+        window(18, FAST, 2);
+        assertEquals(100, sizer.getBatchSize());
+    }
+
+    @Test
+    public void halvesOversizedBatchesDownToMinimum() {
+        sizer.onOversized();
+        assertEquals(50, sizer.getBatchSize());
+        for (int i = 0; i < 5; i++) {
+            sizer.onOversized();
+        }
+        assertEquals(10, sizer.getBatchSize());
+    }
+
+    @Test
+    public void oversizedBatchStartsNewWindow() {
+        window(19, SLOW, 0);
+        sizer.onOversized();
+        window(19, FAST, 0);
+        assertEquals(50, sizer.getBatchSize());
+        window(1, FAST, 0);
+        assertEquals(60, sizer.getBatchSize());
+    }
+
+    private void window(int successes, Duration latency, int failures) {
+        for (int i = 0; i < failures; i++) {
+            sizer.onFailure(latency);
+        }
+        for (int i = 0; i < successes; i++) {
+            sizer.onSuccess(latency);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.backbase.stream.transaction;
+
+import static org.junit.Assert.assertEquals;
+
+import com.backbase.dbs.transaction.api.service.v2.model.Currency;
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionItem;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import reactor.test.StepVerifier;
+
+public class TransactionOrderingTest {
+
+    @Test
+    public void mergesByBookingDateDescendingByDefault() {
+        List<List<TransactionItem>> results = Arrays.asList(
+            Arrays.asList(booked("a1", 5), booked("a2", 1)),
+            Arrays.asList(booked("b1", 3), booked("b2", 2)),
+            Collections.emptyList());
+
+        assertEquals(Arrays.asList("a1", "b1", "b2", "a2"), merge(new TransactionsQuery(), results, 10));
+    }
+
+    @Test
+    public void sortsMissingValuesLast() {
+        TransactionsQuery ascending = TransactionsQuery.builder().direction("ASC").build();
+
+        assertEquals(Arrays.asList("a1", "b1", "a2"), merge(new TransactionsQuery(), Arrays.asList(
+            Arrays.asList(booked("a1", 5), booked("a2", null)),
+            Collections.singletonList(booked("b1", 3))), 10));
+        assertEquals(Arrays.asList("a1", "b1", "a2"), merge(ascending, Arrays.asList(
+            Arrays.asList(booked("a1", 1), booked("a2", null)),
+            Collections.singletonList(booked("b1", 3))), 10));
+    }
+
+    @Test
+    public void breaksTiesOnIdInSecondaryDirection() {
+        List<List<TransactionItem>> results = Arrays.asList(
+            Collections.singletonList(booked("t2", 1)),
+            Collections.singletonList(booked("t1", 1)),
+            Collections.singletonList(booked("t3", 1)));
+
+        assertEquals(Arrays.asList("t3", "t2", "t1"), merge(new TransactionsQuery(), results, 10));
+        assertEquals(Arrays.asList("t1", "t2", "t3"),
+            merge(TransactionsQuery.builder().secDirection("ASC").build(), results, 10));
+        assertEquals(Arrays.asList("t1", "t2", "t3"),
+            merge(TransactionsQuery.builder().direction("ASC").build(), results, 10));
+    }
+
+    @Test
+    public void stopsAtLimit() {
+        List<List<TransactionItem>> results = Arrays.asList(
+            Arrays.asList(booked("a1", 5), booked("a2", 1)),
+            Arrays.asList(booked("b1", 3), booked("b2", 2)));
+        TransactionOrdering ordering = TransactionOrdering.of(new TransactionsQuery());
+
+        assertEquals(Arrays.asList("a1", "b1"), merge(new TransactionsQuery(), results, 2));
+        StepVerifier.create(ordering.merge(results, 0)).verifyComplete();
+        StepVerifier.create(ordering.merge(Collections.emptyList(), 10)).verifyComplete();
+    }
+
+    @Test
+    public void comparesNumericPropertiesAsNumbers() {
+        List<List<TransactionItem>> results = Arrays.asList(
+            Collections.singletonList(amount("ten", "10")),
+            Collections.singletonList(amount("nine", "9.5")));
+
+        assertEquals(Arrays.asList("nine", "ten"),
+            merge(TransactionsQuery.builder().orderBy("amount").direction("ASC").build(), results, 10));
+    }
+
+    @Test
+    public void comparesMixedTypesAsText() {
+        List<List<TransactionItem>> results = Arrays.asList(
+            Collections.singletonList(amount("text", "abc")),
+            Collections.singletonList(amount("ten", "10")),
+            Collections.singletonList(amount("none", null)));
+
+        assertEquals(Arrays.asList("ten", "text", "none"),
+            merge(TransactionsQuery.builder().orderBy("amount").direction("ASC").build(), results, 10));
+        assertEquals(Arrays.asList("text", "ten", "none"),
+            merge(TransactionsQuery.builder().orderBy("amount").build(), results, 10));
+    }
+
+    @Test
+    public void ordersUnknownPropertiesOnId() {
+        List<List<TransactionItem>> results = Arrays.asList(
+            Collections.singletonList(booked("t1", 1)),
+            Collections.singletonList(booked("t2", 2)));
+
+        assertEquals(Arrays.asList("t2", "t1"),
+            merge(TransactionsQuery.builder().orderBy("unknown").build(), results, 10));
+    }
+
+    private static List<String> merge(TransactionsQuery query, List<List<TransactionItem>> results, int limit) {
+        return TransactionOrdering.of(query).merge(results, limit).map(TransactionItem::getId).collectList().block();
+    }
+
+    private static TransactionItem booked(String id, Integer day) {
+        return new TransactionItem().id(id).bookingDate(day != null ? LocalDate.of(2020, 1, day) : null);
+    }
+
+    private static TransactionItem amount(String id, String amount) {
+        return new TransactionItem().id(id).transactionAmountCurrency(new Currency().amount(amount));
+    }
+}
@@ -0,0 +1,109 @@
+package com.backbase.stream.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.backbase.dbs.transaction.api.service.v2.TransactionPresentationServiceApi;
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequestBody;
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostResponseBody;
+import com.backbase.stream.worker.exception.StreamTaskException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class TransactionTaskExecutorTest {
+
+    private final TransactionPresentationServiceApi api = mock(TransactionPresentationServiceApi.class);
+    private final List<List<String>> posted = new ArrayList<>();
+
+    @Test
+    public void retryResumesAfterLastAcceptedBatch() {
+        AdaptiveBatchSizer sizer = sizer(2);
+        TransactionTaskExecutor executor = new TransactionTaskExecutor(api, sizer);
+        TransactionTask task = task(6);
+        respond(batch -> batch.contains("transaction-2"), HttpStatus.SERVICE_UNAVAILABLE);
+
+        StepVerifier.create(executor.executeTask(task)).verifyError(StreamTaskException.class);
+        assertEquals(2, task.getAccepted());
+        assertEquals(2, sizer.getBatchSize());
+
+        posted.clear();
+        respond(batch -> false, HttpStatus.SERVICE_UNAVAILABLE);
+        StepVerifier.create(executor.executeTask(task)).expectNext(task).verifyComplete();
+
+        assertEquals(ids(2, 4), posted.get(0));
+        assertEquals(ids(4, 6), posted.get(1));
+        assertEquals(2, posted.size());
+        assertEquals(6, task.getAccepted());
+        assertEquals(ids(0, 6), task.getResponse().stream().map(TransactionsPostResponseBody::getId)
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void splitsBatchesRejectedAsTooLarge() {
+        AdaptiveBatchSizer sizer = sizer(4);
+        TransactionTaskExecutor executor = new TransactionTaskExecutor(api, sizer);
+        TransactionTask task = task(4);
+        respond(batch -> batch.size() > 1, HttpStatus.PAYLOAD_TOO_LARGE);
+
+        StepVerifier.create(executor.executeTask(task)).expectNext(task).verifyComplete();
+
+        assertEquals(4, task.getAccepted());
+        assertEquals(1, sizer.getBatchSize());
+        assertEquals(ids(0, 1), posted.get(2));
+        assertEquals(7, posted.size());
+    }
+
+    @Test
+    public void clientErrorsDoNotShrinkBatches() {
+        AdaptiveBatchSizer sizer = sizer(2);
+        TransactionTaskExecutor executor = new TransactionTaskExecutor(api, sizer);
+        TransactionTask task = task(4);
+        respond(batch -> true, HttpStatus.BAD_REQUEST);
+
+        StepVerifier.create(executor.executeTask(task)).verifyError(StreamTaskException.class);
+
+        assertEquals(1, posted.size());
+        assertEquals(0, task.getAccepted());
+        assertEquals(2, sizer.getBatchSize());
+    }
+
+    private void respond(Predicate<List<String>> failing, HttpStatus status) {
+        doAnswer(invocation -> Flux.defer(() -> {
+            List<TransactionsPostRequestBody> batch = invocation.getArgument(0);
+            List<String> externalIds = batch.stream().map(TransactionsPostRequestBody::getExternalId)
+                .collect(Collectors.toList());
+            posted.add(externalIds);
+            if (failing.test(externalIds)) {
+                return Flux.error(WebClientResponseException.create(status.value(), status.getReasonPhrase(), null,
+                    null, null));
+            }
+            return Flux.fromIterable(externalIds).map(id -> new TransactionsPostResponseBody().id(id));
+        })).when(api).postTransactions(anyList());
+    }
+
+    private static AdaptiveBatchSizer sizer(int batchSize) {
+        return new AdaptiveBatchSizer("test", batchSize, 1, batchSize, Duration.ofSeconds(10), 100);
+    }
+
+    private static TransactionTask task(int size) {
+        List<TransactionsPostRequestBody> transactions = IntStream.range(0, size)
+            .mapToObj(i -> new TransactionsPostRequestBody().externalId("transaction-" + i))
+            .collect(Collectors.toList());
+        return new TransactionTask("unit", transactions);
+    }
+
+    private static List<String> ids(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "transaction-" + i).collect(Collectors.toList());
+    }
+}
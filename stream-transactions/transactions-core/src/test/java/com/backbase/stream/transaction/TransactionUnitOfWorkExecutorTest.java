@@ -0,0 +1,119 @@
+package com.backbase.stream.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequestBody;
+import com.backbase.stream.configuration.TransactionWorkerConfigurationProperties;
+import com.backbase.stream.worker.StreamTaskExecutor;
+import com.backbase.stream.worker.model.UnitOfWork;
+import com.backbase.stream.worker.repository.impl.InMemoryReactiveUnitOfWorkRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class TransactionUnitOfWorkExecutorTest {
+
+    private final Map<String, List<String>> posted = new ConcurrentHashMap<>();
+    private final Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+    private final InMemoryReactiveUnitOfWorkRepository<TransactionTask> repository =
+        new InMemoryReactiveUnitOfWorkRepository<>();
+
+    private final StreamTaskExecutor<TransactionTask> taskExecutor = new StreamTaskExecutor<TransactionTask>() {
+        @Override
+        public Mono<TransactionTask> executeTask(TransactionTask streamTask) {
+            for (TransactionsPostRequestBody transaction : streamTask.getData()) {
+                String arrangementId = transaction.getExternalArrangementId();
+                if (arrangementId.equals("failing")
+                    || arrangementId.equals("flaky") && failedOnce.add(streamTask.getId())) {
+                    return Mono.error(new IllegalStateException("Arrangement failed"));
+                }
+            }
+            return Mono.delay(Duration.ofMillis(2))
+                .then(Mono.fromCallable(() -> {
+                    streamTask.getData().forEach(transaction -> posted
+                        .computeIfAbsent(transaction.getExternalArrangementId(),
+                            id -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(transaction.getExternalId()));
+                    return streamTask;
+                }));
+        }
+
+        @Override
+        public Mono<TransactionTask> rollBack(TransactionTask streamTask) {
+            return Mono.just(streamTask);
+        }
+    };
+
+    @Test
+    public void postsArrangementsInOrderWithoutLossForSlowSubscriber() {
+        TransactionUnitOfWorkExecutor executor = executor();
+        Flux<TransactionsPostRequestBody> transactions = Flux.range(0, 200)
+            .delayElements(Duration.ofMillis(1))
+            .map(i -> transaction("arrangement-" + i % 5, i));
+
+        List<UnitOfWork<TransactionTask>> executed = executor.executeStreaming(transactions)
+            .concatMap(unitOfWork -> Mono.delay(Duration.ofMillis(5)).thenReturn(unitOfWork), 1)
+            .collectList()
+            .block();
+
+        assertEquals(200, executed.stream().mapToInt(TransactionUnitOfWorkExecutorTest::transactions).sum());
+        assertTrue(executed.stream().allMatch(unitOfWork -> transactions(unitOfWork) <= 7));
+        assertEquals(5, posted.size());
+        posted.forEach((arrangementId, externalIds) -> {
+            int arrangement = Integer.parseInt(arrangementId.substring("arrangement-".length()));
+            assertEquals(IntStream.range(0, 200).filter(i -> i % 5 == arrangement).mapToObj(String::valueOf)
+                .collect(Collectors.toList()), externalIds);
+        });
+    }
+
+    @Test
+    public void retriesFailedUnitsBeforeTheNextBatchOfTheRail() {
+        TransactionUnitOfWorkExecutor executor = executor();
+        Flux<TransactionsPostRequestBody> transactions = Flux.range(0, 40)
+            .map(i -> transaction(i % 2 == 0 ? "flaky" : "failing", i));
+
+        List<UnitOfWork<TransactionTask>> executed = executor.executeStreaming(transactions).collectList().block();
+
+        assertEquals(IntStream.range(0, 40).filter(i -> i % 2 == 0).mapToObj(String::valueOf)
+            .collect(Collectors.toList()), posted.get("flaky"));
+        assertEquals(40, executed.stream().mapToInt(TransactionUnitOfWorkExecutorTest::transactions).sum());
+        Map<String, List<UnitOfWork.State>> states = executed.stream().collect(Collectors.groupingBy(
+            unitOfWork -> unitOfWork.getStreamTasks().get(0).getData().get(0).getExternalArrangementId(),
+            Collectors.mapping(UnitOfWork::getState, Collectors.toList())));
+        assertTrue(states.get("flaky").stream().allMatch(state -> state == UnitOfWork.State.COMPLETED));
+        assertTrue(states.get("failing").stream()
+            .allMatch(state -> state == UnitOfWork.State.FAILED_RETRIES_EXHAUSTED));
+        assertTrue(executed.stream().filter(unitOfWork -> unitOfWork.getState() == UnitOfWork.State.COMPLETED)
+            .allMatch(unitOfWork -> unitOfWork.getRetries() == 1));
+        assertEquals(Long.valueOf(0), repository.count().block());
+    }
+
+    private TransactionUnitOfWorkExecutor executor() {
+        TransactionWorkerConfigurationProperties properties = new TransactionWorkerConfigurationProperties();
+        properties.setStreamingPartitions(2);
+        properties.setStreamingBatchSize(7);
+        properties.setStreamingFlushMaxTime(Duration.ofMillis(5));
+        properties.setMaxRetries(2);
+        properties.setRetryDuration(Duration.ofMillis(1));
+        return new TransactionUnitOfWorkExecutor(repository, taskExecutor, properties);
+    }
+
+    private static int transactions(UnitOfWork<TransactionTask> unitOfWork) {
+        return unitOfWork.getStreamTasks().get(0).getData().size();
+    }
+
+    private static TransactionsPostRequestBody transaction(String arrangementId, int externalId) {
+        return new TransactionsPostRequestBody().externalArrangementId(arrangementId)
+            .externalId(String.valueOf(externalId));
+    }
+}
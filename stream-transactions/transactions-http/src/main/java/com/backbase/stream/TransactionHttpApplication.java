@@ -1,17 +1,40 @@
 package com.backbase.stream;
 
 import com.backbase.stream.config.BackbaseStreamConfigurationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 
 @Slf4j
 @SpringBootApplication
 @EnableConfigurationProperties({BackbaseStreamConfigurationProperties.class})
 public class TransactionHttpApplication {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     public static void main(String[] args) {
         SpringApplication.run(TransactionHttpApplication.class, args);
     }
+
+    /**
+     * Write {@value #APPLICATION_NDJSON_VALUE} responses one element per line as they are produced, like
+     * {@code application/stream+json}, instead of collecting them into a JSON array.
+     */
+    @Bean
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+        return configurer -> {
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON,
+                new MediaType("application", "*+json"), MediaType.valueOf(APPLICATION_NDJSON_VALUE));
+            encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON,
+                MediaType.valueOf(APPLICATION_NDJSON_VALUE)));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+        };
+    }
 }
@@ -6,6 +6,7 @@ import com.backbase.stream.transaction.TransactionUnitOfWorkExecutor;
 import com.backbase.stream.transaction.TransactionsQuery;
 import com.backbase.stream.transaction.inbound.api.TransactionsApi;
 import com.backbase.stream.transaction.inbound.model.ArrangementItem;
+import com.backbase.stream.transaction.inbound.model.TransactionItem;
 import com.backbase.stream.transaction.inbound.model.TransactionPostResponse;
 import com.backbase.stream.transaction.inbound.model.TransactionsDeleteRequestBody;
 import com.backbase.stream.transaction.inbound.model.TransactionsGet;
@@ -18,8 +19,11 @@ import java.util.List;
 import javax.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.mapstruct.factory.Mappers;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -60,6 +64,21 @@ public class TransactionInboundRestController implements TransactionsApi {
             .map(ResponseEntity::ok);
     }
 
+    /**
+     * Stream all transactions matching the query parameters of {@link #getTransactions} as newline delimited JSON,
+     * following the pages in DBS while the response is written.
+     *
+     * @param transactionsQuery Query parameters
+     * @return One transaction per line
+     */
+    @GetMapping(value = "/transactions/stream", produces = {TransactionHttpApplication.APPLICATION_NDJSON_VALUE,
+        MediaType.APPLICATION_STREAM_JSON_VALUE})
+    @ResponseBody
+    public Flux<TransactionItem> streamTransactions(TransactionsQuery transactionsQuery) {
+        return transactionService.streamTransactions(transactionsQuery)
+            .map(mapper::toInbound);
+    }
+
     @Override
     public Mono<ResponseEntity<Void>> patchTransactions(
         @Valid Flux<TransactionsPatchRequestBody> transactionsPatchRequestBody, ServerWebExchange exchange) {
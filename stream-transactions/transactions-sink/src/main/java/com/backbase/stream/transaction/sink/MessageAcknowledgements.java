@@ -0,0 +1,151 @@
+package com.backbase.stream.transaction.sink;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.Message;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Acknowledges messages whose acknowledgement the binder left to the application.
+ *
+ * <p>Understands the Spring Integration acknowledgment callback, the Kafka binder {@code kafka_acknowledgment} header
+ * and the channel and delivery tag the Rabbit binder exposes in {@code MANUAL} acknowledge mode. The binder specific
+ * types are invoked reflectively so that neither binder is needed on the classpath. Messages without any of these
+ * headers were acknowledged by the binder already and are ignored.</p>
+ *
+ * <p>Kafka acknowledgements are cumulative: acknowledging a message commits the offsets of every earlier message of
+ * its partition. See {@link PendingMessages} for settling messages in order. A Kafka message is requeued by seeking
+ * its partition back to its offset with the {@code kafka_consumer} of the message. The consumer only allows that
+ * while its own thread is not polling, so a requeue may be refused and must then be tried again.</p>
+ */
+@Slf4j
+final class MessageAcknowledgements {
+
+    private static final String KAFKA_ACKNOWLEDGMENT = "kafka_acknowledgment";
+    private static final String KAFKA_CONSUMER = "kafka_consumer";
+    private static final String AMQP_CHANNEL = "amqp_channel";
+    private static final String KAFKA_TOPIC = "kafka_receivedTopic";
+    private static final String KAFKA_PARTITION = "kafka_receivedPartitionId";
+    private static final String KAFKA_OFFSET = "kafka_offset";
+    private static final String AMQP_DELIVERY_TAG = "amqp_deliveryTag";
+
+    private MessageAcknowledgements() {
+    }
+
+    static void accept(Message<?> message) {
+        AcknowledgmentCallback callback = StaticMessageHeaderAccessor.getAcknowledgmentCallback(message);
+        if (callback != null) {
+            if (!callback.isAcknowledged()) {
+                callback.acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+            }
+            return;
+        }
+        Object acknowledgment = message.getHeaders().get(KAFKA_ACKNOWLEDGMENT);
+        if (acknowledgment != null) {
+            invoke(acknowledgment, "acknowledge", new Class<?>[0]);
+            return;
+        }
+        Object channel = message.getHeaders().get(AMQP_CHANNEL);
+        Long deliveryTag = message.getHeaders().get(AMQP_DELIVERY_TAG, Long.class);
+        if (channel != null && deliveryTag != null) {
+            invoke(channel, "basicAck", new Class<?>[]{long.class, boolean.class}, deliveryTag, false);
+        }
+    }
+
+    /**
+     * Return the message to the broker for redelivery. On Kafka this seeks the partition back to the offset of the
+     * message, so later messages of the partition are delivered again as well.
+     *
+     * @return {@code false} when the broker did not take the message back
+     */
+    static boolean requeue(Message<?> message) {
+        AcknowledgmentCallback callback = StaticMessageHeaderAccessor.getAcknowledgmentCallback(message);
+        if (callback != null) {
+            if (!callback.isAcknowledged()) {
+                callback.acknowledge(AcknowledgmentCallback.Status.REQUEUE);
+            }
+            return true;
+        }
+        Object consumer = message.getHeaders().get(KAFKA_CONSUMER);
+        Object partition = message.getHeaders().get(KAFKA_PARTITION);
+        Long offset = offset(message);
+        if (consumer != null && partition instanceof Number && offset != null) {
+            return seek(consumer, message.getHeaders().get(KAFKA_TOPIC, String.class), ((Number) partition).intValue(),
+                offset);
+        }
+        if (message.getHeaders().containsKey(KAFKA_ACKNOWLEDGMENT)) {
+            log.warn("Cannot requeue Kafka message at offset {}: it has no {} header", offset, KAFKA_CONSUMER);
+            return false;
+        }
+        Object channel = message.getHeaders().get(AMQP_CHANNEL);
+        Long deliveryTag = message.getHeaders().get(AMQP_DELIVERY_TAG, Long.class);
+        if (channel != null && deliveryTag != null) {
+            return invoke(channel, "basicNack", new Class<?>[]{long.class, boolean.class, boolean.class}, deliveryTag,
+                false, true);
+        }
+        return true;
+    }
+
+    /**
+     * Kafka topic and partition of the message, or an empty string for binders that acknowledge each message on its
+     * own.
+     */
+    static String partition(Message<?> message) {
+        Object partition = message.getHeaders().get(KAFKA_PARTITION);
+        return partition != null ? message.getHeaders().get(KAFKA_TOPIC) + "-" + partition : "";
+    }
+
+    /**
+     * Kafka offset of the message, or {@code null} for other binders.
+     */
+    static Long offset(Message<?> message) {
+        Object offset = message.getHeaders().get(KAFKA_OFFSET);
+        return offset instanceof Number ? ((Number) offset).longValue() : null;
+    }
+
+    /**
+     * Seek with {@code Consumer.seek(TopicPartition, long)}, creating the topic partition with the class the consumer
+     * was loaded with.
+     */
+    private static boolean seek(Object consumer, String topic, int partition, long offset) {
+        for (Method method : consumer.getClass().getMethods()) {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (method.getName().equals("seek") && parameterTypes.length == 2 && parameterTypes[1] == long.class) {
+                try {
+                    Object topicPartition = parameterTypes[0].getConstructor(String.class, int.class)
+                        .newInstance(topic, partition);
+                    method.invoke(consumer, topicPartition, offset);
+                    return true;
+                } catch (InvocationTargetException e) {
+                    log.debug("Consumer refused to seek {}-{} to offset {}: {}", topic, partition, offset,
+                        e.getCause().getMessage());
+                    return false;
+                } catch (ReflectiveOperationException e) {
+                    log.warn("Cannot seek {}-{} to offset {}: {}", topic, partition, offset, e.getMessage());
+                    return false;
+                }
+            }
+        }
+        log.warn("Cannot requeue message: {} has no method seek", consumer.getClass().getName());
+        return false;
+    }
+
+    private static boolean invoke(Object target, String methodName, Class<?>[] parameterTypes, Object... args) {
+        Method method = ReflectionUtils.findMethod(target.getClass(), methodName, parameterTypes);
+        if (method == null) {
+            log.warn("Cannot acknowledge message: {} has no method {}", target.getClass().getName(), methodName);
+            return false;
+        }
+        try {
+            ReflectionUtils.makeAccessible(method);
+            method.invoke(target, args);
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to {} message: {}", methodName, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.backbase.stream.transaction.sink;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+
+/**
+ * Settles messages in the order they were received, per Kafka partition or per binding for other binders.
+ *
+ * <p>A message is done once all its transactions were ingested, or one of them failed. Acknowledgements only go out
+ * for the done messages at the head of the queue, so a message finishing early never commits the offset of an earlier
+ * message that is still being ingested. A failed message is requeued. On Kafka that rewinds the partition to the failed
+ * message, so later messages of the partition are not acknowledged, and skipped until the failed offset is delivered
+ * again.</p>
+ *
+ * <p>Messages settle on the threads ingesting them, while the Kafka consumer only allows a rewind from its own thread.
+ * The rewind of a failed Kafka message is therefore done when the next message of its partition is registered, which
+ * happens on the consumer thread unless the function is behind. It is tried again with every message that arrives until
+ * the consumer accepts it. A failed message that is the last of its partition is delivered again once the partition
+ * receives a new message, or after a restart or rebalance, as its offset is never committed.</p>
+ */
+@Slf4j
+final class PendingMessages {
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Start tracking a message.
+     *
+     * @param message      Received message
+     * @param transactions Number of transactions in the message, at least one
+     * @return The pending message, or {@code null} when the message follows a requeued message of its partition and
+     * will be delivered again
+     */
+    PendingMessage register(Message<?> message, int transactions) {
+        Partition partition = partitions.computeIfAbsent(MessageAcknowledgements.partition(message),
+            key -> new Partition());
+        PendingMessage pendingMessage = new PendingMessage(partition, message, transactions);
+        return partition.add(pendingMessage) ? pendingMessage : null;
+    }
+
+    /**
+     * A received message whose transactions are being ingested.
+     */
+    static final class PendingMessage {
+
+        private final Partition partition;
+        private final Message<?> message;
+        private final Long offset;
+        private final AtomicInteger remaining;
+        private volatile Boolean accepted;
+
+        private PendingMessage(Partition partition, Message<?> message, int transactions) {
+            this.partition = partition;
+            this.message = message;
+            this.offset = MessageAcknowledgements.offset(message);
+            this.remaining = new AtomicInteger(transactions);
+        }
+
+        /**
+         * Record a transaction of the message as ingested.
+         */
+        void completed() {
+            if (remaining.decrementAndGet() == 0) {
+                done(true);
+            }
+        }
+
+        /**
+         * Record a transaction of the message as failed.
+         */
+        void failed() {
+            done(false);
+        }
+
+        private void done(boolean accepted) {
+            synchronized (partition) {
+                if (this.accepted == null) {
+                    this.accepted = accepted;
+                    partition.settle();
+                }
+            }
+        }
+    }
+
+    private static final class Partition {
+
+        private final Deque<PendingMessage> pending = new ArrayDeque<>();
+
+        /**
+         * Failed Kafka message whose partition was not rewound yet.
+         */
+        private PendingMessage rewind;
+
+        /**
+         * Offset of the last requeued Kafka message, until it is delivered again.
+         */
+        private Long requeuedOffset;
+
+        private synchronized boolean add(PendingMessage pendingMessage) {
+            if (rewind != null && MessageAcknowledgements.requeue(rewind.message)) {
+                log.info("Rewound partition to requeued offset {}", rewind.offset);
+                rewind = null;
+            }
+            if (requeuedOffset != null) {
+                if (pendingMessage.offset == null || pendingMessage.offset > requeuedOffset) {
+                    log.debug("Skipping message at offset {} after requeued offset {}", pendingMessage.offset,
+                        requeuedOffset);
+                    return false;
+                }
+                // Delivered again, by the rewind or by a rebalance
+                requeuedOffset = null;
+                rewind = null;
+            }
+            pending.add(pendingMessage);
+            return true;
+        }
+
+        private synchronized void settle() {
+            while (!pending.isEmpty() && pending.peek().accepted != null) {
+                PendingMessage head = pending.poll();
+                if (head.accepted) {
+                    MessageAcknowledgements.accept(head.message);
+                } else {
+                    if (head.offset == null) {
+                        MessageAcknowledgements.requeue(head.message);
+                    } else if (requeuedOffset == null) {
+                        // Later messages of the partition are delivered again after the failed one
+                        log.warn("Requeueing message at offset {}, dropping {} later messages of its partition",
+                            head.offset, pending.size());
+                        rewind = head;
+                        requeuedOffset = head.offset;
+                        pending.clear();
+                    }
+                }
+            }
+        }
+    }
+}
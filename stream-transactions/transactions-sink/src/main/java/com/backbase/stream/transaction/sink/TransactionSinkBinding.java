@@ -7,14 +7,18 @@ import com.backbase.stream.worker.model.UnitOfWork;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.cloud.stream.messaging.Sink;
 
 /**
- * Input chanel for ingesting transactions.
+ * Input chanel for ingesting transactions. Replaced by {@link TransactionSinkFunctionConfiguration} when
+ * {@code backbase.stream.transaction.sink.reactive} is enabled.
  */
 @EnableBinding(Sink.class)
+@ConditionalOnProperty(name = "backbase.stream.transaction.sink.reactive", havingValue = "false",
+    matchIfMissing = true)
 @Slf4j
 @AllArgsConstructor
 public class TransactionSinkBinding {
@@ -0,0 +1,34 @@
+package com.backbase.stream.transaction.sink;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backbase.stream.transaction.sink")
+@Data
+public class TransactionSinkConfigurationProperties {
+
+    /**
+     * Consume with the reactive {@code transactionSink} function instead of the blocking {@link TransactionSinkBinding}.
+     * Requires the binder to leave acknowledgement to the application, for instance
+     * {@code spring.cloud.stream.rabbit.bindings.transactionSink-in-0.consumer.acknowledge-mode=MANUAL} or
+     * {@code spring.cloud.stream.kafka.bindings.transactionSink-in-0.consumer.auto-commit-offset=false}.
+     */
+    private boolean reactive;
+
+    /**
+     * Maximum number of transactions, taken from any number of messages, posted in one Unit Of Work.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Maximum time a transaction waits for its batch to fill up.
+     */
+    private Duration batchMaxTime = Duration.ofSeconds(1);
+
+    /**
+     * Number of batches posted to DBS at the same time.
+     */
+    private int concurrency = 4;
+
+}
@@ -0,0 +1,130 @@
+package com.backbase.stream.transaction.sink;
+
+import com.backbase.dbs.transaction.api.service.v2.model.TransactionsPostRequestBody;
+import com.backbase.stream.transaction.TransactionTask;
+import com.backbase.stream.transaction.sink.PendingMessages.PendingMessage;
+import com.backbase.stream.worker.UnitOfWorkExecutor;
+import com.backbase.stream.worker.batch.Batching;
+import com.backbase.stream.worker.model.UnitOfWork;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive input for ingesting transactions, bound as {@code transactionSink-in-0}.
+ *
+ * <p>Transactions from consecutive messages are merged into batches of up to {@code batchSize}, or whatever arrived
+ * within {@code batchMaxTime}, and up to {@code concurrency} batches are posted at the same time. Batches are only
+ * collected while fewer are being posted, see {@link Batching}, so a slow DBS holds back the binding instead of
+ * overflowing it. A message is done
+ * once every batch holding one of its transactions completed, or one of them failed. Messages are acknowledged in the
+ * order they were received, see {@link PendingMessages}.</p>
+ *
+ * <p>Failed messages are retried by the broker only: Units Of Work are not saved, so the Unit Of Work scheduler never
+ * posts them again as well.</p>
+ */
+@Configuration
+@Slf4j
+@EnableConfigurationProperties(TransactionSinkConfigurationProperties.class)
+@ConditionalOnProperty(name = "backbase.stream.transaction.sink.reactive", havingValue = "true")
+public class TransactionSinkFunctionConfiguration {
+
+    @Bean
+    public Function<Flux<Message<List<TransactionsPostRequestBody>>>, Mono<Void>> transactionSink(
+        UnitOfWorkExecutor<TransactionTask> transactionTaskUnitOfWorkExecutor,
+        TransactionSinkConfigurationProperties transactionSinkConfigurationProperties) {
+        int batchSize = Math.max(1, transactionSinkConfigurationProperties.getBatchSize());
+        int concurrency = Math.max(1, transactionSinkConfigurationProperties.getConcurrency());
+        return messages -> {
+            PendingMessages pendingMessages = new PendingMessages();
+            Flux<PendingTransaction> transactions = messages
+                .flatMapIterable(message -> pendingTransactions(pendingMessages, message));
+            return Batching.batch(transactions, batchSize, transactionSinkConfigurationProperties.getBatchMaxTime())
+                .flatMap(batch -> ingest(transactionTaskUnitOfWorkExecutor, batch), concurrency)
+                .then();
+        };
+    }
+
+    private List<PendingTransaction> pendingTransactions(PendingMessages pendingMessages,
+        Message<List<TransactionsPostRequestBody>> message) {
+        List<TransactionsPostRequestBody> transactions = message.getPayload();
+        if (transactions == null || transactions.isEmpty()) {
+            PendingMessage pendingMessage = pendingMessages.register(message, 1);
+            if (pendingMessage != null) {
+                pendingMessage.completed();
+            }
+            return new ArrayList<>();
+        }
+        PendingMessage pendingMessage = pendingMessages.register(message, transactions.size());
+        if (pendingMessage == null) {
+            return new ArrayList<>();
+        }
+        List<PendingTransaction> pendingTransactions = new ArrayList<>(transactions.size());
+        for (TransactionsPostRequestBody transaction : transactions) {
+            pendingTransactions.add(new PendingTransaction(pendingMessage, transaction));
+        }
+        return pendingTransactions;
+    }
+
+    private Mono<Void> ingest(UnitOfWorkExecutor<TransactionTask> transactionTaskUnitOfWorkExecutor,
+        List<PendingTransaction> batch) {
+        String unitOfOWorkId = "transaction-sink-" + UUID.randomUUID();
+        List<TransactionsPostRequestBody> transactions = new ArrayList<>(batch.size());
+        Set<PendingMessage> messages = new LinkedHashSet<>();
+        for (PendingTransaction pendingTransaction : batch) {
+            transactions.add(pendingTransaction.transaction);
+            messages.add(pendingTransaction.message);
+        }
+        UnitOfWork<TransactionTask> unitOfWork = UnitOfWork.from(unitOfOWorkId,
+            new TransactionTask(unitOfOWorkId, transactions));
+        return transactionTaskUnitOfWorkExecutor.executeUnsavedUnitOfWork(unitOfWork)
+            .doOnNext(processed -> {
+                log.info("Processed Unit of Work: {} with {} transactions from {} messages in state {}",
+                    unitOfOWorkId, transactions.size(), messages.size(), processed.getState());
+                if (processed.getState() == UnitOfWork.State.COMPLETED) {
+                    completed(batch);
+                } else {
+                    failed(messages);
+                }
+            })
+            .doOnError(throwable -> {
+                log.error("Failed to process Unit of Work: {}", unitOfOWorkId, throwable);
+                failed(messages);
+            })
+            .onErrorResume(throwable -> Mono.empty())
+            .then();
+    }
+
+    private static void completed(List<PendingTransaction> batch) {
+        for (PendingTransaction pendingTransaction : batch) {
+            pendingTransaction.message.completed();
+        }
+    }
+
+    private static void failed(Collection<PendingMessage> messages) {
+        messages.forEach(PendingMessage::failed);
+    }
+
+    private static class PendingTransaction {
+
+        private final PendingMessage message;
+        private final TransactionsPostRequestBody transaction;
+
+        private PendingTransaction(PendingMessage message, TransactionsPostRequestBody transaction) {
+            this.message = message;
+            this.transaction = transaction;
+        }
+    }
+}
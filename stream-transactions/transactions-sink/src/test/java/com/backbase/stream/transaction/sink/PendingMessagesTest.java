@@ -0,0 +1,188 @@
+package com.backbase.stream.transaction.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.backbase.stream.transaction.sink.PendingMessages.PendingMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import org.junit.Test;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+public class PendingMessagesTest {
+
+    private final PendingMessages pendingMessages = new PendingMessages();
+    private final List<String> acknowledgements = new ArrayList<>();
+    private final KafkaConsumer consumer = new KafkaConsumer();
+
+    @Test
+    public void acknowledgesKafkaMessagesInOffsetOrder() {
+        PendingMessage first = register(kafka(0, 0), 1);
+        PendingMessage second = register(kafka(0, 1), 2);
+        PendingMessage third = register(kafka(0, 2), 1);
+
+        third.completed();
+        second.completed();
+        assertEquals(Collections.emptyList(), acknowledgements);
+
+        first.completed();
+        assertEquals(Collections.singletonList("ack 0-0"), acknowledgements);
+
+        second.completed();
+        assertEquals(Arrays.asList("ack 0-0", "ack 0-1", "ack 0-2"), acknowledgements);
+    }
+
+    @Test
+    public void skipsKafkaMessagesAfterRequeuedOffsetUntilDeliveredAgain() {
+        PendingMessage first = register(kafka(0, 0), 1);
+        PendingMessage second = register(kafka(0, 1), 1);
+        PendingMessage third = register(kafka(0, 2), 1);
+
+        second.failed();
+        third.completed();
+        first.completed();
+        assertEquals(Collections.singletonList("ack 0-0"), acknowledgements);
+
+        assertNull(pendingMessages.register(kafka(0, 3), 1));
+        assertEquals(Arrays.asList("ack 0-0", "seek transactions-0 1"), acknowledgements);
+        assertNull(pendingMessages.register(kafka(0, 4), 1));
+        PendingMessage redelivered = register(kafka(0, 1), 1);
+        PendingMessage next = register(kafka(0, 2), 1);
+        redelivered.completed();
+        next.completed();
+        assertEquals(Arrays.asList("ack 0-0", "seek transactions-0 1", "ack 0-1", "ack 0-2"), acknowledgements);
+    }
+
+    @Test
+    public void retriesRewindRefusedByConsumer() {
+        consumer.refusals = 2;
+        PendingMessage failed = register(kafka(0, 0), 1);
+        failed.failed();
+
+        assertNull(pendingMessages.register(kafka(0, 1), 1));
+        assertNull(pendingMessages.register(kafka(0, 2), 1));
+        assertEquals(Collections.emptyList(), acknowledgements);
+
+        assertNull(pendingMessages.register(kafka(0, 3), 1));
+        assertEquals(Collections.singletonList("seek transactions-0 0"), acknowledgements);
+
+        PendingMessage redelivered = register(kafka(0, 0), 1);
+        assertNotNull(register(kafka(0, 1), 1));
+        redelivered.completed();
+        assertEquals(Arrays.asList("seek transactions-0 0", "ack 0-0"), acknowledgements);
+    }
+
+    @Test
+    public void processesMessagesRedeliveredByRebalanceWithoutRewind() {
+        consumer.refusals = Integer.MAX_VALUE;
+        register(kafka(0, 0), 1).failed();
+        assertNull(pendingMessages.register(kafka(0, 1), 1));
+
+        register(kafka(0, 0), 1).completed();
+        register(kafka(0, 1), 1).completed();
+
+        assertEquals(Arrays.asList("ack 0-0", "ack 0-1"), acknowledgements);
+    }
+
+    @Test
+    public void settlesKafkaPartitionsIndependently() {
+        register(kafka(0, 0), 1);
+        PendingMessage otherPartition = register(kafka(1, 0), 1);
+
+        otherPartition.completed();
+
+        assertEquals(Collections.singletonList("ack 1-0"), acknowledgements);
+    }
+
+    @Test
+    public void requeuesFailedMessagesWithoutHoldingBackLaterOnes() {
+        PendingMessage first = register(callback("first"), 2);
+        PendingMessage second = register(callback("second"), 1);
+
+        first.completed();
+        first.failed();
+        second.completed();
+        first.completed();
+
+        assertEquals(Arrays.asList("REQUEUE first", "ACCEPT second"), acknowledgements);
+    }
+
+    private PendingMessage register(Message<?> message, int transactions) {
+        PendingMessage pendingMessage = pendingMessages.register(message, transactions);
+        assertNotNull(pendingMessage);
+        return pendingMessage;
+    }
+
+    private Message<String> kafka(int partition, long offset) {
+        String position = partition + "-" + offset;
+        return MessageBuilder.withPayload(position)
+            .setHeader("kafka_receivedTopic", "transactions")
+            .setHeader("kafka_receivedPartitionId", partition)
+            .setHeader("kafka_offset", offset)
+            .setHeader("kafka_acknowledgment", new KafkaAcknowledgment(position))
+            .setHeader("kafka_consumer", consumer)
+            .build();
+    }
+
+    private Message<String> callback(String name) {
+        AcknowledgmentCallback callback = status -> acknowledgements.add(status + " " + name);
+        return MessageBuilder.withPayload(name)
+            .setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK, callback)
+            .build();
+    }
+
+    /**
+     * Has the methods of the Kafka binder acknowledgment that are invoked reflectively.
+     */
+    public class KafkaAcknowledgment {
+
+        private final String position;
+
+        private KafkaAcknowledgment(String position) {
+            this.position = position;
+        }
+
+        public void acknowledge() {
+            acknowledgements.add("ack " + position);
+        }
+    }
+
+    /**
+     * Has the seek method of the Kafka consumer, refusing it while the consumer is in use by another thread.
+     */
+    public class KafkaConsumer {
+
+        private int refusals;
+
+        public void seek(TopicPartition partition, long offset) {
+            if (refusals > 0) {
+                refusals--;
+                throw new ConcurrentModificationException("KafkaConsumer is not safe for multi-threaded access");
+            }
+            acknowledgements.add("seek " + partition + " " + offset);
+        }
+    }
+
+    public static class TopicPartition {
+
+        private final String topic;
+        private final int partition;
+
+        public TopicPartition(String topic, int partition) {
+            this.topic = topic;
+            this.partition = partition;
+        }
+
+        @Override
+        public String toString() {
+            return topic + "-" + partition;
+        }
+    }
+}